@@ -0,0 +1,125 @@
+package ubu.digit.graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ * Gráficos de caja y bigotes de una página que se dibujan uno debajo de otro
+ * en una sola imagen, de modo que la página pide una imagen en lugar de una
+ * por gráfico. Cada gráfico se muestra con un desplazamiento del fondo, ver
+ * {@link GraphGenerator#getSpriteStyle(BoxPlotSprite, int)}.
+ * 
+ * @since 4.1
+ */
+public class BoxPlotSprite {
+
+    /**
+     * Nombre de la imagen, sin extensión.
+     */
+    private final String name;
+
+    /**
+     * Títulos de los gráficos.
+     */
+    private final List<String> titles = new ArrayList<String>();
+
+    /**
+     * Descripciones de los gráficos.
+     */
+    private final List<String> descripciones = new ArrayList<String>();
+
+    /**
+     * Etiquetas de los gráficos.
+     */
+    private final List<Vector<String>> etiquetas = new ArrayList<Vector<String>>();
+
+    /**
+     * Valores de los gráficos.
+     */
+    private final List<double[][]> valores = new ArrayList<double[][]>();
+
+    /**
+     * Constructor.
+     * 
+     * @param name
+     *            nombre de la imagen, sin extensión.
+     */
+    public BoxPlotSprite(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Añade un gráfico debajo de los anteriores. Las etiquetas y los valores
+     * no se deben modificar después.
+     * 
+     * @param title
+     *            Título del gráfico.
+     * @param descripcion
+     *            Descripción que se añade al título.
+     * @param etiquetasGrafico
+     *            Etiquetas que aparecen en el gráfico.
+     * @param valoresGrafico
+     *            Valores de cada serie del gráfico.
+     * @return posición del gráfico en la imagen, empezando por 0.
+     */
+    public int add(String title, String descripcion,
+            Vector<String> etiquetasGrafico,
+            double[][] valoresGrafico) {
+        titles.add(title);
+        descripciones.add(descripcion);
+        etiquetas.add(etiquetasGrafico);
+        valores.add(valoresGrafico);
+        return titles.size() - 1;
+    }
+
+    /**
+     * @return nombre de la imagen, sin extensión.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return número de gráficos.
+     */
+    public int size() {
+        return titles.size();
+    }
+
+    /**
+     * @param index
+     *            posición del gráfico.
+     * @return título del gráfico.
+     */
+    String getTitle(int index) {
+        return titles.get(index);
+    }
+
+    /**
+     * @param index
+     *            posición del gráfico.
+     * @return descripción del gráfico.
+     */
+    String getDescripcion(int index) {
+        return descripciones.get(index);
+    }
+
+    /**
+     * @param index
+     *            posición del gráfico.
+     * @return etiquetas del gráfico.
+     */
+    Vector<String> getEtiquetas(int index) {
+        return etiquetas.get(index);
+    }
+
+    /**
+     * @param index
+     *            posición del gráfico.
+     * @return valores de cada serie del gráfico.
+     */
+    double[][] getValores(int index) {
+        return valores.get(index);
+    }
+}
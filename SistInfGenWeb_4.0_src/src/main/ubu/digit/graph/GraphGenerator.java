@@ -2,12 +2,22 @@ package ubu.digit.graph;
 
 import java.awt.Color;
 import java.awt.Font;
-import java.io.File;
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.jfree.chart.ChartFactory;
@@ -24,10 +34,34 @@ import org.jfree.data.statistics.DefaultBoxAndWhiskerXYDataset;
 import org.jfree.data.xy.XYSeries;
 import org.jfree.data.xy.XYSeriesCollection;
 
+import ubu.digit.stats.Interpolation;
+import ubu.digit.stats.Quantiles;
+import ubu.digit.util.ChartCache;
 import ubu.digit.util.ExternalProperties;
+import ubu.digit.util.FileSink;
+import ubu.digit.util.OutputManifest;
 
 /**
  * Clase encargada de generar gráficos estadísticos.
+ * <p>
+ * Cuando los gráficos se escriben en el directorio de salida sólo se dibujan
+ * los que han cambiado, ver {@link ChartCache}.
+ * <p>
+ * Los gráficos se pueden dibujar de forma asíncrona en un conjunto de hilos
+ * compartido, con tantos hilos como procesadores, mientras se sigue generando
+ * la página que los muestra.
+ * <p>
+ * La propiedad formatoGraficos elige el formato de los gráficos de caja y
+ * bigotes: png (por defecto), svg para ficheros SVG, dibujados a partir de
+ * los cuartiles sin pasar por Java2D (ver {@link SvgBoxPlot}), o
+ * svg-integrado para incluir el SVG directamente en la página. Con sprite
+ * todos los gráficos de una página se dibujan en una sola imagen PNG, ver
+ * {@link BoxPlotSprite}.
+ * <p>
+ * Los valores de las series se reciben como arrays de primitivos, de modo que
+ * quien lee varias series a la vez (por ejemplo todas las columnas de una
+ * tabla en una sola pasada) no tiene que pasarlas a colecciones de Double.
+ * Las estadísticas de cada serie se calculan una sola vez por gráfico.
  * 
  * @author Carlos López Nozal
  * @author Beatriz Zurera Martínez-Acitores
@@ -49,17 +83,244 @@ public class GraphGenerator {
             .getInstance("./../src/main/config.properties");
 
     /**
-     * Constructor.
+     * Versión del dibujo de los gráficos. Se incluye en su huella, de modo
+     * que al cambiarla se vuelven a dibujar todos.
+     */
+    private static final int RENDER_VERSION = 1;
+
+    /**
+     * Ancho de los gráficos de caja y bigotes, en píxeles.
+     */
+    private static final int BOXPLOT_WIDTH = 250;
+
+    /**
+     * Alto de los gráficos de caja y bigotes, en píxeles.
+     */
+    private static final int BOXPLOT_HEIGHT = 60;
+
+    /**
+     * Formato PNG.
+     */
+    public static final String FORMAT_PNG = "png";
+
+    /**
+     * Formato SVG en ficheros.
+     */
+    public static final String FORMAT_SVG = "svg";
+
+    /**
+     * Formato SVG incluido en la página.
+     */
+    public static final String FORMAT_INLINE_SVG = "svg-integrado";
+
+    /**
+     * Formato PNG con todos los gráficos de la página en una sola imagen.
+     */
+    public static final String FORMAT_SPRITE = "sprite";
+
+    /**
+     * Formato de los gráficos de caja y bigotes.
+     */
+    private static final String FORMAT = readFormat();
+
+    /**
+     * Hilos en los que se dibujan los gráficos de forma asíncrona, compartidos
+     * por todos los generadores. Se crean la primera vez que se usan.
+     */
+    private static ExecutorService pool;
+
+    static {
+        // Los gráficos se dibujan sin pantalla, también desde varios hilos
+        if (System.getProperty("java.awt.headless") == null) {
+            System.setProperty("java.awt.headless", "true");
+        }
+    }
+
+    /**
+     * Destino de los gráficos.
+     */
+    private final FileSink sink;
+
+    /**
+     * Huellas de los gráficos ya dibujados, o null para dibujarlos siempre.
+     */
+    private final ChartCache cache;
+
+    /**
+     * Constructor. Los gráficos se escriben en el directorio de salida.
      */
     public GraphGenerator() {
+        this(OutputManifest.getInstance());
+    }
+
+    /**
+     * Constructor. Si el destino es el directorio de salida sólo se dibujan
+     * los gráficos que han cambiado; en cualquier otro se dibujan todos,
+     * porque los ya dibujados no están en el destino.
+     * 
+     * @param sink
+     *            destino de los gráficos.
+     */
+    public GraphGenerator(FileSink sink) {
         super();
+        this.sink = sink;
+        this.cache = sink instanceof OutputManifest ? ChartCache.getInstance()
+                : null;
+    }
+
+    /**
+     * Lee el formato de los gráficos de la propiedad formatoGraficos.
+     * 
+     * @return formato.
+     */
+    private static String readFormat() {
+        String format = prop.getSetting("formatoGraficos", FORMAT_PNG);
+        if (!FORMAT_PNG.equals(format) && !FORMAT_SVG.equals(format)
+                && !FORMAT_INLINE_SVG.equals(format)
+                && !FORMAT_SPRITE.equals(format)) {
+            LOGGER.error("Formato de gráficos desconocido: " + format
+                    + ". Se usa " + FORMAT_PNG);
+            return FORMAT_PNG;
+        }
+        return format;
+    }
+
+    /**
+     * @return true si los gráficos de caja y bigotes se incluyen en la página
+     *         en lugar de escribirse en ficheros.
+     */
+    public static boolean isInline() {
+        return FORMAT_INLINE_SVG.equals(FORMAT);
+    }
+
+    /**
+     * @return true si los gráficos de caja y bigotes de una página se dibujan
+     *         en una sola imagen.
+     */
+    public static boolean isSprite() {
+        return FORMAT_SPRITE.equals(FORMAT);
+    }
+
+    /**
+     * Obtiene el estilo de un elemento que muestra un gráfico de una imagen
+     * con varios gráficos: su tamaño y el desplazamiento del fondo.
+     * 
+     * @param sprite
+     *            gráficos de la imagen.
+     * @param index
+     *            posición del gráfico en la imagen.
+     * @return estilo css.
+     */
+    public static String getSpriteStyle(BoxPlotSprite sprite, int index) {
+        return "width:" + BOXPLOT_WIDTH + "px;height:" + BOXPLOT_HEIGHT
+                + "px;background:url(./images/metrics/" + sprite.getName()
+                + ".png) 0 " + (-index * BOXPLOT_HEIGHT) + "px";
     }
 
     /**
-     * Método que crea el gráfico de los intervalos de las métricas de producto.
+     * @return extensión de los ficheros de los gráficos de caja y bigotes,
+     *         con el punto.
+     */
+    public static String getExtension() {
+        return FORMAT_SVG.equals(FORMAT) ? ".svg" : ".png";
+    }
+
+    /**
+     * Obtiene los hilos en los que se dibujan los gráficos de forma
+     * asíncrona.
+     * 
+     * @return ejecutor con tantos hilos como procesadores.
+     */
+    private static synchronized ExecutorService getPool() {
+        if (pool == null) {
+            pool = Executors.newFixedThreadPool(Runtime.getRuntime()
+                    .availableProcessors(), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "GraphGenerator-"
+                            + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return pool;
+    }
+
+    /**
+     * Crea de forma asíncrona el gráfico de los intervalos de las métricas de
+     * producto, ver
+     * {@link #generateGraphicBoxPlot(String, String, String, String, Vector, Vector)}.
+     * Las colecciones de etiquetas y valores no se deben modificar después.
+     * 
+     * @param title
+     *            Título del gráfico.
+     * @param descripcion
+     *            Descripción que se añade al título.
+     * @param xLabel
+     *            Rótulo del título del eje de las x's.
+     * @param yLabel
+     *            Rótulo del título del eje de las y's.
+     * @param etiquetas
+     *            Etiquetas que aparecen en el gráfico.
+     * @param valores
+     *            Valores que aparecen el gráfico.
+     * @return resultado, que termina cuando el gráfico se ha entregado a su
+     *         destino.
+     */
+    public Future<?> submitGraphicBoxPlot(final String title,
+            final String descripcion, final String xLabel,
+            final String yLabel, final Vector<String> etiquetas,
+            final Vector<Vector<Double>> valores) {
+        return submitGraphicBoxPlot(title, descripcion, xLabel, yLabel,
+                etiquetas, toArrays(valores));
+    }
+
+    /**
+     * Crea de forma asíncrona el gráfico de los intervalos de las métricas de
+     * producto, ver
+     * {@link #generateGraphicBoxPlot(String, String, String, String, Vector, double[][])}.
+     * Las etiquetas y los valores no se deben modificar después.
+     * 
+     * @param title
+     *            Título del gráfico.
+     * @param descripcion
+     *            Descripción que se añade al título.
+     * @param xLabel
+     *            Rótulo del título del eje de las x's.
+     * @param yLabel
+     *            Rótulo del título del eje de las y's.
+     * @param etiquetas
+     *            Etiquetas que aparecen en el gráfico.
+     * @param valores
+     *            Valores de cada serie.
+     * @return resultado, que termina cuando el gráfico se ha entregado a su
+     *         destino.
+     */
+    public Future<?> submitGraphicBoxPlot(final String title,
+            final String descripcion, final String xLabel,
+            final String yLabel, final Vector<String> etiquetas,
+            final double[][] valores) {
+        return getPool().submit(new Runnable() {
+            @Override
+            public void run() {
+                generateGraphicBoxPlot(title, descripcion, xLabel, yLabel,
+                        etiquetas, valores);
+            }
+        });
+    }
+
+    /**
+     * Método que crea el gráfico de los intervalos de las métricas de producto
+     * en el formato de la propiedad formatoGraficos, salvo que se incluya en
+     * la página.
      * 
      * @param title
      *            Título del gráfico.
+     * @param descripcion
+     *            Descripción que se añade al título.
      * @param xLabel
      *            Rótulo del título del eje de las x's.
      * @param yLabel
@@ -72,9 +333,236 @@ public class GraphGenerator {
     public void generateGraphicBoxPlot(String title, String descripcion,
             String xLabel, String yLabel, Vector<String> etiquetas,
             Vector<Vector<Double>> valores) {
+        generateGraphicBoxPlot(title, descripcion, xLabel, yLabel, etiquetas,
+                toArrays(valores));
+    }
 
-        DefaultBoxAndWhiskerXYDataset dataset = this
-                .createBoxPlotDataset(valores);
+    /**
+     * Método que crea el gráfico de los intervalos de las métricas de producto
+     * en el formato de la propiedad formatoGraficos, salvo que se incluya en
+     * la página. Con una serie se obtiene el gráfico de una métrica y con
+     * varias un gráfico combinado.
+     * 
+     * @param title
+     *            Título del gráfico.
+     * @param descripcion
+     *            Descripción que se añade al título.
+     * @param xLabel
+     *            Rótulo del título del eje de las x's.
+     * @param yLabel
+     *            Rótulo del título del eje de las y's.
+     * @param etiquetas
+     *            Etiquetas que aparecen en el gráfico.
+     * @param valores
+     *            Valores de cada serie.
+     */
+    public void generateGraphicBoxPlot(String title, String descripcion,
+            String xLabel, String yLabel, Vector<String> etiquetas,
+            double[][] valores) {
+        String fileName = prop.getSetting("dirOut") + "\\images\\metrics\\"
+                + title + getExtension();
+        String fingerprint = ChartCache.fingerprint(describe(title,
+                descripcion, xLabel, yLabel, etiquetas, valores));
+        if (cache != null && cache.isUpToDate(fileName, fingerprint)) {
+            return;
+        }
+
+        List<BoxAndWhiskerItem> items = createBoxPlotItems(valores);
+        try {
+            byte[] image;
+            if (FORMAT_SVG.equals(FORMAT)) {
+                image = ("<?xml version='1.0' encoding='UTF-8'?>\n"
+                        + SvgBoxPlot.draw(title + "_" + descripcion, items,
+                                BOXPLOT_WIDTH, BOXPLOT_HEIGHT))
+                        .getBytes(StandardCharsets.UTF_8);
+            } else {
+                image = createPngBoxPlot(title, descripcion, xLabel, yLabel,
+                        etiquetas, items);
+            }
+            sink.write(fileName, image);
+            if (cache != null) {
+                cache.update(fileName, fingerprint);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Error al crear el gráfico", e);
+        }
+    }
+
+    /**
+     * Crea de forma asíncrona la imagen con todos los gráficos de una página,
+     * ver {@link #generateSpriteBoxPlot(BoxPlotSprite)}. No se deben añadir
+     * más gráficos después.
+     * 
+     * @param sprite
+     *            gráficos de la imagen.
+     * @return resultado, que termina cuando la imagen se ha entregado a su
+     *         destino.
+     */
+    public Future<?> submitSpriteBoxPlot(final BoxPlotSprite sprite) {
+        return getPool().submit(new Runnable() {
+            @Override
+            public void run() {
+                generateSpriteBoxPlot(sprite);
+            }
+        });
+    }
+
+    /**
+     * Dibuja todos los gráficos de una página uno debajo de otro en una sola
+     * imagen PNG, que sólo se vuelve a dibujar si ha cambiado alguno de ellos.
+     * 
+     * @param sprite
+     *            gráficos de la imagen.
+     */
+    public void generateSpriteBoxPlot(BoxPlotSprite sprite) {
+        if (sprite.size() == 0) {
+            return;
+        }
+        String fileName = prop.getSetting("dirOut") + "\\images\\metrics\\"
+                + sprite.getName() + ".png";
+        StringBuilder description = new StringBuilder("sprite");
+        for (int i = 0; i < sprite.size(); i++) {
+            description.append('\n').append(
+                    describe(sprite.getTitle(i), sprite.getDescripcion(i), "",
+                            "", sprite.getEtiquetas(i), sprite.getValores(i)));
+        }
+        String fingerprint = ChartCache.fingerprint(description.toString());
+        if (cache != null && cache.isUpToDate(fileName, fingerprint)) {
+            return;
+        }
+
+        BufferedImage image = new BufferedImage(BOXPLOT_WIDTH, BOXPLOT_HEIGHT
+                * sprite.size(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = image.createGraphics();
+        try {
+            for (int i = 0; i < sprite.size(); i++) {
+                createBoxPlotChart(sprite.getTitle(i),
+                        sprite.getDescripcion(i), "", "",
+                        sprite.getEtiquetas(i),
+                        createBoxPlotItems(sprite.getValores(i))).draw(
+                        g2,
+                        new Rectangle2D.Double(0, i * BOXPLOT_HEIGHT,
+                                BOXPLOT_WIDTH, BOXPLOT_HEIGHT));
+            }
+        } finally {
+            g2.dispose();
+        }
+
+        try {
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            ChartUtilities.writeBufferedImageAsPNG(png, image);
+            sink.write(fileName, png.toByteArray());
+            if (cache != null) {
+                cache.update(fileName, fingerprint);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Error al crear el gráfico", e);
+        }
+    }
+
+    /**
+     * Describe todo aquello de lo que depende el dibujo de un gráfico de caja
+     * y bigotes, para calcular su huella.
+     * 
+     * @param title
+     *            Título del gráfico.
+     * @param descripcion
+     *            Descripción que se añade al título.
+     * @param xLabel
+     *            Rótulo del título del eje de las x's.
+     * @param yLabel
+     *            Rótulo del título del eje de las y's.
+     * @param etiquetas
+     *            Etiquetas que aparecen en el gráfico.
+     * @param valores
+     *            Valores de cada serie.
+     * @return descripción.
+     */
+    private static String describe(String title, String descripcion,
+            String xLabel, String yLabel, Vector<String> etiquetas,
+            double[][] valores) {
+        // Los valores se escriben igual que una colección de colecciones
+        StringBuilder description = new StringBuilder("boxplot:")
+                .append(RENDER_VERSION).append(':').append(BOXPLOT_WIDTH)
+                .append('x').append(BOXPLOT_HEIGHT).append(':').append(title)
+                .append(':').append(descripcion).append(':').append(xLabel)
+                .append(':').append(yLabel).append(':').append(etiquetas)
+                .append(":[");
+        for (int i = 0; i < valores.length; i++) {
+            description.append(i == 0 ? "" : ", ").append(
+                    Arrays.toString(valores[i]));
+        }
+        return description.append(']').toString();
+    }
+
+    /**
+     * Dibuja en SVG el gráfico de los intervalos de las métricas de producto,
+     * a partir de los cuartiles y sin pasar por Java2D.
+     * 
+     * @param title
+     *            Título del gráfico.
+     * @param descripcion
+     *            Descripción que se añade al título.
+     * @param valores
+     *            Valores de cada serie.
+     * @return elemento svg.
+     */
+    public String createSvgBoxPlot(String title, String descripcion,
+            double[][] valores) {
+        return SvgBoxPlot.draw(title + "_" + descripcion,
+                createBoxPlotItems(valores), BOXPLOT_WIDTH, BOXPLOT_HEIGHT);
+    }
+
+    /**
+     * Dibuja en PNG el gráfico de los intervalos de las métricas de producto.
+     * 
+     * @param title
+     *            Título del gráfico.
+     * @param descripcion
+     *            Descripción que se añade al título.
+     * @param xLabel
+     *            Rótulo del título del eje de las x's.
+     * @param yLabel
+     *            Rótulo del título del eje de las y's.
+     * @param etiquetas
+     *            Etiquetas que aparecen en el gráfico.
+     * @param items
+     *            Estadísticas de cada serie.
+     * @return imagen PNG.
+     * @throws IOException
+     *             si no se puede codificar la imagen.
+     */
+    private byte[] createPngBoxPlot(String title, String descripcion,
+            String xLabel, String yLabel, Vector<String> etiquetas,
+            List<BoxAndWhiskerItem> items) throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ChartUtilities.writeChartAsPNG(png,
+                createBoxPlotChart(title, descripcion, xLabel, yLabel,
+                        etiquetas, items), BOXPLOT_WIDTH, BOXPLOT_HEIGHT);
+        return png.toByteArray();
+    }
+
+    /**
+     * Crea el gráfico de los intervalos de las métricas de producto.
+     * 
+     * @param title
+     *            Título del gráfico.
+     * @param descripcion
+     *            Descripción que se añade al título.
+     * @param xLabel
+     *            Rótulo del título del eje de las x's.
+     * @param yLabel
+     *            Rótulo del título del eje de las y's.
+     * @param etiquetas
+     *            Etiquetas que aparecen en el gráfico.
+     * @param items
+     *            Estadísticas de cada serie.
+     * @return gráfico.
+     */
+    private JFreeChart createBoxPlotChart(String title, String descripcion,
+            String xLabel, String yLabel, Vector<String> etiquetas,
+            List<BoxAndWhiskerItem> items) {
+        DefaultBoxAndWhiskerXYDataset dataset = createDataset(items);
 
         JFreeChart chart = ChartFactory.createBoxAndWhiskerChart(title, xLabel,
                 yLabel, dataset, false);
@@ -111,13 +599,7 @@ public class GraphGenerator {
         plot.getRangeAxis().setRange(
                 plot.getRangeAxis().getRange().getLowerBound() - 1,
                 plot.getRangeAxis().getRange().getUpperBound() + 1);
-
-        try {
-            ChartUtilities.saveChartAsPNG(new File(prop.getSetting("dirOut")
-                    + "\\images\\metrics\\" + title + ".png"), chart, 250, 60);
-        } catch (IOException e) {
-            LOGGER.error("Error al crear el gráfico", e);
-        }
+        return chart;
     }
 
     /**
@@ -132,69 +614,107 @@ public class GraphGenerator {
      */
     protected DefaultBoxAndWhiskerXYDataset createBoxPlotDataset(
             Vector<Vector<Double>> valores) {
+        return createDataset(createBoxPlotItems(toArrays(valores)));
+    }
+
+    /**
+     * Crea el conjunto de datos (dataset) del gráfico de caja y bigotes a
+     * partir de las estadísticas ya calculadas de cada serie.
+     * 
+     * @param items
+     *            Estadísticas de cada serie.
+     * @return Conjunto de valores (dataset) para generar el gráfico
+     */
+    private static DefaultBoxAndWhiskerXYDataset createDataset(
+            List<BoxAndWhiskerItem> items) {
 
         DefaultBoxAndWhiskerXYDataset dataSetMetric = new DefaultBoxAndWhiskerXYDataset(
                 "");
 
-        for (int abc = 0; abc < valores.size(); ++abc) {
+        for (int abc = 0; abc < items.size(); ++abc) {
+            dataSetMetric.add(new Date(abc * 10), items.get(abc));
+        }
+        return dataSetMetric;
+    }
 
-            List<Double> lista = new ArrayList<Double>();
-            int k;
-            double aux;
-            int entero;
-            double suma = 0;
-            double media, mediana, primerCuartil, tercerCuartil;
+    /**
+     * Calcula las estadísticas de todas las series de un gráfico.
+     * 
+     * @param valores
+     *            Valores de cada serie.
+     * @return datos del gráfico de caja y bigotes de cada serie.
+     */
+    protected List<BoxAndWhiskerItem> createBoxPlotItems(double[][] valores) {
+        List<BoxAndWhiskerItem> items = new ArrayList<BoxAndWhiskerItem>(
+                valores.length);
+        for (double[] serie : valores) {
+            items.add(createBoxPlotItem(serie));
+        }
+        return items;
+    }
 
-            lista.addAll(valores.elementAt(abc));
+    /**
+     * Calcula la media, los cuartiles y los valores regulares de una serie.
+     * 
+     * @param serie
+     *            Valores de la serie, que no se modifican.
+     * @return datos del gráfico de caja y bigotes de la serie.
+     */
+    protected BoxAndWhiskerItem createBoxPlotItem(double[] serie) {
+        double suma = 0;
+        for (double dato : serie) {
+            suma = suma + dato;
+        }
+        double media = suma / serie.length;
 
-            // ***************** Ordenar lista ********************
-            for (int i = 0; i < lista.size(); i++) {
-                k = i;
-                for (int j = i + 1; j < lista.size(); j++) {
-                    if (lista.get(j) < lista.get(k)) {
-                        k = j;
-                    }
-                }
-                aux = lista.get(k);
-                lista.set(k, lista.get(i));
-                lista.set(i, aux);
-            }
+        // Se ordena una copia una sola vez para todos los cuartiles
+        double[] datos = serie.clone();
+        Arrays.sort(datos);
+        double mediana = Quantiles.fromSorted(datos, datos.length, 0.5,
+                Interpolation.LINEAR);
+        double primerCuartil = Quantiles.fromSorted(datos, datos.length,
+                0.25, Interpolation.INDEX_FLOOR);
+        double tercerCuartil = Quantiles.fromSorted(datos, datos.length,
+                0.75, Interpolation.INDEX_FLOOR);
 
-            for (int i = 0; i < lista.size(); i++) {
-                suma = suma + lista.get(i);
-            }
-            media = suma / lista.size();
+        List<Double> lista = new ArrayList<Double>(datos.length);
+        for (double dato : datos) {
+            lista.add(dato);
+        }
 
-            if (lista.size() % 2 != 0) {
-                mediana = lista.get(lista.size() / 2);
-            } else {
-                mediana = (lista.get(lista.size() / 2) + lista.get((lista
-                        .size() / 2) - 1)) / 2;
-            }
+        return new BoxAndWhiskerItem(
+                // media
+                media,
+                // mediana
+                mediana,
+                // primer cuartil
+                primerCuartil,
+                // tercer cuartil
+                tercerCuartil,
+                // Primer cuartil - 1,5 * RIC y primer cuartil - 3 * RIC
+                primerCuartil - (1.5) * (tercerCuartil - primerCuartil),
+                // Tercer cuartil + 1,5 * RIC y tercer cuartil + 3 * RIC
+                tercerCuartil + (1.5) * (tercerCuartil - primerCuartil),
+                -10000, 10000, lista);
+    }
 
-            entero = Math.round((lista.size() * 25) / 100);
-            primerCuartil = lista.get(entero);
-
-            entero = Math.round((lista.size() * 75) / 100);
-            tercerCuartil = lista.get(entero);
-
-            BoxAndWhiskerItem item = new BoxAndWhiskerItem(
-                    // media
-                    media,
-                    // mediana
-                    mediana,
-                    // primer cuartil
-                    primerCuartil,
-                    // tercer cuartil
-                    tercerCuartil,
-                    // Primer cuartil - 1,5 * RIC y primer cuartil - 3 * RIC
-                    primerCuartil - (1.5) * (tercerCuartil - primerCuartil),
-                    // Tercer cuartil + 1,5 * RIC y tercer cuartil + 3 * RIC
-                    tercerCuartil + (1.5) * (tercerCuartil - primerCuartil),
-                    -10000, 10000, lista);
-
-            dataSetMetric.add(new Date(abc * 10), item);
+    /**
+     * Pasa los valores de cada serie de colecciones de Double a arrays de
+     * primitivos.
+     * 
+     * @param valores
+     *            Colección de colecciones de datos de series.
+     * @return valores de cada serie.
+     */
+    private static double[][] toArrays(Vector<Vector<Double>> valores) {
+        double[][] arrays = new double[valores.size()][];
+        for (int i = 0; i < arrays.length; i++) {
+            Vector<Double> serie = valores.elementAt(i);
+            arrays[i] = new double[serie.size()];
+            for (int j = 0; j < arrays[i].length; j++) {
+                arrays[i][j] = serie.get(j);
+            }
         }
-        return dataSetMetric;
+        return arrays;
     }
 }
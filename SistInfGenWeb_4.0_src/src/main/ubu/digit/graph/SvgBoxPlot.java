@@ -0,0 +1,397 @@
+package ubu.digit.graph;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.List;
+import java.util.Locale;
+
+import org.jfree.data.statistics.BoxAndWhiskerItem;
+
+/**
+ * Dibuja en SVG un gráfico de caja y bigotes horizontal a partir de los
+ * cuartiles ya calculados, sin pasar por Java2D: el resultado es texto, ocupa
+ * menos que un PNG y se ve nítido a cualquier resolución.
+ * <p>
+ * Cada serie se dibuja en su propia franja: la caja entre el primer y el
+ * tercer cuartil, la mediana, los bigotes hasta los valores regulares mínimo
+ * y máximo, la media y los valores que quedan fuera de los bigotes. Las
+ * medias de todas las series se unen con una línea azul, como en la versión
+ * PNG.
+ * 
+ * @since 4.1
+ */
+final class SvgBoxPlot {
+
+    /**
+     * Margen horizontal del área de dibujo, en píxeles.
+     */
+    private static final double MARGIN = 10;
+
+    /**
+     * Altura reservada para el título, en píxeles.
+     */
+    private static final double TITLE_HEIGHT = 14;
+
+    /**
+     * Altura reservada para el eje, en píxeles.
+     */
+    private static final double AXIS_HEIGHT = 14;
+
+    /**
+     * Altura máxima de la caja, en píxeles.
+     */
+    private static final double BOX_HEIGHT = 20;
+
+    /**
+     * Número aproximado de marcas del eje.
+     */
+    private static final int TICKS = 4;
+
+    /**
+     * Color de relleno de la caja, el mismo que en la versión PNG.
+     */
+    private static final String BOX_FILL = "#c0c0c0";
+
+    /**
+     * Ancho del gráfico.
+     */
+    private final int width;
+
+    /**
+     * Alto del gráfico.
+     */
+    private final int height;
+
+    /**
+     * Valor del extremo izquierdo del eje.
+     */
+    private double lower;
+
+    /**
+     * Valor del extremo derecho del eje.
+     */
+    private double upper;
+
+    /**
+     * Texto del gráfico.
+     */
+    private final StringBuilder svg = new StringBuilder(2048);
+
+    /**
+     * Constructor.
+     * 
+     * @param width
+     *            ancho del gráfico, en píxeles.
+     * @param height
+     *            alto del gráfico, en píxeles.
+     */
+    private SvgBoxPlot(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Dibuja un gráfico de caja y bigotes.
+     * 
+     * @param title
+     *            título del gráfico.
+     * @param items
+     *            cuartiles, media, valores regulares y valores de cada
+     *            serie.
+     * @param width
+     *            ancho del gráfico, en píxeles.
+     * @param height
+     *            alto del gráfico, en píxeles.
+     * @return elemento svg, sin declaración XML, para incluirlo en una página
+     *         html o en un fichero.
+     */
+    static String draw(String title, List<BoxAndWhiskerItem> items,
+            int width, int height) {
+        SvgBoxPlot plot = new SvgBoxPlot(width, height);
+        plot.drawAll(title, items);
+        return plot.svg.toString();
+    }
+
+    /**
+     * Dibuja el gráfico completo.
+     * 
+     * @param title
+     *            título del gráfico.
+     * @param items
+     *            datos de cada serie.
+     */
+    private void drawAll(String title, List<BoxAndWhiskerItem> items) {
+        svg.append("<svg xmlns='http://www.w3.org/2000/svg' width='")
+                .append(width).append("' height='").append(height)
+                .append("' viewBox='0 0 ").append(width).append(' ')
+                .append(height)
+                .append("' font-family='Verdana, sans-serif' role='img'>");
+        svg.append("<title>").append(escape(title)).append("</title>");
+        svg.append("<text x='").append(coord(width / 2.0))
+                .append("' y='10' font-size='9' text-anchor='middle'>")
+                .append(escape(title)).append("</text>");
+
+        if (computeRange(items)) {
+            drawAxis();
+            double band = (height - TITLE_HEIGHT - AXIS_HEIGHT) / items.size();
+            double boxHeight = Math.min(band * 0.7, BOX_HEIGHT);
+            double[] meanX = new double[items.size()];
+            double[] meanY = new double[items.size()];
+            for (int i = 0; i < items.size(); i++) {
+                meanY[i] = TITLE_HEIGHT + band * (i + 0.5);
+                meanX[i] = x(items.get(i).getMean().doubleValue());
+                drawItem(items.get(i), meanY[i], boxHeight);
+            }
+            drawMeans(meanX, meanY);
+        }
+        svg.append("</svg>");
+    }
+
+    /**
+     * Calcula los extremos del eje para que se vean todos los valores y los
+     * bigotes, con un pequeño margen.
+     * 
+     * @param items
+     *            datos de cada serie.
+     * @return false si no hay ningún valor que dibujar.
+     */
+    private boolean computeRange(List<BoxAndWhiskerItem> items) {
+        lower = Double.POSITIVE_INFINITY;
+        upper = Double.NEGATIVE_INFINITY;
+        for (BoxAndWhiskerItem item : items) {
+            include(item.getMinRegularValue());
+            include(item.getMaxRegularValue());
+            for (Object value : item.getOutliers()) {
+                include((Number) value);
+            }
+        }
+        if (lower > upper) {
+            return false;
+        }
+        double padding = upper > lower ? (upper - lower) * 0.05 : 0.5;
+        lower -= padding;
+        upper += padding;
+        return true;
+    }
+
+    /**
+     * Amplía el eje para que incluya un valor.
+     * 
+     * @param value
+     *            valor, o null.
+     */
+    private void include(Number value) {
+        if (value != null && !Double.isNaN(value.doubleValue())
+                && !Double.isInfinite(value.doubleValue())) {
+            lower = Math.min(lower, value.doubleValue());
+            upper = Math.max(upper, value.doubleValue());
+        }
+    }
+
+    /**
+     * Dibuja el eje horizontal con marcas en valores redondos.
+     */
+    private void drawAxis() {
+        double y = height - AXIS_HEIGHT + 2;
+        svg.append("<g stroke='#808080' stroke-width='0.5'>");
+        line(MARGIN, y, width - MARGIN, y);
+        double step = niceStep((upper - lower) / TICKS);
+        double first = Math.ceil(lower / step) * step;
+        StringBuilder labels = new StringBuilder();
+        DecimalFormat format = new DecimalFormat("0.##",
+                DecimalFormatSymbols.getInstance(Locale.ROOT));
+        for (int i = 0; first + i * step <= upper; i++) {
+            double value = first + i * step;
+            if (Math.abs(value) < step / 1000) {
+                // Sin errores de redondeo que se escriban como -0
+                value = 0;
+            }
+            double x = x(value);
+            line(x, y, x, y + 3);
+            labels.append("<text x='").append(coord(x)).append("' y='")
+                    .append(coord(y + 10)).append("'>")
+                    .append(format.format(value)).append("</text>");
+        }
+        svg.append("</g>");
+        svg.append("<g font-size='7' text-anchor='middle' fill='#404040'>")
+                .append(labels).append("</g>");
+    }
+
+    /**
+     * Dibuja la caja, la mediana, los bigotes, la media y los valores fuera
+     * de los bigotes de una serie.
+     * 
+     * @param item
+     *            datos de la serie.
+     * @param center
+     *            coordenada vertical del centro de la franja.
+     * @param boxHeight
+     *            alto de la caja.
+     */
+    private void drawItem(BoxAndWhiskerItem item, double center,
+            double boxHeight) {
+        double q1 = x(item.getQ1().doubleValue());
+        double q3 = x(item.getQ3().doubleValue());
+        double min = x(item.getMinRegularValue().doubleValue());
+        double max = x(item.getMaxRegularValue().doubleValue());
+        double top = center - boxHeight / 2;
+        double bottom = center + boxHeight / 2;
+
+        svg.append("<g stroke='#000000' stroke-width='1'>");
+        // Bigotes
+        line(min, center, q1, center);
+        line(q3, center, max, center);
+        line(min, center - boxHeight / 4, min, center + boxHeight / 4);
+        line(max, center - boxHeight / 4, max, center + boxHeight / 4);
+        // Caja y mediana
+        svg.append("<rect x='").append(coord(q1)).append("' y='")
+                .append(coord(top)).append("' width='")
+                .append(coord(q3 - q1)).append("' height='")
+                .append(coord(boxHeight)).append("' fill='").append(BOX_FILL)
+                .append("'/>");
+        double median = x(item.getMedian().doubleValue());
+        line(median, top, median, bottom);
+        // Media
+        svg.append("<circle cx='")
+                .append(coord(x(item.getMean().doubleValue())))
+                .append("' cy='").append(coord(center))
+                .append("' r='2.5' fill='none'/>");
+        // Valores fuera de los bigotes
+        double minRegular = item.getMinRegularValue().doubleValue();
+        double maxRegular = item.getMaxRegularValue().doubleValue();
+        for (Object outlier : item.getOutliers()) {
+            double value = ((Number) outlier).doubleValue();
+            if (value < minRegular || value > maxRegular) {
+                svg.append("<circle cx='").append(coord(x(value)))
+                        .append("' cy='").append(coord(center))
+                        .append("' r='1.5' fill='none'/>");
+            }
+        }
+        svg.append("</g>");
+    }
+
+    /**
+     * Dibuja las medias de todas las series en azul, unidas con una línea si
+     * hay más de una.
+     * 
+     * @param meanX
+     *            coordenadas horizontales de las medias.
+     * @param meanY
+     *            coordenadas verticales de las medias.
+     */
+    private void drawMeans(double[] meanX, double[] meanY) {
+        svg.append("<g stroke='#0000ff' fill='#0000ff'>");
+        if (meanX.length > 1) {
+            svg.append("<polyline fill='none' points='");
+            for (int i = 0; i < meanX.length; i++) {
+                svg.append(i == 0 ? "" : " ").append(coord(meanX[i]))
+                        .append(',').append(coord(meanY[i]));
+            }
+            svg.append("'/>");
+        }
+        for (int i = 0; i < meanX.length; i++) {
+            svg.append("<rect x='").append(coord(meanX[i] - 2))
+                    .append("' y='").append(coord(meanY[i] - 2))
+                    .append("' width='4' height='4'/>");
+        }
+        svg.append("</g>");
+    }
+
+    /**
+     * Añade una línea.
+     * 
+     * @param x1
+     *            coordenada horizontal del origen.
+     * @param y1
+     *            coordenada vertical del origen.
+     * @param x2
+     *            coordenada horizontal del final.
+     * @param y2
+     *            coordenada vertical del final.
+     */
+    private void line(double x1, double y1, double x2, double y2) {
+        svg.append("<line x1='").append(coord(x1)).append("' y1='")
+                .append(coord(y1)).append("' x2='").append(coord(x2))
+                .append("' y2='").append(coord(y2)).append("'/>");
+    }
+
+    /**
+     * Obtiene la coordenada horizontal de un valor.
+     * 
+     * @param value
+     *            valor.
+     * @return coordenada.
+     */
+    private double x(double value) {
+        return MARGIN + (value - lower) / (upper - lower)
+                * (width - 2 * MARGIN);
+    }
+
+    /**
+     * Obtiene un paso redondo (1, 2 o 5 por una potencia de 10) que sea al
+     * menos el indicado.
+     * 
+     * @param raw
+     *            paso mínimo.
+     * @return paso redondo.
+     */
+    static double niceStep(double raw) {
+        double magnitude = Math.pow(10, Math.floor(Math.log10(raw)));
+        for (double multiple : new double[] { 1, 2, 5 }) {
+            if (raw <= multiple * magnitude) {
+                return multiple * magnitude;
+            }
+        }
+        return 10 * magnitude;
+    }
+
+    /**
+     * Escribe una coordenada con un decimal.
+     * 
+     * @param value
+     *            coordenada.
+     * @return texto.
+     */
+    private static String coord(double value) {
+        long tenths = Math.round(value * 10);
+        if (tenths % 10 == 0) {
+            return Long.toString(tenths / 10);
+        }
+        return (tenths < 0 ? "-" : "") + Math.abs(tenths) / 10 + '.'
+                + Math.abs(tenths) % 10;
+    }
+
+    /**
+     * Escapa los caracteres especiales de XML.
+     * 
+     * @param text
+     *            texto.
+     * @return texto escapado.
+     */
+    static String escape(String text) {
+        StringBuilder escaped = new StringBuilder(text.length() + 16);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+            case '&':
+                escaped.append("&amp;");
+                break;
+            case '<':
+                escaped.append("&lt;");
+                break;
+            case '>':
+                escaped.append("&gt;");
+                break;
+            case '\'':
+                escaped.append("&apos;");
+                break;
+            case '"':
+                escaped.append("&quot;");
+                break;
+            default:
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
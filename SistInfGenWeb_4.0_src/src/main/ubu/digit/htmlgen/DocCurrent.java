@@ -1,14 +1,13 @@
 package ubu.digit.htmlgen;
 
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.PrintStream;
-import java.io.UnsupportedEncodingException;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.log4j.Logger;
 
+import ubu.digit.pesistence.TableCursor;
 import ubu.digit.util.ExternalProperties;
 
 /**
@@ -63,11 +62,42 @@ public class DocCurrent extends DocSistInfHtml {
     private String[] titles = { "M&eacute;tricas",
             "Descripci&oacute;n de proyectos" };
 
+    /**
+     * Página de la tabla de proyectos que se genera, empezando por 1, o 0
+     * para la página completa.
+     */
+    private final int pagina;
+
     /**
      * Constructor vacío.
      */
     public DocCurrent() {
+        this(0);
+    }
+
+    /**
+     * Constructor de una de las páginas en las que se divide la tabla de
+     * proyectos.
+     * 
+     * @param pagina
+     *            Número de página, empezando por 1, o 0 para la página
+     *            completa.
+     */
+    private DocCurrent(int pagina) {
+        this.pagina = pagina;
+    }
+
+    @Override
+    public String getFileName() {
+        if (pagina > 0) {
+            return getPageFileName(NAMEFICH_ACTUALES, pagina);
+        }
+        return NAMEFICH_ACTUALES;
+    }
 
+    @Override
+    public String[] getTables() {
+        return new String[] { "Proyecto", "Alumno" };
     }
 
     /**
@@ -75,20 +105,15 @@ public class DocCurrent extends DocSistInfHtml {
      * ActualesSist.html.
      * <p>
      * Genera el fichero ActualesSist.html a partir de los datos en un fichero
-     * externo.
+     * externo y, si la tabla de proyectos se divide en páginas, los ficheros
+     * de cada página, que sólo contienen la tabla.
      * <p>
      * Dependencias sobre ./css/ubuSisInf.css, ./js/sorttable.js
      */
     @Override
     public void generate(int level) throws FileNotFoundException, SQLException {
 
-        try {
-            outHtml = new PrintStream(new FileOutputStream(NAMEFICH_ACTUALES),
-                    true, CHARSET);
-        } catch (UnsupportedEncodingException e) {
-            LOGGER.error("CHARSET: " + CHARSET
-                    + " no disponible en la máquina virtual", e);
-        }
+        openHtml(getFileName());
 
         outHtml.println("<!DOCTYPE html >");
         outHtml.println("<html lang=\"es\">");
@@ -100,8 +125,11 @@ public class DocCurrent extends DocSistInfHtml {
         outHtml.println("\t\t\t<div id='page'>");
         createMenuHtml(level);
 
-        createCurrentStadistic(titles[0]);
-        createCurrentTable(10, titles[1]);
+        if (pagina == 0) {
+            createCurrentStadistic(titles[0]);
+        }
+        int total = fachData.getTotalNumber("Titulo", "Proyecto").intValue();
+        int rows = createCurrentTable(10, titles[1], total);
 
         outHtml.println("\t\t\t\t</div>");
         outHtml.println("\t\t\t</div>");
@@ -111,6 +139,16 @@ public class DocCurrent extends DocSistInfHtml {
         outHtml.println("\t</body>");
         outHtml.println("</html>");
         outHtml.close();
+
+        if (pagina == 0) {
+            List<DocCurrent> paginas = new ArrayList<DocCurrent>();
+            for (int page = 1; ROWS_PER_PAGE > 0
+                    && page <= getPageCount(rows); page++) {
+                paginas.add(new DocCurrent(page));
+            }
+            generatePages(paginas, level);
+            removeExtraPages(paginas.size());
+        }
     }
 
     /**
@@ -161,23 +199,42 @@ public class DocCurrent extends DocSistInfHtml {
      *            Número de filas visibles por página.
      * @param title
      *            Título de la tabla.
+     * @param total
+     *            Número total de proyectos, para el índice de la tabla
+     *            completa.
+     * @return número de filas de la tabla, del que sale el número de páginas
+     *         si se divide.
      * @throws SQLException
      */
-    private void createCurrentTable(int nProyectPagina, String title)
+    private int createCurrentTable(int nProyectPagina, String title, int total)
             throws SQLException {
         outHtml.println("\t\t\t\t\t<section>");
         createSubTitleMenu(title);
 
-        createPageIndex(nProyectPagina,
-                fachData.getTotalNumber("Titulo", "Proyecto").intValue(), 'P');
-        ResultSet result = fachData.getResultSet("Proyecto", "Titulo");
+        TableCursor result = fachData.getResultSet("Proyecto", "Titulo");
+        // Las páginas se cuentan con las filas que se recorren
+        int rows = result.size();
+
+        // Filas de la página que se genera, todas si no se divide
+        int first = 0;
+        int last = Integer.MAX_VALUE;
+        if (ROWS_PER_PAGE > 0) {
+            int page = Math.max(pagina, 1);
+            first = (page - 1) * ROWS_PER_PAGE;
+            last = first + ROWS_PER_PAGE;
+            createPageLinks(NAMEFICH_ACTUALES, page, rows);
+        } else {
+            createPageIndex(nProyectPagina, total, 'P');
+        }
         outHtml.println(STR_WARN_TABLE_ORDENABLE);
         outHtml.println("\t\t\t\t\t\t<table class=\"sortable striped\">");
         this.createHeaderTable(CURRENTHEADER, "mdi-content-sort", "tiny", null);
         outHtml.println("\t\t\t\t\t\t<tbody>");
 
-        int i = 0;
-        while (result.next()) {
+        for (int i = 0; i < last && result.next(); i++) {
+            if (i < first) {
+                continue;
+            }
 
             outHtml.println("\t\t\t\t\t\t\t<tr id=\"P" + i
                     + "\"> <!-- Begin Proyecto-->");
@@ -217,19 +274,20 @@ public class DocCurrent extends DocSistInfHtml {
             outHtml.println("\t\t\t\t\t\t\t\t<td> "
                     + result.getString("CursoAsignacion") + "</td>");
             outHtml.println("\t\t\t\t\t\t\t</tr><!-- End Proyecto-->");
-
-            i++;
         }
 
         outHtml.println("\t\t\t\t\t\t</tbody>");
         outHtml.println("\t\t\t\t\t\t</table>");
         result.close();
 
-        createPageIndex(nProyectPagina,
-                fachData.getTotalNumber("Titulo", "Proyecto").intValue(), 'P');
+        if (ROWS_PER_PAGE > 0) {
+            createPageLinks(NAMEFICH_ACTUALES, Math.max(pagina, 1), rows);
+        } else {
+            createPageIndex(nProyectPagina, total, 'P');
+        }
 
         outHtml.println("\t\t\t\t\t</section>");
-
+        return rows;
     }
 
     /**
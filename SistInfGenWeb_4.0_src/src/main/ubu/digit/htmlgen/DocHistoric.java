@@ -1,20 +1,19 @@
 package ubu.digit.htmlgen;
 
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.PrintStream;
-import java.io.UnsupportedEncodingException;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.apache.log4j.Logger;
 
+import ubu.digit.pesistence.ColumnSummary;
+import ubu.digit.pesistence.CourseRange;
+import ubu.digit.pesistence.HistoricRecords;
+import ubu.digit.pesistence.TableCursor;
+import ubu.digit.stats.CourseStatistics;
+import ubu.digit.stats.YearBuckets;
 import ubu.digit.util.ExternalProperties;
 
 /**
@@ -72,33 +71,85 @@ public class DocHistoric extends DocSistInfHtml {
             "Descripci&oacute;n de proyectos" };
 
     /**
-     * Array borrador con los diferentes cursos.
+     * Proyectos del histórico.
      */
-    private Map<Integer, List> cursosBorr = new HashMap<Integer, List>();
+    private HistoricRecords registros;
 
     /**
      * Array definitivo con los diferentes cursos que tienen proyectos de nueva
      * asignación.
      */
-    private Map<Integer, List> cursosDefNuevos = new HashMap<Integer, List>();
+    private YearBuckets cursosDefNuevos = new YearBuckets();
 
     /**
      * Array definitivo con los diferentes cursos que tienen proyectos ya
      * asignados.
      */
-    private Map<Integer, List> cursosDefViejos = new HashMap<Integer, List>();
+    private YearBuckets cursosDefViejos = new YearBuckets();
 
     /**
      * Array con los cursos que tienen proyectos presentados.
      */
-    private Map<Integer, List> cursosAgrupadosPresentacion = new HashMap<Integer, List>();
+    private YearBuckets cursosAgrupadosPresentacion = new YearBuckets();
+
+    /**
+     * Intervalo de fechas de presentación del histórico. Se calcula una vez
+     * al comienzo de cada generación y lo comparten todos los cálculos por
+     * curso.
+     */
+    private CourseRange rangoCursos;
+
+    /**
+     * Estadísticas de cada curso, acumuladas en una sola pasada sobre los
+     * proyectos.
+     */
+    private CourseStatistics estadisticas;
+
+    /**
+     * Página de la tabla de proyectos que se genera, empezando por 1, o 0
+     * para la página completa.
+     */
+    private final int pagina;
+
+    /**
+     * Constructor de la página completa.
+     */
+    public DocHistoric() {
+        this(0);
+    }
+
+    /**
+     * Constructor de una de las páginas en las que se divide la tabla de
+     * proyectos.
+     * 
+     * @param pagina
+     *            Número de página, empezando por 1, o 0 para la página
+     *            completa.
+     */
+    private DocHistoric(int pagina) {
+        this.pagina = pagina;
+    }
+
+    @Override
+    public String getFileName() {
+        if (pagina > 0) {
+            return getPageFileName(NAME_FICH_HISTORICO, pagina);
+        }
+        return NAME_FICH_HISTORICO;
+    }
+
+    @Override
+    public String[] getTables() {
+        return new String[] { "Historico" };
+    }
 
     /**
      * Estrategia de generación del codigo html correspondiente a la página de
      * HistoricSist.html.
      * <p>
      * Genera el fichero HistoricSist.html a partir de los datos en un fichero
-     * externo.
+     * externo y, si la tabla de proyectos se divide en páginas, los ficheros
+     * de cada página, que sólo contienen la tabla.
      * <p>
      * Dependencias sobre ./css/ubuSisInf.css, ./js/sorttable.js
      * 
@@ -106,30 +157,34 @@ public class DocHistoric extends DocSistInfHtml {
     @Override
     public void generate(int level) throws FileNotFoundException, SQLException {
 
-        try {
-            outHtml = new PrintStream(
-                    new FileOutputStream(NAME_FICH_HISTORICO), true, CHARSET);
-        } catch (UnsupportedEncodingException e) {
-            LOGGER.error("CHARSET: " + CHARSET
-                    + " no disponible en la máquina virtual", e);
-        }
+        openHtml(getFileName());
 
         outHtml.println("<!DOCTYPE html >");
         outHtml.println("<html lang=\"es\">");
         outHtml.println("\t<head>");
 
         createHeaderHtml("Sistemas Inform&aacute;ticos");
-        calcularProyectos();
-        String funcion = "dibujar";
-        createFunction(funcion);
-        outHtml.println("\t</head>");
-        outHtml.println("\t<body onload=\"" + funcion + "()\">");
+        if (pagina == 0) {
+            rangoCursos = fachData.getCourseRange("FechaPresentacion",
+                    "Historico");
+            calcularProyectos();
+            String funcion = "dibujar";
+            createFunction(funcion);
+            outHtml.println("\t</head>");
+            outHtml.println("\t<body onload=\"" + funcion + "()\">");
+        } else {
+            outHtml.println("\t</head>");
+            outHtml.println("\t<body>");
+        }
         outHtml.println("\t\t<div id='page-wrapper'>");
         outHtml.println("\t\t\t<div id='page'>");
         createMenuHtml(level);
 
-        createHistoricStadistic(titles[0]);
-        createHistoricTable(10, titles[1]);
+        if (pagina == 0) {
+            createHistoricStadistic(titles[0]);
+        }
+        int total = fachData.getTotalNumber("Titulo", "Historico").intValue();
+        int rows = createHistoricTable(10, titles[1], total);
 
         outHtml.println("\t\t\t\t</div>");
         outHtml.println("\t\t\t</div>");
@@ -139,6 +194,16 @@ public class DocHistoric extends DocSistInfHtml {
         outHtml.println("\t</body>");
         outHtml.println("</html>");
         outHtml.close();
+
+        if (pagina == 0) {
+            List<DocHistoric> paginas = new ArrayList<DocHistoric>();
+            for (int page = 1; ROWS_PER_PAGE > 0
+                    && page <= getPageCount(rows); page++) {
+                paginas.add(new DocHistoric(page));
+            }
+            generatePages(paginas, level);
+            removeExtraPages(paginas.size());
+        }
     }
 
     /**
@@ -172,31 +237,21 @@ public class DocHistoric extends DocSistInfHtml {
         outHtml.println("\t\t\t\t\t\t\t\t\t<td>N&uacute;mero Total de Alumnos: "
                 + numberFormat.format(totalAlumnos) + " </td>");
 
+        ColumnSummary notas = fachData.getSummary("Nota", "Historico");
         outHtml.print("\t\t\t\t\t\t\t\t\t<td>Calificaci&oacute;n (media,min,max,stdv):<p></p> ("
-                + numberFormat.format(fachData
-                        .getAvgColumn("Nota", "Historico")));
-        outHtml.print(", "
-                + numberFormat.format(fachData
-                        .getMinColumn("Nota", "Historico")));
-        outHtml.print(", "
-                + numberFormat.format(fachData
-                        .getMaxColumn("Nota", "Historico")));
-        outHtml.println(", "
-                + numberFormat.format(fachData.getStdvColumn("Nota",
-                        "Historico")) + ") </td>");
+                + numberFormat.format(notas.getMean()));
+        outHtml.print(", " + numberFormat.format(notas.getMin()));
+        outHtml.print(", " + numberFormat.format(notas.getMax()));
+        outHtml.println(", " + numberFormat.format(notas.getStdev())
+                + ") </td>");
 
+        ColumnSummary dias = fachData.getSummary("TotalDias", "Historico");
         outHtml.print("\t\t\t\t\t\t\t\t\t<td>Tiempo/d&iacute;as (media,min,max,stdv):<p></p> ("
-                + numberFormat.format(fachData.getAvgColumn("TotalDias",
-                        "Historico")));
-        outHtml.print(", "
-                + numberFormat.format(fachData.getMinColumn("TotalDias",
-                        "Historico")));
-        outHtml.print(", "
-                + numberFormat.format(fachData.getMaxColumn("TotalDias",
-                        "Historico")));
-        outHtml.println(", "
-                + numberFormat.format(fachData.getStdvColumn("TotalDias",
-                        "Historico")) + ") </td>");
+                + numberFormat.format(dias.getMean()));
+        outHtml.print(", " + numberFormat.format(dias.getMin()));
+        outHtml.print(", " + numberFormat.format(dias.getMax()));
+        outHtml.println(", " + numberFormat.format(dias.getStdev())
+                + ") </td>");
 
         outHtml.println("\t\t\t\t\t\t\t\t</tr>");
 
@@ -214,27 +269,21 @@ public class DocHistoric extends DocSistInfHtml {
      * estadística.
      * <p>
      * Dependencias sobre ./css/ubuSisInf.css
-     * 
-     * @throws SQLException
      */
-    private void createGlobalStadisticLine() throws SQLException {
+    private void createGlobalStadisticLine() {
         outHtml.println("\t\t\t\t\t\t\t\t<tr>");
 
-        int keyMin = obtenerCurso(true).get(Calendar.YEAR);
-        int keyMax = obtenerCurso(false).get(Calendar.YEAR);
-
         List<Number> nTotalProject = new ArrayList<Number>();
         List<Number> nTotalProjectPresented = new ArrayList<Number>();
         List<Number> nTotalAlumnos = new ArrayList<Number>();
         List<Number> nTotalTutores = new ArrayList<Number>();
 
-        while (keyMin < keyMax) {
-            nTotalProject.add(cursosDefNuevos.get(keyMin).size());
-            nTotalAlumnos.add(calcularCountAlumnos().get(keyMin));
-            nTotalTutores.add(calcularCountTutores().get(keyMin));
-            nTotalProjectPresented.add(calcularProyectosPresentados().get(
-                    keyMin));
-            keyMin++;
+        for (int curso = estadisticas.getMinYear(); curso < estadisticas
+                .getMaxYear(); curso++) {
+            nTotalProject.add(estadisticas.getNewProjects(curso));
+            nTotalAlumnos.add(estadisticas.getStudents(curso));
+            nTotalTutores.add(estadisticas.getTutors(curso));
+            nTotalProjectPresented.add(estadisticas.getPresented(curso));
         }
 
         outHtml.println("\t\t\t\t\t\t\t\t\t<td>N&uacute;mero Total de Proyectos Asignados por Curso:<br/> "
@@ -269,28 +318,42 @@ public class DocHistoric extends DocSistInfHtml {
     }
 
     /**
-     * Método que recoge los datos de la base de datos y los prepara para la
-     * creación de la tabla de históricos.
+     * Método que recorre una única vez los proyectos ya colocados en sus
+     * cursos y acumula las estadísticas de cada curso: proyectos nuevos y ya
+     * asignados, alumnos, tutores, proyectos presentados, notas y días.
+     */
+    private void agregarCursos() {
+        int cursoMin = rangoCursos.getMinYear();
+        int cursoMax = rangoCursos.getMaxYear();
+        estadisticas = new CourseStatistics(cursoMin, cursoMax);
+
+        for (int curso = cursoMin; curso < cursoMax; curso++) {
+            YearBuckets.Bucket nuevos = cursosDefNuevos.get(curso);
+            for (int index = 0; index < nuevos.size(); index++) {
+                int current = nuevos.get(index);
+                estadisticas.addNew(curso, registros.getStudentCount(current),
+                        registros.getTutorCount(current),
+                        registros.getGrade(current),
+                        registros.getDays(current));
+            }
+            for (int index = 0; index < cursosDefViejos.size(curso); index++) {
+                estadisticas.addCarriedOver(curso);
+            }
+            for (int index = 0; index < cursosAgrupadosPresentacion
+                    .size(curso); index++) {
+                estadisticas.addPresented(curso);
+            }
+        }
+    }
+
+    /**
+     * Método que prepara los datos de la gráfica de proyectos, alumnos y
+     * tutores por curso.
      * 
-     * @param nTotalProjectNuevos
-     *            Proyectos de nueva asignación.
-     * @param nTotalProjectViejos
-     *            Proyectos ya asignados en cursos anteriores.
-     * @param nTotalAlumnos
-     *            Número total de alumnos.
-     * @param nTotalTutores
-     *            Número total de tutores.
-     * @param cursos
-     *            Listado con los cursos transcurridos desde el primer proyecto
-     *            del histórico hasta el último.
      * @return Listado de todos los datos necesarios para la creación de la
-     *         tabla.
+     *         gráfica.
      */
-    private List<List> crearArrayGrafica(
-            Map<Integer, Number> nTotalProjectNuevos,
-            Map<Integer, Number> nTotalProjectViejos,
-            Map<Integer, Number> nTotalAlumnos,
-            Map<Integer, Number> nTotalTutores, List<Integer> cursos) {
+    private List<List> createArrayStadisticLineGrafica() {
         List<String> metricsName = new ArrayList<String>();
         metricsName.add("'Año'");
         metricsName.add("'Proyectos nuevos'");
@@ -300,49 +363,27 @@ public class DocHistoric extends DocSistInfHtml {
 
         List<List> data = new ArrayList<List>();
         data.add(metricsName);
-        int keyMin = cursos.get(0);
-        int keyMax = cursos.get(cursos.size() - 1);
-        int index = 0;
-        while (keyMin <= keyMax) {
+        for (int curso = estadisticas.getMinYear(); curso < estadisticas
+                .getMaxYear(); curso++) {
             List<String> listData = new ArrayList<String>();
-            int cur = cursos.get(index) - 1;
-            listData.add('\'' + String.valueOf(cur) + '/'
-                    + cursos.get(index).toString() + '\'');
-            if (nTotalProjectNuevos.containsKey(keyMin)) {
-                listData.add(nTotalProjectNuevos.get(keyMin).toString());
-            }
-            if (nTotalProjectViejos.containsKey(keyMin)) {
-                listData.add(nTotalProjectViejos.get(keyMin).toString());
-            }
-            if (nTotalAlumnos.containsKey(keyMin)) {
-                listData.add(nTotalAlumnos.get(keyMin).toString());
-            }
-            if (nTotalTutores.containsKey(keyMin)) {
-                listData.add(nTotalTutores.get(keyMin).toString());
-            }
+            listData.add(etiquetaCurso(curso));
+            listData.add(String.valueOf(estadisticas.getNewProjects(curso)));
+            listData.add(String.valueOf(estadisticas.getCarriedOver(curso)));
+            listData.add(String.valueOf(estadisticas.getStudents(curso)));
+            listData.add(String.valueOf(estadisticas.getTutors(curso)));
             data.add(listData);
-            keyMin++;
-            index++;
         }
         return data;
     }
 
     /**
-     * Método que recoge los datos de la base de datos y los prepara para la
-     * creación de la tabla de históricos.
+     * Método que prepara los datos de la gráfica de medias de notas y meses
+     * por curso.
      * 
-     * @param nMediaNotas
-     *            Media de las notas de los proyectos.
-     * @param nMediaMeses
-     *            Media de los meses dedicados en los proyectos.
-     * @param cursos
-     *            Listado con los cursos transcurridos desde el primer proyecto
-     *            del histórico hasta el último.
      * @return Listado de todos los datos necesarios para la creación de la
-     *         tabla.
+     *         gráfica.
      */
-    private List<List> crearArrayMedias(Map<Integer, Number> nMediaNotas,
-            Map<Integer, Number> nMediaMeses, List<Integer> cursos) {
+    private List<List> createArrayStadisticLineMedia() {
         List<String> medias = new ArrayList<String>(2);
         medias.add("'Año'");
         medias.add("'Media Aritmetica Notas'");
@@ -350,292 +391,38 @@ public class DocHistoric extends DocSistInfHtml {
 
         List<List> data = new ArrayList<List>();
         data.add(medias);
-
-        int keyMin = cursos.get(0);
-        int keyMax = cursos.get(cursos.size() - 1);
-        int index = 0;
-
-        while (keyMin <= keyMax) {
+        for (int curso = estadisticas.getMinYear(); curso < estadisticas
+                .getMaxYear(); curso++) {
             List<String> listMedias = new ArrayList<String>();
-            int cur = cursos.get(index) - 1;
-            listMedias.add('\'' + String.valueOf(cur) + '/'
-                    + cursos.get(index).toString() + '\'');
-            if (nMediaNotas.containsKey(keyMin)) {
-                listMedias.add(nMediaNotas.get(keyMin).toString());
-            }
-            if (nMediaMeses.containsKey(keyMin)) {
-                listMedias.add(nMediaMeses.get(keyMin).toString());
-            }
+            listMedias.add(etiquetaCurso(curso));
+            listMedias.add(String.valueOf(estadisticas.getAvgGrade(curso)));
+            float meses = (float) estadisticas.getAvgDays(curso) / 31;
+            listMedias.add(String.valueOf(meses));
             data.add(listMedias);
-            keyMin++;
-            index++;
         }
         return data;
     }
 
     /**
-     * Método que calcula la media aritmética del tiempo que llevó terminar el
-     * proyecto.
-     * 
-     * @return Una tabla ordenada por cursos con cada media.
-     * @throws SQLException
-     */
-    private Map<Integer, Number> calcularAvgDias() throws SQLException {
-        int keyMin = obtenerCurso(true).get(Calendar.YEAR);
-        int keyMax = obtenerCurso(false).get(Calendar.YEAR);
-        Map<Integer, Number> nMediaFechas = new HashMap<Integer, Number>();
-        while (keyMin < keyMax) {
-            List current = new ArrayList();
-            double media = 0;
-            if (cursosDefNuevos.containsKey(keyMin)) {
-                for (int index = 0; index < cursosDefNuevos.get(keyMin).size(); index++) {
-                    current = (List) cursosDefNuevos.get(keyMin).get(index);
-                    int dias = (int) current.get(2);
-                    media += dias;
-                }
-            }
-            media = media / cursosDefNuevos.get(keyMin).size();
-            nMediaFechas.put(keyMin, media);
-            keyMin++;
-        }
-
-        return nMediaFechas;
-    }
-
-    /**
-     * Método que calcula la media aritmética de las notas
-     * 
-     * @return Una tabla ordenada por cursos con cada media.
-     * @throws SQLException
-     */
-    private Map<Integer, Number> calcularAvgNotas() throws SQLException {
-        int keyMin = obtenerCurso(true).get(Calendar.YEAR);
-        int keyMax = obtenerCurso(false).get(Calendar.YEAR);
-        Map<Integer, Number> nMediaNotas = new HashMap<Integer, Number>();
-        while (keyMin < keyMax) {
-            List current = new ArrayList();
-            double media = 0;
-            if (cursosDefNuevos.containsKey(keyMin)) {
-                for (int index = 0; index < cursosDefNuevos.get(keyMin).size(); index++) {
-                    current = (List) cursosDefNuevos.get(keyMin).get(index);
-                    double dias = (double) current.get(3);
-                    media += dias;
-                }
-            }
-            media = media / cursosDefNuevos.get(keyMin).size();
-            nMediaNotas.put(keyMin, media);
-            keyMin++;
-        }
-        return nMediaNotas;
-    }
-
-    /**
-     * Método que calcula el total de alumnos con proyectos asignados.
-     * 
-     * @return Una tabla ordenada por cursos con cada total de alumnos.
-     * @throws SQLException
-     */
-    private Map<Integer, Number> calcularCountAlumnos() throws SQLException {
-        int keyMin = obtenerCurso(true).get(Calendar.YEAR);
-        int keyMax = obtenerCurso(false).get(Calendar.YEAR);
-        Map<Integer, Number> nCountAlumnos = new HashMap<Integer, Number>();
-        while (keyMin < keyMax) {
-            List current = new ArrayList();
-            int alumnos = 0;
-            if (cursosDefNuevos.containsKey(keyMin)) {
-                for (int index = 0; index < cursosDefNuevos.get(keyMin).size(); index++) {
-                    current = (List) cursosDefNuevos.get(keyMin).get(index);
-                    if (!"".equals(current.get(4)) && current.get(4) != null) {
-                        alumnos++;
-                    }
-                    if (!"".equals(current.get(5)) && current.get(5) != null) {
-                        alumnos++;
-                    }
-                    if (!"".equals(current.get(6)) && current.get(6) != null) {
-                        alumnos++;
-                    }
-                }
-            }
-            nCountAlumnos.put(keyMin, alumnos);
-            keyMin++;
-        }
-        return nCountAlumnos;
-    }
-
-    /**
-     * Método que calcula el total de tutores con proyectos asignados.
-     * 
-     * @return Una tabla ordenada por cursos con cada total de tutores.
-     * @throws SQLException
-     */
-    private Map<Integer, Number> calcularCountTutores() throws SQLException {
-        int keyMin = obtenerCurso(true).get(Calendar.YEAR);
-        int keyMax = obtenerCurso(false).get(Calendar.YEAR);
-        Map<Integer, Number> nCountTutores = new HashMap<Integer, Number>();
-        while (keyMin < keyMax) {
-            List current = new ArrayList();
-            int tutores = 0;
-            if (cursosDefNuevos.containsKey(keyMin)) {
-                for (int index = 0; index < cursosDefNuevos.get(keyMin).size(); index++) {
-                    current = (List) cursosDefNuevos.get(keyMin).get(index);
-                    if (!"".equals(current.get(7)) && current.get(7) != null) {
-                        tutores++;
-                    }
-                    if (!"".equals(current.get(8)) && current.get(8) != null) {
-                        tutores++;
-                    }
-                    if (!"".equals(current.get(9)) && current.get(9) != null) {
-                        tutores++;
-                    }
-                }
-            }
-            nCountTutores.put(keyMin, tutores);
-            keyMin++;
-        }
-        return nCountTutores;
-    }
-
-    /**
-     * Método que ordena y obtiene los proyectos presentados según el curso.
-     * 
-     * @return Una tabla ordenada por cursos con los proyectos presentados.
-     * @throws SQLException
-     */
-    private Map<Integer, Number> calcularProyectosPresentados()
-            throws SQLException {
-        int cursoMin = obtenerCurso(true).get(Calendar.YEAR);
-        int cursoMax = obtenerCurso(false).get(Calendar.YEAR);
-        Map<Integer, Number> hTotalProjectPresented = new HashMap<Integer, Number>();
-        while (cursoMin < cursoMax) {
-            List current = new ArrayList();
-            Number presentados = 0;
-            if (cursosAgrupadosPresentacion.containsKey(cursoMin)) {
-                for (int index = 0; index < cursosAgrupadosPresentacion.get(
-                        cursoMin).size(); index++) {
-                    current = (List) cursosAgrupadosPresentacion.get(cursoMin)
-                            .get(index);
-                    if (current.get(1) != null && !"".equals(current.get(1))) {
-                        presentados = presentados.intValue() + 1;
-                    }
-                }
-            }
-            hTotalProjectPresented.put(cursoMin, presentados);
-            cursoMin++;
-        }
-        return hTotalProjectPresented;
-    }
-
-    /**
-     * Método que recoge los datos para la creación de la tabla de históricos.
-     * 
-     * @return Listado de todos los datos necesarios para la creación de la
-     *         tabla.
-     * @throws SQLException
-     */
-    private List<List> createArrayStadisticLineGrafica() throws SQLException {
-
-        Map<Integer, Number> nTotalProjectNuevos = new HashMap<Integer, Number>();
-        Map<Integer, Number> nTotalProjectViejos = new HashMap<Integer, Number>();
-        List<Integer> cursos = new ArrayList<Integer>();
-
-        int cursoMin = obtenerCurso(true).get(Calendar.YEAR);
-        int cursoMax = obtenerCurso(false).get(Calendar.YEAR);
-
-        while (cursoMin < cursoMax) {
-            cursos.add(cursoMin);
-            int totalNuevos = 0;
-            int totalViejos = 0;
-
-            totalNuevos += cursosDefNuevos.get(cursoMin).size();
-            if (cursosDefViejos.containsKey(cursoMin)) {
-                totalViejos += cursosDefViejos.get(cursoMin).size();
-            }
-            nTotalProjectNuevos.put(cursoMin, totalNuevos);
-            nTotalProjectViejos.put(cursoMin, totalViejos);
-            cursoMin++;
-        }
-
-        Map<Integer, Number> nTotalAlumnos = calcularCountAlumnos();
-
-        Map<Integer, Number> nTotalTutores = calcularCountTutores();
-
-        return crearArrayGrafica(nTotalProjectNuevos, nTotalProjectViejos,
-                nTotalAlumnos, nTotalTutores, cursos);
-    }
-
-    /**
-     * Método que recoge los datos para la creación de la tabla de históricos de
-     * medias.
-     * 
-     * @return Listado de todos los datos necesarios para la creación de la
-     *         tabla.
-     * @throws SQLException
-     */
-    private List<List> createArrayStadisticLineMedia() throws SQLException {
-
-        List<Integer> cursos = new ArrayList<Integer>();
-        int cursoMin = obtenerCurso(true).get(Calendar.YEAR);
-        int cursoMax = obtenerCurso(false).get(Calendar.YEAR);
-
-        while (cursoMin < cursoMax) {
-            cursos.add(cursoMin);
-            cursoMin++;
-        }
-
-        Map<Integer, Number> nMediaNotas = calcularAvgNotas();
-        Map<Integer, Number> nMediaDias = calcularAvgDias();
-        Map<Integer, Number> nMediaMeses = new HashMap<Integer, Number>();
-
-        cursoMin = obtenerCurso(true).get(Calendar.YEAR);
-        for (int index = cursoMin; index < cursoMax; index++) {
-            Number n = nMediaDias.get(index);
-            nMediaMeses.put(index, n.floatValue() / 31);
-            cursoMin++;
-        }
-        return crearArrayMedias(nMediaNotas, nMediaMeses, cursos);
-    }
-
-    /**
-     * Método que obtiene el curso mínimo o máximo según el booleano que se le
-     * pase.
-     * 
-     * @param minimo
-     *            booleano que nos dice si será mínimo o máximo.
-     * @return la fecha con el curso mínimo o máximo.
-     * @throws SQLException
+     * @param curso
+     *            Curso, identificado por el año en que termina.
+     * @return Etiqueta del curso para las gráficas, por ejemplo '2002/2003'.
      */
-    private Calendar obtenerCurso(Boolean minimo) throws SQLException {
-
-        if (minimo) {
-            Calendar minFech = Calendar.getInstance();
-            Long minMilis = fachData.getYear("FechaPresentacion", "Historico",
-                    true).getTime();
-            minFech.setTimeInMillis(minMilis);
-            return minFech;
-        } else if (!minimo) {
-            Calendar maxFech = Calendar.getInstance();
-            Long maxMilis = fachData.getYear("FechaPresentacion", "Historico",
-                    false).getTime();
-            maxFech.setTimeInMillis(maxMilis);
-            return maxFech;
-        }
-        return null;
+    private static String etiquetaCurso(int curso) {
+        return '\'' + String.valueOf(curso - 1) + '/' + String.valueOf(curso)
+                + '\'';
     }
 
     /**
-     * Método que guarda todas fechas de asignación y presentación ordenadas por
-     * curso.
+     * Método que carga los proyectos del histórico y los coloca en sus
+     * respectivos cursos.
      * 
      * @throws SQLException
      */
     private void calcularProyectos() throws SQLException {
-        int curso = obtenerCurso(true).get(Calendar.YEAR);
-        for (int index = curso; index < obtenerCurso(false).get(Calendar.YEAR) + 1; index++) {
-            cursosBorr.put(index, fachData.getProjectsCurso("FechaAsignacion",
-                    "FechaPresentacion", "TotalDias", "Nota", "Historico",
-                    index));
-        }
+        registros = fachData.getHistoricRecords("Historico");
         prepararProyectos();
+        agregarCursos();
     }
 
     /**
@@ -644,29 +431,22 @@ public class DocHistoric extends DocSistInfHtml {
      * curso y si el proyecto se asignado antes de septiembre o después, ya que
      * corresponde a un curso más. La llave es la que define el curso, por
      * ejemplo si la llave es 2003 el curso es 2002-2003.
-     * 
-     * @throws SQLException
      */
-    private void prepararProyectos() throws SQLException {
-        int keyMin = obtenerCurso(true).get(Calendar.YEAR);
-        int keyMax = obtenerCurso(false).get(Calendar.YEAR);
+    private void prepararProyectos() {
+        int keyMin = rangoCursos.getMinYear();
+        int keyMax = rangoCursos.getMaxYear();
+        int mesInicio = Integer.parseInt(prop.getSetting("mesInicio"));
+        int diaInicio = Integer.parseInt(prop.getSetting("diaInicio"));
         while (keyMin < keyMax) {
-            List current = new ArrayList();
-            for (int index = 0; index < cursosBorr.get(keyMin).size(); index++) {
-                current = (ArrayList) cursosBorr.get(keyMin).get(index);
-                Calendar asig = Calendar.getInstance();
-                asig.setTime((Date) current.get(0));
-                Calendar sept = Calendar.getInstance();
-                sept.set(keyMin,
-                        Integer.parseInt(prop.getSetting("mesInicio")),
-                        Integer.parseInt(prop.getSetting("diaInicio")));
-                int dias = (int) current.get(2);
-                int caso = dias / 360;
+            int inicio = HistoricRecords.toEpochDay(keyMin, mesInicio,
+                    diaInicio);
+            for (int current : registros.getRecordsOfYear(keyMin)) {
+                int caso = registros.getDays(current) / 360;
 
                 // Comprobamos que la asignación fue realizada antes de la fecha
                 // de inicio que hay en el fichero de configuración, ya que si
                 // fue después tiene que ir en ese nuevo curso.
-                if (asig.getTime().before(sept.getTime())) {
+                if (registros.getAssigned(current) <= inicio) {
                     for (int i = 0; i <= caso; i++) {
                         construirProyectosDef(keyMin, i, current, true);
                     }
@@ -683,23 +463,6 @@ public class DocHistoric extends DocSistInfHtml {
         }
     }
 
-    /**
-     * Método auxiliar que construye el array para introducir los datos
-     * correctamente en el mapa.
-     * 
-     * @param defin
-     *            Proyecto actual.
-     * @return Devuelve los proyectos en una estructura correcta.
-     */
-    private List<List> construirArray(List<List> defin) {
-        List<List> aux = new ArrayList<List>();
-        for (int index = 0; index < defin.size(); index++) {
-            aux.add(defin.get(index));
-        }
-        return aux;
-
-    }
-
     /**
      * Método auxiliar que añade los proyectos a su respectivo curso, teniendo
      * en cuenta la fecha de presentación de este.
@@ -708,24 +471,14 @@ public class DocHistoric extends DocSistInfHtml {
      *            Proyecto actual.
      */
 
-    private void construirPresentados(List current) {
-        Calendar pres = Calendar.getInstance();
-        pres.setTime((Date) current.get(1));
-
-        Calendar sept = Calendar.getInstance();
-        sept.set(pres.get(Calendar.YEAR), Calendar.OCTOBER, 1);
-        if (pres.getTime().before(sept.getTime())) {
-            if (cursosAgrupadosPresentacion
-                    .containsKey(pres.get(Calendar.YEAR))) {
-                List aux = construirArray(cursosAgrupadosPresentacion.get(pres
-                        .get(Calendar.YEAR)));
-                aux.add(current);
-                cursosAgrupadosPresentacion.put(pres.get(Calendar.YEAR), aux);
-            } else {
-                List aux = new ArrayList();
-                aux.add(current);
-                cursosAgrupadosPresentacion.put(pres.get(Calendar.YEAR), aux);
-            }
+    private void construirPresentados(int current) {
+        int pres = registros.getPresented(current);
+        if (pres == HistoricRecords.NO_DATE) {
+            return;
+        }
+        int year = HistoricRecords.yearOf(pres);
+        if (pres <= HistoricRecords.toEpochDay(year, Calendar.OCTOBER, 1)) {
+            cursosAgrupadosPresentacion.add(year, current);
         }
     }
 
@@ -743,7 +496,7 @@ public class DocHistoric extends DocSistInfHtml {
      *            True si el proyecto se corresponde con key, false si es de un
      *            curso más.
      */
-    private void construirProyectosDef(int key, int i, List current,
+    private void construirProyectosDef(int key, int i, int current,
             boolean cursoActual) {
         int antes = 0;
         if (!cursoActual) {
@@ -752,25 +505,9 @@ public class DocHistoric extends DocSistInfHtml {
         // Si es la segunda vez que pasa, es que el proyecto dura más de un
         // curso.
         if (i == 0) {
-            if (cursosDefNuevos.containsKey(key + antes)) {
-                List aux = construirArray(cursosDefNuevos.get(key + antes));
-                aux.add(current);
-                cursosDefNuevos.put(key + antes, aux);
-            } else {
-                List aux = new ArrayList();
-                aux.add(current);
-                cursosDefNuevos.put(key + antes, aux);
-            }
+            cursosDefNuevos.add(key + antes, current);
         } else {
-            if (cursosDefViejos.containsKey(key + i + antes)) {
-                List aux = construirArray(cursosDefViejos.get(key + i + antes));
-                aux.add(current);
-                cursosDefViejos.put(key + i + antes, aux);
-            } else {
-                List aux = new ArrayList();
-                aux.add(current);
-                cursosDefViejos.put(key + i + antes, aux);
-            }
+            cursosDefViejos.add(key + i + antes, current);
         }
     }
 
@@ -782,26 +519,45 @@ public class DocHistoric extends DocSistInfHtml {
      *            Número de filas visibles por página.
      * @param title
      *            Título de la tabla.
+     * @param total
+     *            Número total de proyectos, para el índice de la tabla
+     *            completa.
+     * @return número de filas de la tabla, del que sale el número de páginas
+     *         si se divide.
      * @throws ClassNotFoundException
      * @throws SQLException
      */
-    private void createHistoricTable(int nProyectPagina, String title)
-            throws SQLException {
+    private int createHistoricTable(int nProyectPagina, String title,
+            int total) throws SQLException {
         outHtml.println("\t\t\t\t\t<section>");
         createSubTitleMenu(title);
 
-        createPageIndex(nProyectPagina,
-                fachData.getTotalNumber("Titulo", "Historico").intValue(), 'P');
+        TableCursor result = fachData.getResultSet("Historico", "Titulo");
+        // Las páginas se cuentan con las filas que se recorren
+        int rows = result.size();
+
+        // Filas de la página que se genera, todas si no se divide
+        int first = 0;
+        int last = Integer.MAX_VALUE;
+        if (ROWS_PER_PAGE > 0) {
+            int page = Math.max(pagina, 1);
+            first = (page - 1) * ROWS_PER_PAGE;
+            last = first + ROWS_PER_PAGE;
+            createPageLinks(NAME_FICH_HISTORICO, page, rows);
+        } else {
+            createPageIndex(nProyectPagina, total, 'P');
+        }
 
-        ResultSet result = fachData.getResultSet("Historico", "Titulo");
         outHtml.println(STR_WARN_TABLE_ORDENABLE);
         outHtml.println("\t\t\t\t\t\t<table class=\"sortable striped\">");
         this.createHeaderTable(HISTORICOHEADER, "mdi-content-sort", "tiny",
                 null);
         outHtml.println("\t\t\t\t\t\t\t<tbody>");
 
-        int i = 0;
-        while (result.next()) {
+        for (int i = 0; i < last && result.next(); i++) {
+            if (i < first) {
+                continue;
+            }
             // impar
 
             outHtml.println("\t\t\t\t\t\t\t\t<tr id=\"P" + i
@@ -842,16 +598,18 @@ public class DocHistoric extends DocSistInfHtml {
             outHtml.println("\t\t\t\t\t\t\t\t\t<td> "
                     + result.getString("Nota").replaceAll(",", ".") + "</td>");
             outHtml.println("\t\t\t\t\t\t\t\t</tr><!-- End Proyecto-->");
-
-            i++;
         }
         outHtml.println("\t\t\t\t\t\t\t</tbody>");
         outHtml.println("\t\t\t\t\t\t</table>");
         result.close();
-        createPageIndex(nProyectPagina,
-                fachData.getTotalNumber("Titulo", "Historico").intValue(), 'P');
+        if (ROWS_PER_PAGE > 0) {
+            createPageLinks(NAME_FICH_HISTORICO, Math.max(pagina, 1), rows);
+        } else {
+            createPageIndex(nProyectPagina, total, 'P');
+        }
 
         outHtml.println("\t\t\t\t\t</section>");
+        return rows;
     }
 
     /**
@@ -1,14 +1,11 @@
 package ubu.digit.htmlgen;
 
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.PrintStream;
-import java.io.UnsupportedEncodingException;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 
 import org.apache.log4j.Logger;
 
+import ubu.digit.pesistence.TableCursor;
 import ubu.digit.util.ExternalProperties;
 
 /**
@@ -61,6 +58,16 @@ public class DocIndex extends DocSistInfHtml {
 
     }
 
+    @Override
+    public String getFileName() {
+        return NAME_FICH_INDEX;
+    }
+
+    @Override
+    public String[] getTables() {
+        return new String[] { "Tribunal", "Norma", "Documento" };
+    }
+
     /**
      * Estrategia de generación del código html correspondiente a la página de
      * index.html. Genera el fichero index.html a partir de los datos en un
@@ -70,13 +77,7 @@ public class DocIndex extends DocSistInfHtml {
      */
     @Override
     public void generate(int level) throws FileNotFoundException, SQLException {
-        try {
-            outHtml = new PrintStream(new FileOutputStream(NAME_FICH_INDEX),
-                    true, CHARSET);
-        } catch (UnsupportedEncodingException e) {
-            LOGGER.error("CHARSET: " + CHARSET
-                    + " no disponible en la máquina virtual", e);
-        }
+        openHtml(NAME_FICH_INDEX);
 
         outHtml.println("<!DOCTYPE html >");
         outHtml.println("<html lang=\"es\">");
@@ -132,7 +133,7 @@ public class DocIndex extends DocSistInfHtml {
      * @throws SQLException
      */
     private void createDocumentos() throws SQLException {
-        ResultSet result = fachData.getResultSet("Documento", "Descripcion");
+        TableCursor result = fachData.getResultSet("Documento", "Descripcion");
 
         outHtml.println("\t\t\t\t\t\t<ol class='ldoc'>");
         while (result.next()) {
@@ -177,7 +178,7 @@ public class DocIndex extends DocSistInfHtml {
      * @throws SQLException
      */
     private void createNormas() throws SQLException {
-        ResultSet result = fachData.getResultSet("Norma", "Descripcion");
+        TableCursor result = fachData.getResultSet("Norma", "Descripcion");
 
         outHtml.println("\t\t\t\t\t\t<ol class='lnorm'>");
         while (result.next()) {
@@ -202,7 +203,7 @@ public class DocIndex extends DocSistInfHtml {
         outHtml.println("\t\t\t\t\t\t<table>");
         outHtml.println("\t\t\t\t\t\t\t<tr><td style='text-align:center' rowspan=\"6\"> <i class='large mdi-action-account-child'></i></td></tr>");
 
-        ResultSet result = fachData.getResultSet("Tribunal", "NombreApellidos");
+        TableCursor result = fachData.getResultSet("Tribunal", "NombreApellidos");
 
         while (result.next()) {
             String cargo = result.getString("Cargo");
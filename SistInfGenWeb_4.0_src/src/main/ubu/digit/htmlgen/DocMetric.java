@@ -1,16 +1,22 @@
 package ubu.digit.htmlgen;
 
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.PrintStream;
-import java.io.UnsupportedEncodingException;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 
+import ubu.digit.graph.BoxPlotSprite;
 import ubu.digit.graph.GraphGenerator;
+import ubu.digit.pesistence.ColumnSummary;
+import ubu.digit.pesistence.TableCursor;
 import ubu.digit.util.ExternalProperties;
 import ubu.digit.util.ThresHold;
 
@@ -55,6 +61,18 @@ public class DocMetric extends DocSistInfHtml {
     protected static final String NAME_FICH_METRIC = DIROUT
             + "\\MetricSist.html";
 
+    /**
+     * Vídeo tutorial de SourceMonitor que se incluye en la página.
+     */
+    private static final String VIDEOTUTORIAL_SOURCEMONITOR = DIROUT
+            + "\\html\\videotutorialsourcemonitor.html";
+
+    /**
+     * Vídeo tutorial de CodeEval que se incluye en la página.
+     */
+    private static final String VIDEOTUTORIAL_CODEEVAL = DIROUT
+            + "\\html\\videotutorialcodeeval.html";
+
     /**
      * Conjunto de valores visibles
      */
@@ -98,6 +116,23 @@ public class DocMetric extends DocSistInfHtml {
      */
     private Number[] medsUBU;
 
+    /**
+     * Gráficos de la página que se están dibujando mientras se genera.
+     */
+    private final List<Future<?>> charts = new ArrayList<Future<?>>();
+
+    /**
+     * Gráficos de caja y bigotes que se dibujan en una sola imagen, o null si
+     * cada gráfico tiene su propia imagen.
+     */
+    private BoxPlotSprite sprite;
+
+    /**
+     * Valores de cada métrica numérica en la tabla MetricaValores, leídos en
+     * una sola pasada mientras se genera la tabla de intervalos.
+     */
+    private Map<String, double[]> metricValues;
+
     /**
      * Cabecera de la tabla de cobertura globales de proyectos
      */
@@ -167,7 +202,7 @@ public class DocMetric extends DocSistInfHtml {
         metricValoreHeader[0] = " ";
         metricValoresOHeaderToolTip[0] = " M0 + M1";
 
-        ResultSet result = fachData.getResultSet("MetricaDescripcion", "Id",
+        TableCursor result = fachData.getResultSet("MetricaDescripcion", "Id",
                 "Visible='true'");
         int indexHeader = 1, indexSelect = 0;
         while (result.next()) {
@@ -189,6 +224,29 @@ public class DocMetric extends DocSistInfHtml {
         metricValoresOHeaderToolTip[indexHeader] = "Cobertura  Tool";
     }
 
+    @Override
+    public String getFileName() {
+        return NAME_FICH_METRIC;
+    }
+
+    @Override
+    public String[] getTables() {
+        return new String[] { "MetricaDescripcion", "MetricaValores",
+                "DescripcionExperimento" };
+    }
+
+    /**
+     * Además de los scripts comunes, la página incluye los vídeo tutoriales.
+     */
+    @Override
+    public String[] getResources() {
+        String[] common = super.getResources();
+        String[] resources = Arrays.copyOf(common, common.length + 2);
+        resources[common.length] = VIDEOTUTORIAL_SOURCEMONITOR;
+        resources[common.length + 1] = VIDEOTUTORIAL_CODEEVAL;
+        return resources;
+    }
+
     /**
      * Estrategia de generación del codigo html correspondiente a la página de
      * MetricSist.html. Genera el fichero MetricSist.html a partir de los datos
@@ -200,13 +258,7 @@ public class DocMetric extends DocSistInfHtml {
     @Override
     public void generate(int level) throws FileNotFoundException, SQLException {
 
-        try {
-            outHtml = new PrintStream(new FileOutputStream(NAME_FICH_METRIC),
-                    true, CHARSET);
-        } catch (UnsupportedEncodingException e) {
-            LOGGER.error("CHARSET: " + CHARSET
-                    + " no disponible en la máquina virtual", e);
-        }
+        openHtml(NAME_FICH_METRIC);
 
         outHtml.println("<!DOCTYPE html >");
         outHtml.println("<html lang=\"es\">");
@@ -231,9 +283,39 @@ public class DocMetric extends DocSistInfHtml {
         outHtml.println("\t\t</div>");
         outHtml.println("\t</body>");
         outHtml.println("</html>");
+        awaitCharts();
         outHtml.close();
     }
 
+    /**
+     * Espera a que se terminen de dibujar los gráficos de la página, de modo
+     * que la página no se entrega a su destino antes que sus gráficos.
+     */
+    private void awaitCharts() {
+        RuntimeException failure = null;
+        try {
+            for (Future<?> chart : charts) {
+                try {
+                    chart.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (failure == null) {
+                        failure = cause instanceof RuntimeException ? (RuntimeException) cause
+                                : new IllegalStateException(cause);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            LOGGER.error("Generación de gráficos interrumpida", e);
+            Thread.currentThread().interrupt();
+        } finally {
+            charts.clear();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
     /**
      * Estrategia de generación del codigo html correspondiente a la descripción
      * del experimento.
@@ -254,7 +336,7 @@ public class DocMetric extends DocSistInfHtml {
                 + (nFiles.intValue() + 1)
                 + "\"> <img src='./images/ico_experimento.jpg' alt='experimento'/> </td></tr>");
 
-        ResultSet result = fachData.getResultSet("DescripcionExperimento",
+        TableCursor result = fachData.getResultSet("DescripcionExperimento",
                 "Descripcion");
 
         while (result.next()) {
@@ -268,11 +350,9 @@ public class DocMetric extends DocSistInfHtml {
 
         outHtml.println("\t\t\t\t\t\t</table>");
         outHtml.println("\t\t\t\t\t\t<div>");
-        createScript(DIROUT + "\\html\\videotutorialsourcemonitor.html",
-                "\t\t\t\t\t\t\t");
+        createScript(VIDEOTUTORIAL_SOURCEMONITOR, "\t\t\t\t\t\t\t");
 
-        createScript(DIROUT + "\\html\\videotutorialcodeeval.html",
-                "\t\t\t\t\t\t\t");
+        createScript(VIDEOTUTORIAL_CODEEVAL, "\t\t\t\t\t\t\t");
         outHtml.println("\t\t\t\t\t\t</div>");
 
         outHtml.println("\t\t\t\t\t</section>");
@@ -296,7 +376,7 @@ public class DocMetric extends DocSistInfHtml {
             throws SQLException {
         // Descripción de metricas
 
-        ResultSet result = fachData.getResultSet("MetricaDescripcion", "ID",
+        TableCursor result = fachData.getResultSet("MetricaDescripcion", "ID",
                 metricValoreSelect, null);
         outHtml.println("\t\t\t\t\t<section>");
         createSubTitleMenu(title);
@@ -311,6 +391,10 @@ public class DocMetric extends DocSistInfHtml {
                 "small", METRICDESCRIPCIONTOOLTIP);
         outHtml.println("\t\t\t\t\t\t\t<tbody>");
 
+        metricValues = readMetricValues();
+        if (GraphGenerator.isSprite()) {
+            sprite = new BoxPlotSprite("boxplots");
+        }
         int i = 0;
         while (result.next()) {
 
@@ -336,6 +420,12 @@ public class DocMetric extends DocSistInfHtml {
 
         }
         result.close();
+        metricValues = null;
+        if (sprite != null) {
+            charts.add(new GraphGenerator(getFileSink())
+                    .submitSpriteBoxPlot(sprite));
+            sprite = null;
+        }
 
         outHtml.println("\t\t\t\t\t\t\t</tbody>");
         outHtml.println("\t\t\t\t\t\t</table>");
@@ -345,6 +435,33 @@ public class DocMetric extends DocSistInfHtml {
         outHtml.println("\t\t\t\t\t</section>");
     }
 
+    /**
+     * Lee de una vez los valores de todas las métricas numéricas visibles de
+     * la tabla MetricaValores.
+     * 
+     * @return valores de cada métrica, indexados por su identificador.
+     * @throws SQLException
+     */
+    private Map<String, double[]> readMetricValues() throws SQLException {
+        List<String> ids = new ArrayList<String>(metricValoreSelect.length);
+        TableCursor result = fachData.getResultSet("MetricaDescripcion", "ID",
+                metricValoreSelect, null);
+        while (result.next()) {
+            if ("number".equals(result.getString("Tipo"))) {
+                ids.add(result.getString("Id"));
+            }
+        }
+        result.close();
+
+        double[][] values = fachData.getNumberColumns("MetricaValores",
+                ids.toArray(new String[ids.size()]));
+        Map<String, double[]> byId = new HashMap<String, double[]>();
+        for (int i = 0; i < values.length; i++) {
+            byId.put(ids.get(i), values[i]);
+        }
+        return byId;
+    }
+
     /**
      * Genera el código html de celdas <td>con los valores estadisticos
      * maximo,minimo, media aritmética, mediana, q1,q3 comparandolos con los
@@ -373,15 +490,13 @@ public class DocMetric extends DocSistInfHtml {
             String descripcion, String strMaxValor, String strMinValor,
             String tipoId) throws SQLException {
         if ("number".equals(tipoId)) {
-            Number maxUbu = fachData.getMaxColumn(id, "MetricaValores");
-            Number minUbu = fachData.getMinColumn(id, "MetricaValores");
-            Number avgUbu = fachData.getAvgColumn(id, "MetricaValores");
-            Number q1Ubu = fachData.getQuartilColumn(id, "MetricaValores",
-                    new Double(0.25));
-            Number medUbu = fachData.getQuartilColumn(id, "MetricaValores",
-                    new Double(0.5));
-            Number q3Ubu = fachData.getQuartilColumn(id, "MetricaValores",
-                    new Double(0.75));
+            ColumnSummary summary = fachData.getSummary(id, "MetricaValores");
+            Number maxUbu = summary.getMax();
+            Number minUbu = summary.getMin();
+            Number avgUbu = summary.getMean();
+            Number q1Ubu = summary.getQ1();
+            Number medUbu = summary.getMedian();
+            Number q3Ubu = summary.getQ3();
 
             if (q1Ubu.doubleValue() > q3Ubu.doubleValue()) {
                 thresHoldUBUQ1Q3[i] = new ThresHold(q1Ubu, q3Ubu);
@@ -559,7 +674,7 @@ public class DocMetric extends DocSistInfHtml {
     private void createMetricCoverProject(String title) throws SQLException {
         // Descripción de metricas
 
-        ResultSet result = fachData.getResultSet("MetricaValores", "M0", null,
+        TableCursor result = fachData.getResultSet("MetricaValores", "M0", null,
                 metricValoreSelect);
         outHtml.println("\t\t\t\t\t<section>");
         createSubTitleMenu(title);
@@ -672,33 +787,39 @@ public class DocMetric extends DocSistInfHtml {
      * Genera un celda de una tabla html con una imagen cuyo nombre se
      * corresponde con la concatenación de los datos pasados como parametros. La
      * imagen se genera dinámicamente a partir de la consulta de los datos de la
-     * tabla MetricaValores
+     * tabla MetricaValores, que se leen de una vez para toda la tabla. Con
+     * formatoGraficos=svg-integrado el gráfico se incluye directamente en la
+     * celda, y con formatoGraficos=sprite la celda muestra su parte de la
+     * imagen con todos los gráficos de la tabla.
      * 
      * @param id
      *            identificacion de la métrica
      * @param descripcion
      *            descripción
-     * @throws SQLException
      */
-    private void createHtmlTableTdBoxPlot(String id, String descripcion)
-            throws SQLException {
-        Vector<String> metricsIdNumeric = new Vector<String>(20);
-        Vector<Vector<Double>> valoresMetrics = new Vector<Vector<Double>>(20);
-        Vector<Double> valoresMetric = new Vector<Double>(100);
+    private void createHtmlTableTdBoxPlot(String id, String descripcion) {
+        Vector<String> metricsIdNumeric = new Vector<String>(1);
         metricsIdNumeric.add(id);
-        ResultSet result2 = fachData.getResultSet("MetricaValores", id);
-        while (result2.next()) {
-            Double value = result2.getDouble(id);
-            valoresMetric.add(value);
-
+        double[][] valoresMetrics = { metricValues.get(id) };
+        GraphGenerator graph = new GraphGenerator(getFileSink());
+        if (GraphGenerator.isInline()) {
+            outHtml.println("\t\t\t\t\t\t\t\t\t<td>"
+                    + graph.createSvgBoxPlot(id, descripcion, valoresMetrics)
+                    + "</td>");
+            return;
+        }
+        if (sprite != null) {
+            int index = sprite.add(id, descripcion, metricsIdNumeric,
+                    valoresMetrics);
+            outHtml.println("\t\t\t\t\t\t\t\t\t<td><div role='img' aria-label='boxplot' style='"
+                    + GraphGenerator.getSpriteStyle(sprite, index)
+                    + "'></div></td>");
+            return;
         }
-        result2.close();
-        valoresMetrics.add(valoresMetric);
-        GraphGenerator graph = new GraphGenerator();
-        graph.generateGraphicBoxPlot(id, descripcion, "", "", metricsIdNumeric,
-                valoresMetrics);
+        charts.add(graph.submitGraphicBoxPlot(id, descripcion, "", "",
+                metricsIdNumeric, valoresMetrics));
         outHtml.println("\t\t\t\t\t\t\t\t\t<td><img src='./images/metrics/"
-                + id + ".png' alt='boxplot'/></td>");
+                + id + GraphGenerator.getExtension() + "' alt='boxplot'/></td>");
     }
 
     /**
@@ -1,19 +1,33 @@
 package ubu.digit.htmlgen;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.PrintStream;
+import java.io.OutputStream;
 import java.sql.SQLException;
 import java.text.NumberFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 
 import ubu.digit.pesistence.SistInfData;
+import ubu.digit.util.BuildDate;
 import ubu.digit.util.ExternalProperties;
+import ubu.digit.util.FileSink;
+import ubu.digit.util.OutputManifest;
 
 /**
  * Clase abstracta que genera el conjunto de funcionalidad común a todas las
@@ -21,7 +35,18 @@ import ubu.digit.util.ExternalProperties;
  * comunes, menus, sistemas de trazabilidad web. También obtiene una instancia
  * una instancia de una fachada para acceder a los datos externos de proyectos.
  * <p>
- * Define un método abstracto para generar el cuerpo de las páginas.
+ * Define un método abstracto para generar el cuerpo de las páginas y otros
+ * para declarar el fichero que generan y las tablas de las que dependen, de
+ * modo que sólo se vuelvan a generar cuando cambian sus datos.
+ * <p>
+ * Las cabeceras, los pies, los menús y los scripts incluidos son iguales en
+ * todas las páginas, así que se generan una sola vez y se copian ya
+ * codificados en la salida de cada página.
+ * <p>
+ * Si la propiedad filasPorPagina es mayor que 0 las tablas de proyectos no se
+ * escriben completas: cada página muestra sólo las primeras filas y el resto
+ * se reparte en ficheros estáticos (Pagina-p1.html, Pagina-p2.html...) con
+ * ese número de filas, que se generan a la vez.
  * <p>
  * Dependencias sobre recursos web: las páginas dependen de los ficheros
  * contenidos en el directorio ./css y ./js
@@ -47,12 +72,37 @@ public abstract class DocSistInfHtml {
     /**
      * Archivo de salida.
      */
-    protected PrintStream outHtml;
+    protected HtmlWriter outHtml;
+
+    /**
+     * Flujo en el que se escribe la página en lugar de en su fichero, o null
+     * para escribir en el fichero.
+     */
+    private OutputStream destino;
+
+    /**
+     * Destino de los ficheros de la página y de sus gráficos, o null para
+     * escribirlos en el directorio de salida.
+     */
+    private FileSink sink;
+
+    /**
+     * Directorio del que se leen los ficheros que se copian en la página en
+     * lugar del directorio de salida, o null.
+     */
+    private File resourceDir;
+
+    /**
+     * Indica si ha habido algún error al generar las páginas en las que se
+     * divide una tabla.
+     */
+    private volatile boolean pagesError;
 
     /**
-     * Formato de los números.
+     * Formato de los números. Cada página tiene el suyo porque NumberFormat no
+     * se puede usar desde varios hilos a la vez.
      */
-    protected NumberFormat numberFormat;
+    protected final NumberFormat numberFormat;
 
     /**
      * Variable que tiene la ISO que tiene la página web.
@@ -70,6 +120,13 @@ public abstract class DocSistInfHtml {
      */
     private static final String DIROUT = prop.getSetting("dirOut");
 
+    /**
+     * Filas de las tablas de proyectos en cada página, o 0 para escribir las
+     * tablas completas y paginarlas en el navegador.
+     */
+    protected static final int ROWS_PER_PAGE = Math.max(0,
+            prop.getSetting("filasPorPagina", 0));
+
     /**
      * URl de la ruta donde se encuentra el javascript de google analitics.
      */
@@ -90,6 +147,25 @@ public abstract class DocSistInfHtml {
 
     protected static final String STR_WARN_TABLE_ORDENABLE = "\t\t\t\t\t\t<ol class='lnorm'><li> Tabla ordenable por columnas. Haz click en las cabeceras de las columnas. </li></ol>";
 
+    /**
+     * Fragmentos comunes a todas las páginas ya codificados en UTF-8,
+     * indexados por su nombre. Cada uno guarda sólo la última versión: la que
+     * corresponde a la huella actual de aquello de lo que depende. Se
+     * comparten entre todas las páginas y todos los hilos.
+     */
+    private static final ConcurrentMap<String, CachedFragment> FRAGMENTS = new ConcurrentHashMap<String, CachedFragment>();
+
+    /**
+     * Indica si se guardan en memoria los fragmentos comunes.
+     */
+    private static volatile boolean fragmentCache = true;
+
+    /**
+     * Indica si el fragmento que se está generando no se puede guardar en
+     * memoria porque falta alguno de los ficheros que incluye.
+     */
+    private boolean uncacheable;
+
     /**
      * Inicializa una instancia a una fachada para acceder a los datos del
      * sistema de almacenamiento persistente. Inicializa el formato de números
@@ -101,6 +177,321 @@ public abstract class DocSistInfHtml {
         numberFormat.setMaximumFractionDigits(new Integer(2));
     }
 
+    /**
+     * Hace que la siguiente generación escriba la página en un flujo en lugar
+     * de en su fichero. El flujo se cierra al terminar la página.
+     * 
+     * @param destino
+     *            flujo de salida, o null para volver a escribir en el fichero.
+     */
+    public void setOutputStream(OutputStream destino) {
+        this.destino = destino;
+    }
+
+    /**
+     * Hace que la página y sus gráficos se entreguen a un destino en lugar de
+     * escribirse en el directorio de salida.
+     * 
+     * @param sink
+     *            destino de los ficheros, o null para volver a escribirlos en
+     *            el directorio de salida.
+     */
+    public void setFileSink(FileSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Hace que los ficheros que se copian en la página (ver
+     * {@link #getResources()}) se lean de otro directorio en lugar del
+     * directorio de salida.
+     * 
+     * @param resourceDir
+     *            directorio, o null para volver a leerlos del directorio de
+     *            salida.
+     */
+    public void setResourceDir(File resourceDir) {
+        this.resourceDir = resourceDir;
+    }
+
+    /**
+     * Obtiene el fichero del que se lee uno de los ficheros que se copian en
+     * la página.
+     * 
+     * @param fileName
+     *            nombre del fichero en el directorio de salida.
+     * @return fichero del que se lee.
+     */
+    private File getResourceFile(String fileName) {
+        if (resourceDir == null || !fileName.startsWith(DIROUT)) {
+            return new File(fileName);
+        }
+        return new File(resourceDir, fileName.substring(DIROUT.length())
+                .replace('\\', File.separatorChar));
+    }
+
+    /**
+     * Obtiene la huella de un fichero: su fecha de modificación y su tamaño.
+     * 
+     * @param file
+     *            fichero.
+     * @return huella, o "-" si no existe.
+     */
+    private static String stamp(File file) {
+        if (!file.isFile()) {
+            return "-";
+        }
+        return file.lastModified() + ":" + file.length();
+    }
+
+    /**
+     * Activa o desactiva la caché de fragmentos comunes y la vacía. Sin caché
+     * cada página genera sus fragmentos directamente en su salida.
+     * 
+     * @param enabled
+     *            true para guardar los fragmentos en memoria.
+     */
+    static void setFragmentCache(boolean enabled) {
+        fragmentCache = enabled;
+        FRAGMENTS.clear();
+    }
+
+    /**
+     * Fragmento común a varias páginas.
+     */
+    private abstract class Fragment {
+
+        /**
+         * Genera el fragmento en la salida de la página.
+         */
+        abstract void render();
+    }
+
+    /**
+     * Fragmento común ya codificado junto con la huella de aquello de lo que
+     * depende.
+     */
+    private static final class CachedFragment {
+
+        /**
+         * Huella de aquello de lo que depende el fragmento.
+         */
+        private final String stamp;
+
+        /**
+         * Fragmento codificado en UTF-8.
+         */
+        private final byte[] encoded;
+
+        /**
+         * Constructor.
+         * 
+         * @param stamp
+         *            huella de aquello de lo que depende el fragmento.
+         * @param encoded
+         *            fragmento codificado en UTF-8.
+         */
+        CachedFragment(String stamp, byte[] encoded) {
+            this.stamp = stamp;
+            this.encoded = encoded;
+        }
+    }
+
+    /**
+     * Escribe un fragmento común en la salida de la página. La primera vez se
+     * genera en memoria y se guarda codificado; las siguientes se copia tal
+     * cual mientras no cambie su huella, y si cambia se sustituye. No se
+     * guarda si falta alguno de los scripts que incluye, para avisar del
+     * error en cada página.
+     * 
+     * @param name
+     *            nombre del fragmento.
+     * @param stamp
+     *            huella de todo aquello de lo que depende su contenido.
+     * @param fragment
+     *            fragmento.
+     */
+    private void writeFragment(String name, String stamp, Fragment fragment) {
+        if (!fragmentCache) {
+            fragment.render();
+            return;
+        }
+        CachedFragment cached = FRAGMENTS.get(name);
+        if (cached == null || !cached.stamp.equals(stamp)) {
+            HtmlWriter page = outHtml;
+            boolean outerUncacheable = uncacheable;
+            uncacheable = false;
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            outHtml = new HtmlWriter(content);
+            try {
+                fragment.render();
+            } finally {
+                outHtml.close();
+                outHtml = page;
+            }
+            cached = new CachedFragment(stamp, content.toByteArray());
+            if (uncacheable) {
+                outerUncacheable = true;
+            } else {
+                FRAGMENTS.put(name, cached);
+            }
+            uncacheable = outerUncacheable;
+        }
+        outHtml.writeEncoded(cached.encoded);
+    }
+
+    /**
+     * @return destino de los ficheros de la página y de sus gráficos.
+     */
+    protected FileSink getFileSink() {
+        return sink == null ? OutputManifest.getInstance() : sink;
+    }
+
+    /**
+     * Abre la salida de la página. Escribe en el flujo indicado con
+     * {@link #setOutputStream(OutputStream)} o, si no hay ninguno, en el
+     * fichero, que sólo se entrega a su destino al cerrar la salida.
+     * 
+     * @param fileName
+     *            Nombre del fichero de la página.
+     */
+    protected void openHtml(String fileName) {
+        if (destino == null) {
+            outHtml = HtmlWriter.toFile(fileName, getFileSink());
+        } else {
+            outHtml = new HtmlWriter(destino);
+        }
+    }
+
+    /**
+     * @return true si ha habido algún error al escribir la última página
+     *         generada.
+     */
+    public boolean checkError() {
+        return pagesError || outHtml != null && outHtml.checkError();
+    }
+
+    /**
+     * Genera las páginas en las que se divide una tabla, a la vez en tantos
+     * hilos como indique la propiedad hilos. Se entregan al mismo destino que
+     * esta página y leen los ficheros incluidos del mismo directorio.
+     * 
+     * @param pages
+     *            Páginas a generar.
+     * @param level
+     *            Nivel de gestión empleado.
+     * @throws FileNotFoundException
+     * @throws SQLException
+     */
+    protected void generatePages(List<? extends DocSistInfHtml> pages,
+            final int level) throws FileNotFoundException, SQLException {
+        List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>(
+                pages.size());
+        for (final DocSistInfHtml page : pages) {
+            page.sink = sink;
+            page.resourceDir = resourceDir;
+            tasks.add(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    page.generate(level);
+                    return page.checkError();
+                }
+            });
+        }
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1,
+                Math.min(prop.getSetting("hilos", 1), tasks.size())));
+        List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>(
+                tasks.size());
+        for (Callable<Boolean> task : tasks) {
+            futures.add(executor.submit(task));
+        }
+        executor.shutdown();
+
+        Throwable failure = null;
+        for (Future<Boolean> future : futures) {
+            try {
+                if (future.get()) {
+                    pagesError = true;
+                }
+            } catch (InterruptedException e) {
+                LOGGER.error("Generación de páginas interrumpida", e);
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+                pagesError = true;
+                return;
+            } catch (ExecutionException e) {
+                pagesError = true;
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+        if (failure instanceof SQLException) {
+            throw (SQLException) failure;
+        } else if (failure instanceof FileNotFoundException) {
+            throw (FileNotFoundException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure != null) {
+            LOGGER.error("Error al generar las páginas de la tabla", failure);
+        }
+    }
+
+    /**
+     * Retira de su destino las páginas de una tabla que ya no se generan:
+     * las que siguen a la última, que quedan de una generación anterior si la
+     * tabla tiene ahora menos filas o si ha cambiado la propiedad
+     * filasPorPagina. Como las páginas se numeran seguidas, se retiran hasta
+     * encontrar una que no exista.
+     * 
+     * @param pageCount
+     *            Número de páginas que se han generado, 0 si la tabla no se
+     *            divide.
+     */
+    protected void removeExtraPages(int pageCount) {
+        String fileName = getFileName();
+        int page = pageCount + 1;
+        try {
+            while (getFileSink().delete(getPageFileName(fileName, page))) {
+                LOGGER.info("Borrada la página que ya no se genera: "
+                        + getPageFileName(fileName, page));
+                page++;
+            }
+        } catch (IOException e) {
+            LOGGER.error("No se pueden borrar las páginas que ya no se "
+                    + "generan", e);
+            pagesError = true;
+        }
+    }
+
+    /**
+     * Obtiene el nombre del fichero de una de las páginas en las que se
+     * divide una tabla: Pagina.html, Pagina-p1.html, Pagina-p2.html...
+     * 
+     * @param fileName
+     *            Nombre del fichero de la página completa.
+     * @param page
+     *            Número de página, empezando por 1.
+     * @return nombre del fichero.
+     */
+    protected static String getPageFileName(String fileName, int page) {
+        int dot = fileName.lastIndexOf('.');
+        return fileName.substring(0, dot) + "-p" + page
+                + fileName.substring(dot);
+    }
+
+    /**
+     * @param totalEntry
+     *            Número total de filas.
+     * @return número de páginas en las que se divide una tabla.
+     */
+    protected static int getPageCount(int totalEntry) {
+        return (totalEntry + ROWS_PER_PAGE - 1) / ROWS_PER_PAGE;
+    }
+
     /**
      * Genera el contenido variable de las páginas html del mismo portal.
      * 
@@ -110,6 +501,49 @@ public abstract class DocSistInfHtml {
     public abstract void generate(int level) throws FileNotFoundException,
             SQLException;
 
+    /**
+     * @return nombre del fichero de la página.
+     */
+    public abstract String getFileName();
+
+    /**
+     * @return tablas de las que se obtienen los datos de la página.
+     */
+    public abstract String[] getTables();
+
+    /**
+     * Ficheros que se copian dentro de la página además de los datos de las
+     * tablas. Por defecto los scripts comunes a todas las páginas.
+     * 
+     * @return nombres de los ficheros.
+     */
+    public String[] getResources() {
+        return new String[] { WEB_JS_GOOGLEANALITICS_JS, WEB_JS_ADDTHIS_JS,
+                WEB_JS_GOOGLETRANSLATE_JS };
+    }
+
+    /**
+     * Obtiene la huella de todo aquello de lo que depende el contenido de la
+     * página: el nivel de gestión, los ficheros de sus tablas y los ficheros
+     * que se copian en ella. Si la huella no cambia, al volver a generar la
+     * página se obtiene el mismo contenido salvo, quizá, la fecha de
+     * actualización.
+     * 
+     * @param level
+     *            Nivel de gestión empleado.
+     * @return huella de las dependencias de la página.
+     */
+    public String getFingerprint(int level) {
+        StringBuilder fingerprint = new StringBuilder();
+        fingerprint.append("nivel=").append(level).append(';');
+        fingerprint.append(fachData.getFingerprint(getTables()));
+        for (String resource : getResources()) {
+            fingerprint.append(resource).append('=')
+                    .append(stamp(getResourceFile(resource))).append(';');
+        }
+        return fingerprint.toString();
+    }
+
     /**
      * Genera el código html correspondiente a un menu de una dimensión cuyos
      * títulos se pasan como parámetro.
@@ -136,15 +570,33 @@ public abstract class DocSistInfHtml {
     }
 
     /**
-     * Genera un pie de página html con la fecha actual de actualización y los
-     * iconos de validación W3C.
+     * Genera un pie de página html con la fecha de actualización y los iconos
+     * de validación W3C. La fecha depende de la propiedad fechaActualizacion
+     * y de las tablas de la página, ver {@link BuildDate}.
      * <p>
      * Dependencias sobre ./css/ubuSisInf.css.
      */
     protected void createFootHtml() {
-        long segTotal = System.currentTimeMillis();
-        Date date = new Date(segTotal);
+        writeFragment("pie-inicio", "", new Fragment() {
+            @Override
+            void render() {
+                renderFootStart();
+            }
+        });
+        outHtml.println("\t\t\t\t\t\t\t\t<li class='white-text'>Fecha de actualizaci&oacute;n "
+                + BuildDate.get(getTables()).toString() + " </li>");
+        writeFragment("pie-fin", "", new Fragment() {
+            @Override
+            void render() {
+                renderFootEnd();
+            }
+        });
+    }
 
+    /**
+     * Genera la parte del pie de página anterior a la fecha de actualización.
+     */
+    private void renderFootStart() {
         outHtml.println("\t\t\t<footer class='page-footer grey ubu'>");
 
         outHtml.println("\t\t\t\t<div class='container'>");
@@ -167,8 +619,12 @@ public abstract class DocSistInfHtml {
         outHtml.println("\t\t\t\t\t\t<div class='col l4 s12'>");
         outHtml.println("\t\t\t\t\t\t\t<ul>");
         outHtml.println("\t\t\t\t\t\t\t\t<li class='white-text'><a rel='license' href='http://creativecommons.org/licenses/by/4.0/'><img alt='Creative Commons License' style='border-width:0' src='https://i.creativecommons.org/l/by/4.0/88x31.png' /></a><br />SistInfWeb by Carlos L&oacute;pez Nozal and Beatriz Zurera Mart&iacute;nez-Acitores is licensed under a <a rel='license' href='http://creativecommons.org/licenses/by/4.0/'>Creative Commons Attribution 4.0 International License</a>.</li>");
-        outHtml.println("\t\t\t\t\t\t\t\t<li class='white-text'>Fecha de actualizaci&oacute;n "
-                + date.toString() + " </li>");
+    }
+
+    /**
+     * Genera la parte del pie de página posterior a la fecha de actualización.
+     */
+    private void renderFootEnd() {
         outHtml.println("\t\t\t\t\t\t\t</ul>");
         outHtml.println("\t\t\t\t\t\t</div>");
         outHtml.println("\t\t\t\t\t</div>");
@@ -192,11 +648,37 @@ public abstract class DocSistInfHtml {
      *            Secuencia inicial de tabuladores para el formateo de la página
      *            html.
      */
-    protected void createScript(String scriptFileName, String tabs) {
+    protected void createScript(final String scriptFileName, final String tabs) {
+        final File file = getResourceFile(scriptFileName);
+        if (!file.isFile()) {
+            // Sin guardar en la caché, para avisar del error en cada página
+            uncacheable = true;
+            renderScript(scriptFileName, file, tabs);
+            return;
+        }
+        writeFragment("script:" + scriptFileName + ":" + tabs, file.getPath()
+                + "=" + stamp(file), new Fragment() {
+            @Override
+            void render() {
+                renderScript(scriptFileName, file, tabs);
+            }
+        });
+    }
 
+    /**
+     * Copia un script en la salida de la página.
+     * 
+     * @param scriptFileName
+     *            Nombre del fichero que contiene el script.
+     * @param file
+     *            Fichero del que se lee.
+     * @param tabs
+     *            Secuencia inicial de tabuladores.
+     */
+    private void renderScript(String scriptFileName, File file, String tabs) {
         try {
             BufferedReader fInHtmlCodeScript = new BufferedReader(
-                    new FileReader(scriptFileName));
+                    new FileReader(file));
             String line;
             while ((line = fInHtmlCodeScript.readLine()) != null) {
                 outHtml.println(tabs + line);
@@ -225,8 +707,22 @@ public abstract class DocSistInfHtml {
      * @param title
      *            Título de la página html.
      */
-    protected void createHeaderHtml(String title) {
+    protected void createHeaderHtml(final String title) {
+        writeFragment("cabecera:" + title, "", new Fragment() {
+            @Override
+            void render() {
+                renderHeaderHtml(title);
+            }
+        });
+    }
 
+    /**
+     * Genera la cabecera html.
+     * 
+     * @param title
+     *            Título de la página html.
+     */
+    private void renderHeaderHtml(String title) {
         outHtml.println("\t\t<meta charset='UTF-8'/>");
         outHtml.println("\t\t<meta name='description' content='Informaci&oacute;n sobre los proyectos final de carrera "
                 + " presentados en 5º de Ingenier&iacute;a Inform&aacute;tica en la Universidad de Burgos' />");
@@ -262,17 +758,38 @@ public abstract class DocSistInfHtml {
      * @throws SQLException
      * 
      */
-    protected void createMenuHtml(int level) throws SQLException {
+    protected void createMenuHtml(final int level) throws SQLException {
+        String setting = prop.getSetting("logoUBU");
+        final String logoUBU = "".equals(setting) ? "./images/logoUBU.png"
+                : setting;
+        writeFragment("menu:" + level, logoUBU + ":"
+                + getResourceFile(WEB_JS_ADDTHIS_JS).getPath() + "="
+                + stamp(getResourceFile(WEB_JS_ADDTHIS_JS)) + ":"
+                + getResourceFile(WEB_JS_GOOGLETRANSLATE_JS).getPath() + "="
+                + stamp(getResourceFile(WEB_JS_GOOGLETRANSLATE_JS)),
+                new Fragment() {
+                    @Override
+                    void render() {
+                        renderMenuHtml(level, logoUBU);
+                    }
+                });
+    }
+
+    /**
+     * Genera el menú de un nivel de generación del portal.
+     * 
+     * @param level
+     *            Nivel de generación del portal.
+     * @param logoUBU
+     *            Ruta del logo.
+     */
+    private void renderMenuHtml(int level, String logoUBU) {
         outHtml.println("\t\t\t\t<header>");
 
         outHtml.println("\t\t\t\t\t<nav class='red ubu'>");
         outHtml.println("\t\t\t\t\t\t<div class='container'>");
         outHtml.println("\t\t\t\t\t\t\t<div class='nav-wrapper'>");
         outHtml.println("\t\t\t\t\t\t\t\t<div class='col s12'>");
-        String logoUBU = prop.getSetting("logoUBU");
-        if ("".equals(logoUBU)) {
-            logoUBU = "./images/logoUBU.png";
-        }
         outHtml.println("\t\t\t\t\t\t\t\t\t<a href='index.html' class='brand-logo'><img src='"
                 + logoUBU + "' alt='UBu'/></a>");
         outHtml.println("\t\t\t\t\t\t\t\t\t<ul class='right hide-on-med-and-down'>");
@@ -455,6 +972,56 @@ public abstract class DocSistInfHtml {
 
     }
 
+    /**
+     * Genera el código html correspondiente a un menú de enlaces a las páginas
+     * en las que se divide una tabla html, ver {@link #ROWS_PER_PAGE}.
+     * <p>
+     * Dependencias sobre ./css/ubuSisInf.css
+     * 
+     * @param fileName
+     *            Nombre del fichero de la página completa.
+     * @param page
+     *            Página actual, empezando por 1.
+     * @param totalEntry
+     *            Número total filas.
+     */
+    protected void createPageLinks(String fileName, int page, int totalEntry) {
+        String name = fileName.substring(Math.max(fileName.lastIndexOf('\\'),
+                fileName.lastIndexOf('/')) + 1);
+        int nPag = getPageCount(totalEntry);
+
+        outHtml.println("\t\t\t\t\t\t<p></p>");
+        outHtml.println("\t\t\t\t\t\t<table class='nav'>");
+        outHtml.println("\t\t\t\t\t\t\t<tbody>");
+        outHtml.println("\t\t\t\t\t\t\t\t<tr>");
+        if (page > 1) {
+            outHtml.println("\t\t\t\t\t\t\t\t\t<td><a href='"
+                    + getPageFileName(name, page - 1)
+                    + "'>&laquo; Anterior</a> </td>");
+        }
+        for (int j = 1; j <= nPag; j++) {
+            int rangoInf = (j - 1) * ROWS_PER_PAGE + 1;
+            int rangoSup = Math.min(j * ROWS_PER_PAGE, totalEntry);
+            if (j == page) {
+                outHtml.println("\t\t\t\t\t\t\t\t\t<td><strong>" + rangoInf
+                        + "..." + rangoSup + "</strong> </td>");
+            } else {
+                outHtml.println("\t\t\t\t\t\t\t\t\t<td><a href='"
+                        + getPageFileName(name, j) + "'>" + rangoInf + "..."
+                        + rangoSup + "</a> </td>");
+            }
+        }
+        if (page < nPag) {
+            outHtml.println("\t\t\t\t\t\t\t\t\t<td><a href='"
+                    + getPageFileName(name, page + 1)
+                    + "'>Siguiente &raquo;</a> </td>");
+        }
+        outHtml.println("\t\t\t\t\t\t\t\t</tr>");
+        outHtml.println("\t\t\t\t\t\t\t</tbody>");
+        outHtml.println("\t\t\t\t\t\t</table>");
+        outHtml.println("\t\t\t\t\t\t<p></p>");
+    }
+
     /**
      * Genera el código html correspondiente a un título dentro del cuerpo del
      * página html. Se una refencia de acceso interna a la propia página, asi
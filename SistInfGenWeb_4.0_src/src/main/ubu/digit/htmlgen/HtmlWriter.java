@@ -0,0 +1,182 @@
+package ubu.digit.htmlgen;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.log4j.Logger;
+
+import ubu.digit.util.FileSink;
+import ubu.digit.util.OutputManifest;
+
+/**
+ * Salida de las páginas html en UTF-8 con un buffer grande y sin vaciado
+ * automático: el texto se codifica y se escribe en bloques de
+ * {@link #BUFFER_SIZE} caracteres en lugar de una escritura por línea.
+ * <p>
+ * Puede escribir en cualquier OutputStream o en un fichero. En el segundo caso
+ * la página se genera en memoria y al cerrar se entrega completa a un
+ * {@link FileSink}, normalmente {@link OutputManifest}, que sólo escribe el
+ * fichero si su contenido ha cambiado, de modo que nunca se publica una
+ * página a medio generar. Si ha habido algún error de escritura el fichero no
+ * se modifica.
+ * <p>
+ * Los fragmentos que se repiten en todas las páginas se pueden escribir ya
+ * codificados con {@link #writeEncoded(byte[])}, sin volver a codificarlos.
+ * 
+ * @since 4.1
+ */
+public class HtmlWriter extends PrintWriter {
+
+    /**
+     * Logger de la clase.
+     */
+    private static final Logger LOGGER = Logger.getLogger(HtmlWriter.class);
+
+    /**
+     * Tamaño del buffer, en caracteres.
+     */
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Tamaño inicial del contenido en memoria, en bytes.
+     */
+    private static final int INITIAL_SIZE = 256 * 1024;
+
+    /**
+     * Flujo sobre el que se codifica el texto.
+     */
+    private final OutputStream stream;
+
+    /**
+     * Nombre del fichero, o null si se escribe en un OutputStream.
+     */
+    private final String fileName;
+
+    /**
+     * Contenido de la página, o null si se escribe en un OutputStream.
+     */
+    private final ByteArrayOutputStream content;
+
+    /**
+     * Destino del fichero, o null si se escribe en un OutputStream.
+     */
+    private final FileSink sink;
+
+    /**
+     * Indica si ya se ha cerrado la salida.
+     */
+    private boolean closed;
+
+    /**
+     * Crea una salida sobre un OutputStream. Al cerrarla se cierra también el
+     * OutputStream.
+     * 
+     * @param out
+     *            flujo de salida.
+     */
+    public HtmlWriter(OutputStream out) {
+        this(out, null, null, null);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param out
+     *            flujo de salida.
+     * @param fileName
+     *            nombre del fichero, o null.
+     * @param content
+     *            contenido en memoria, o null.
+     * @param sink
+     *            destino del fichero, o null.
+     */
+    private HtmlWriter(OutputStream out, String fileName,
+            ByteArrayOutputStream content, FileSink sink) {
+        super(new BufferedWriter(new OutputStreamWriter(out,
+                StandardCharsets.UTF_8), BUFFER_SIZE), false);
+        this.stream = out;
+        this.fileName = fileName;
+        this.content = content;
+        this.sink = sink;
+    }
+
+    /**
+     * Crea una salida sobre un fichero. El fichero no se crea ni se modifica
+     * hasta que se cierra la salida.
+     * 
+     * @param fileName
+     *            nombre del fichero.
+     * @return la salida.
+     */
+    public static HtmlWriter toFile(String fileName) {
+        return toFile(fileName, OutputManifest.getInstance());
+    }
+
+    /**
+     * Crea una salida sobre un fichero que al cerrarse se entrega a un
+     * destino.
+     * 
+     * @param fileName
+     *            nombre del fichero.
+     * @param sink
+     *            destino del fichero.
+     * @return la salida.
+     */
+    public static HtmlWriter toFile(String fileName, FileSink sink) {
+        ByteArrayOutputStream content = new ByteArrayOutputStream(INITIAL_SIZE);
+        return new HtmlWriter(content, fileName, content, sink);
+    }
+
+    /**
+     * Escribe un fragmento ya codificado en UTF-8. Antes se codifica el texto
+     * pendiente del buffer, de modo que el orden de la salida se mantiene.
+     * 
+     * @param encoded
+     *            fragmento codificado en UTF-8.
+     */
+    public void writeEncoded(byte[] encoded) {
+        synchronized (lock) {
+            flush();
+            try {
+                stream.write(encoded);
+            } catch (IOException e) {
+                setError();
+            }
+        }
+    }
+
+    /**
+     * Vacía el buffer y cierra la salida. Si se escribe en un fichero, lo
+     * escribe si ha cambiado, o lo deja como estaba si ha habido errores.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        super.close();
+        if (fileName == null) {
+            return;
+        }
+        if (checkError()) {
+            LOGGER.error("*** Error al generar el fichero: " + fileName
+                    + ", no se actualiza");
+            return;
+        }
+        try {
+            sink.write(fileName, content.toByteArray());
+        } catch (IOException e) {
+            LOGGER.error("*** Error: No se puede crear el fichero: "
+                    + fileName, e);
+            setError();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package ubu.digit.pesistence;
+
+import ubu.digit.stats.Interpolation;
+import ubu.digit.stats.Quantiles;
+
+/**
+ * Resumen estadístico de una columna numérica: número de valores, mínimo,
+ * máximo, media aritmética, desviación estándar y cuartiles. Se calcula una
+ * sola vez sobre las celdas no vacías de la columna y es inmutable.
+ * <p>
+ * Los cuartiles siguen el mismo criterio que
+ * {@link SistInfData#getQuartilColumn(String, String, double)}: el valor que
+ * ocupa la posición entera n * percent de los datos ordenados.
+ * 
+ * @since 4.1
+ */
+public class ColumnSummary {
+
+    /**
+     * Proporciones de los tres cuartiles.
+     */
+    private static final double[] QUARTILES = { 0.25, 0.5, 0.75 };
+
+    /**
+     * Número de valores.
+     */
+    private final int count;
+
+    /**
+     * Valor mínimo.
+     */
+    private final double min;
+
+    /**
+     * Valor máximo.
+     */
+    private final double max;
+
+    /**
+     * Media aritmética.
+     */
+    private final double mean;
+
+    /**
+     * Desviación estándar muestral.
+     */
+    private final double stdev;
+
+    /**
+     * Primer cuartil.
+     */
+    private final double q1;
+
+    /**
+     * Mediana.
+     */
+    private final double median;
+
+    /**
+     * Tercer cuartil.
+     */
+    private final double q3;
+
+    /**
+     * Constructor.
+     * 
+     * @param count
+     *            número de valores.
+     * @param min
+     *            valor mínimo.
+     * @param max
+     *            valor máximo.
+     * @param mean
+     *            media aritmética.
+     * @param stdev
+     *            desviación estándar muestral.
+     * @param q1
+     *            primer cuartil.
+     * @param median
+     *            mediana.
+     * @param q3
+     *            tercer cuartil.
+     */
+    private ColumnSummary(int count, double min, double max, double mean,
+            double stdev, double q1, double median, double q3) {
+        this.count = count;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+        this.stdev = stdev;
+        this.q1 = q1;
+        this.median = median;
+        this.q3 = q3;
+    }
+
+    /**
+     * Calcula el resumen de un conjunto de valores. Mínimo, máximo, media y
+     * desviación se obtienen en una única pasada (algoritmo de Welford); los
+     * cuartiles se leen después de ordenar los valores una sola vez.
+     * 
+     * @param values
+     *            valores de la columna. El array se ordena durante el
+     *            cálculo.
+     * @param size
+     *            número de posiciones válidas del array.
+     * @return resumen de los valores. Si no hay valores todas las medidas
+     *         valen NaN.
+     */
+    static ColumnSummary of(double[] values, int size) {
+        if (size == 0) {
+            return new ColumnSummary(0, Double.NaN, Double.NaN, Double.NaN,
+                    Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+        }
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double mean = 0;
+        double m2 = 0;
+        for (int i = 0; i < size; i++) {
+            double value = values[i];
+            if (value < min) {
+                min = value;
+            }
+            if (value > max) {
+                max = value;
+            }
+            double delta = value - mean;
+            mean += delta / (i + 1);
+            m2 += delta * (value - mean);
+        }
+        double stdev = Math.sqrt(m2 / (size - 1));
+
+        double[] quartiles = Quantiles.quantiles(values, size, QUARTILES,
+                Interpolation.INDEX_FLOOR);
+        return new ColumnSummary(size, min, max, mean, stdev, quartiles[0],
+                quartiles[1], quartiles[2]);
+    }
+
+    /**
+     * @return número de valores.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return valor mínimo.
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * @return valor máximo.
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @return media aritmética.
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * @return desviación estándar muestral.
+     */
+    public double getStdev() {
+        return stdev;
+    }
+
+    /**
+     * @return primer cuartil.
+     */
+    public double getQ1() {
+        return q1;
+    }
+
+    /**
+     * @return mediana.
+     */
+    public double getMedian() {
+        return median;
+    }
+
+    /**
+     * @return tercer cuartil.
+     */
+    public double getQ3() {
+        return q3;
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnSummary [count=" + count + ", min=" + min + ", max="
+                + max + ", mean=" + mean + ", stdev=" + stdev + ", q1=" + q1
+                + ", median=" + median + ", q3=" + q3 + "]";
+    }
+}
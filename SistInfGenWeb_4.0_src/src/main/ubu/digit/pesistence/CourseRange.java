@@ -0,0 +1,89 @@
+package ubu.digit.pesistence;
+
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Intervalo de fechas de una columna: la fecha mínima y la máxima y sus
+ * años. Se calcula en una sola pasada sobre la columna y es inmutable, de
+ * modo que una misma instancia puede compartirse durante toda la generación
+ * de una página en lugar de volver a recorrer los datos.
+ * 
+ * @since 4.1
+ */
+public class CourseRange {
+
+    /**
+     * Fecha mínima, en milisegundos.
+     */
+    private final long min;
+
+    /**
+     * Fecha máxima, en milisegundos.
+     */
+    private final long max;
+
+    /**
+     * Año de la fecha mínima.
+     */
+    private final int minYear;
+
+    /**
+     * Año de la fecha máxima.
+     */
+    private final int maxYear;
+
+    /**
+     * Constructor.
+     * 
+     * @param min
+     *            fecha mínima.
+     * @param max
+     *            fecha máxima.
+     */
+    CourseRange(Date min, Date max) {
+        this.min = min.getTime();
+        this.max = max.getTime();
+        this.minYear = yearOf(this.min);
+        this.maxYear = yearOf(this.max);
+    }
+
+    /**
+     * @param millis
+     *            fecha en milisegundos.
+     * @return año de la fecha en la zona horaria por defecto.
+     */
+    private static int yearOf(long millis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(millis);
+        return calendar.get(Calendar.YEAR);
+    }
+
+    /**
+     * @return fecha mínima.
+     */
+    public Date getMin() {
+        return new Date(min);
+    }
+
+    /**
+     * @return fecha máxima.
+     */
+    public Date getMax() {
+        return new Date(max);
+    }
+
+    /**
+     * @return año de la fecha mínima.
+     */
+    public int getMinYear() {
+        return minYear;
+    }
+
+    /**
+     * @return año de la fecha máxima.
+     */
+    public int getMaxYear() {
+        return maxYear;
+    }
+}
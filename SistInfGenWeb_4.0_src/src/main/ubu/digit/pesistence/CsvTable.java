@@ -0,0 +1,327 @@
+package ubu.digit.pesistence;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tabla de datos CSV cargada en memoria y almacenada por columnas. Cada
+ * columna guarda los valores originales como cadenas y su interpretación
+ * numérica en un array de primitivos. El esquema (nombres y tipos de las
+ * columnas) se infiere durante la carga.
+ * <p>
+ * La tabla recuerda la fecha de modificación y el tamaño del fichero del que
+ * se cargó para poder detectar cuándo deja de estar vigente.
+ * 
+ * @since 4.1
+ */
+class CsvTable {
+
+    /**
+     * Tipos de columna que se infieren a partir de los datos.
+     */
+    enum ColumnType {
+        /**
+         * Todas las celdas no vacías de la columna son números.
+         */
+        NUMBER,
+        /**
+         * Alguna celda no vacía de la columna no es un número.
+         */
+        STRING
+    }
+
+    /**
+     * Nombre de la tabla.
+     */
+    private final String name;
+
+    /**
+     * Nombres de las columnas en el orden del fichero.
+     */
+    private final String[] columnNames;
+
+    /**
+     * Tipo inferido de cada columna.
+     */
+    private final ColumnType[] columnTypes;
+
+    /**
+     * Valores originales de las celdas, indexados por [columna][fila].
+     */
+    private final String[][] text;
+
+    /**
+     * Valores numéricos de las celdas, indexados por [columna][fila]. Las
+     * celdas vacías o no numéricas contienen NaN.
+     */
+    private final double[][] numbers;
+
+    /**
+     * Número de filas de la tabla.
+     */
+    private final int rowCount;
+
+    /**
+     * Fecha de modificación del fichero cuando se cargó la tabla.
+     */
+    private final long lastModified;
+
+    /**
+     * Tamaño del fichero cuando se cargó la tabla.
+     */
+    private final long length;
+
+    /**
+     * Constructor.
+     * 
+     * @param name
+     *            nombre de la tabla.
+     * @param columnNames
+     *            nombres de las columnas.
+     * @param rows
+     *            filas leídas, cada una con tantos valores como columnas.
+     * @param lastModified
+     *            fecha de modificación del fichero de origen.
+     * @param length
+     *            tamaño del fichero de origen.
+     */
+    private CsvTable(String name, String[] columnNames, List<String[]> rows,
+            long lastModified, long length) {
+        this.name = name;
+        this.columnNames = columnNames;
+        this.rowCount = rows.size();
+        this.lastModified = lastModified;
+        this.length = length;
+
+        int nColumns = columnNames.length;
+        text = new String[nColumns][rowCount];
+        numbers = new double[nColumns][rowCount];
+        columnTypes = new ColumnType[nColumns];
+
+        for (int row = 0; row < rowCount; row++) {
+            String[] values = rows.get(row);
+            for (int col = 0; col < nColumns; col++) {
+                text[col][row] = values[col];
+            }
+        }
+        for (int col = 0; col < nColumns; col++) {
+            columnTypes[col] = ColumnType.NUMBER;
+            for (int row = 0; row < rowCount; row++) {
+                String value = text[col][row];
+                double number = parseNumber(value);
+                numbers[col][row] = number;
+                if (Double.isNaN(number) && !isEmptyValue(value)) {
+                    columnTypes[col] = ColumnType.STRING;
+                }
+            }
+        }
+    }
+
+    /**
+     * Carga una tabla completa a través de la conexión jdbc csv.
+     * 
+     * @param connection
+     *            conexión al directorio de datos.
+     * @param tableName
+     *            nombre de la tabla.
+     * @param file
+     *            fichero del que se cargan los datos.
+     * @return tabla en memoria.
+     * @throws SQLException
+     *             si la tabla no existe o no se puede leer.
+     */
+    static CsvTable load(Connection connection, String tableName, File file)
+            throws SQLException {
+        // Se toma la huella antes de leer para no perder cambios concurrentes
+        long lastModified = file.lastModified();
+        long length = file.length();
+        return query(connection, tableName, "Select * from " + tableName,
+                lastModified, length);
+    }
+
+    /**
+     * Ejecuta una consulta y materializa su resultado en una tabla en memoria.
+     * La sentencia y el resultado se cierran siempre antes de volver.
+     * 
+     * @param connection
+     *            conexión al directorio de datos.
+     * @param tableName
+     *            nombre con el que se identifica el resultado.
+     * @param sql
+     *            sentencia sql a ejecutar.
+     * @param lastModified
+     *            fecha de modificación del fichero de origen.
+     * @param length
+     *            tamaño del fichero de origen.
+     * @return tabla en memoria con el resultado de la consulta.
+     * @throws SQLException
+     *             si la consulta no se puede ejecutar.
+     */
+    static CsvTable query(Connection connection, String tableName, String sql,
+            long lastModified, long length) throws SQLException {
+        if (connection == null) {
+            throw new SQLException("Sin conexión al directorio de datos");
+        }
+        Statement statement = connection.createStatement();
+        try {
+            ResultSet result = statement.executeQuery(sql);
+            try {
+                ResultSetMetaData rmeta = result.getMetaData();
+                int numColumns = rmeta.getColumnCount();
+                String[] columnNames = new String[numColumns];
+                for (int i = 0; i < numColumns; i++) {
+                    columnNames[i] = rmeta.getColumnName(i + 1);
+                }
+                List<String[]> rows = new ArrayList<String[]>();
+                while (result.next()) {
+                    String[] values = new String[numColumns];
+                    for (int i = 0; i < numColumns; i++) {
+                        values[i] = result.getString(i + 1);
+                    }
+                    rows.add(values);
+                }
+                return new CsvTable(tableName, columnNames, rows,
+                        lastModified, length);
+            } finally {
+                result.close();
+            }
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Interpreta una celda como número siguiendo el criterio del driver csv:
+     * se admite la coma como separador decimal.
+     * 
+     * @param value
+     *            valor de la celda.
+     * @return el número, o NaN si la celda está vacía o no es numérica.
+     */
+    static double parseNumber(String value) {
+        if (isEmptyValue(value)) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value.trim().replace(',', '.'));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Comprueba si el valor de una celda está vacío.
+     * 
+     * @param value
+     *            valor de la celda.
+     * @return true si es nulo o cadena vacía.
+     */
+    static boolean isEmptyValue(String value) {
+        return value == null || "".equals(value);
+    }
+
+    /**
+     * Comprueba si la tabla sigue correspondiendo al fichero, es decir, si no
+     * ha cambiado ni su fecha de modificación ni su tamaño.
+     * 
+     * @param file
+     *            fichero de origen.
+     * @return true si la tabla está vigente.
+     */
+    boolean isCurrent(File file) {
+        return file.lastModified() == lastModified && file.length() == length;
+    }
+
+    /**
+     * Obtiene la posición de una columna. Los nombres no distinguen entre
+     * mayúsculas y minúsculas, igual que en las consultas sql.
+     * 
+     * @param columnName
+     *            nombre de la columna.
+     * @return índice de la columna.
+     * @throws SQLException
+     *             si la columna no existe.
+     */
+    int getColumnIndex(String columnName) throws SQLException {
+        for (int i = 0; i < columnNames.length; i++) {
+            if (columnNames[i].equalsIgnoreCase(columnName)) {
+                return i;
+            }
+        }
+        throw new SQLException("Invalid column name: " + columnName
+                + " en la tabla " + name);
+    }
+
+    /**
+     * @return nombre de la tabla.
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return número de filas.
+     */
+    int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @param column
+     *            índice de la columna.
+     * @return tipo inferido de la columna.
+     */
+    ColumnType getColumnType(int column) {
+        return columnTypes[column];
+    }
+
+    /**
+     * @param column
+     *            índice de la columna.
+     * @param row
+     *            índice de la fila.
+     * @return valor original de la celda.
+     */
+    String getString(int column, int row) {
+        return text[column][row];
+    }
+
+    /**
+     * @param column
+     *            índice de la columna.
+     * @param row
+     *            índice de la fila.
+     * @return valor numérico de la celda, NaN si está vacía o no es numérica.
+     */
+    double getNumber(int column, int row) {
+        return numbers[column][row];
+    }
+
+    /**
+     * Obtiene los valores numéricos de una columna sin copiarlos.
+     * 
+     * @param column
+     *            índice de la columna.
+     * @return columna numérica, con NaN en las celdas vacías o no numéricas.
+     */
+    DoubleColumn getNumberColumn(int column) {
+        return new DoubleColumn(numbers[column], rowCount);
+    }
+
+    /**
+     * @param column
+     *            índice de la columna.
+     * @param row
+     *            índice de la fila.
+     * @return true si la celda está vacía.
+     */
+    boolean isEmpty(int column, int row) {
+        return isEmptyValue(text[column][row]);
+    }
+}
@@ -0,0 +1,226 @@
+package ubu.digit.pesistence;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Instantánea de todas las tablas del directorio de datos cargadas en memoria.
+ * Se construye completa antes de publicarse y no cambia después, de modo que
+ * cualquier número de hilos puede leerla sin sincronización.
+ * <p>
+ * Recuerda la fecha de modificación y el tamaño de cada fichero CSV para saber
+ * si el directorio ha cambiado desde que se cargó. Los índices por años se
+ * calculan la primera vez que se piden y se guardan en la propia instancia.
+ * 
+ * @since 4.1
+ */
+final class DataSnapshot {
+
+    /**
+     * Logger de la clase.
+     */
+    private static final Logger LOGGER = Logger.getLogger(DataSnapshot.class);
+
+    /**
+     * Extensión de los ficheros que contienen las tablas.
+     */
+    static final String CSV_SUFFIX = ".csv";
+
+    /**
+     * Tablas cargadas, indexadas por nombre.
+     */
+    private final Map<String, CsvTable> tables;
+
+    /**
+     * Huella (fecha de modificación y tamaño) de cada fichero CSV del
+     * directorio cuando se cargó, incluidos los que no se pudieron leer.
+     */
+    private final Map<String, String> sources;
+
+    /**
+     * Índices por años de las columnas de fecha, indexados por tabla y
+     * columna.
+     */
+    private final ConcurrentMap<String, YearIndex> yearIndexes = new ConcurrentHashMap<String, YearIndex>();
+
+    /**
+     * Constructor.
+     * 
+     * @param tables
+     *            tablas cargadas.
+     * @param sources
+     *            huella de cada fichero del directorio.
+     */
+    private DataSnapshot(Map<String, CsvTable> tables,
+            Map<String, String> sources) {
+        this.tables = Collections.unmodifiableMap(tables);
+        this.sources = Collections.unmodifiableMap(sources);
+    }
+
+    /**
+     * Carga todas las tablas de un directorio. Las tablas que no se pueden
+     * leer se registran en el log y no forman parte de la instantánea.
+     * 
+     * @param connection
+     *            conexión al directorio de datos.
+     * @param dir
+     *            directorio de datos.
+     * @return la instantánea.
+     */
+    static DataSnapshot load(Connection connection, File dir) {
+        Map<String, String> sources = scan(dir);
+        Map<String, CsvTable> tables = new HashMap<String, CsvTable>();
+        for (String tableName : sources.keySet()) {
+            File file = new File(dir, tableName + CSV_SUFFIX);
+            try {
+                tables.put(tableName,
+                        CsvTable.load(connection, tableName, file));
+            } catch (SQLException e) {
+                LOGGER.error("No se puede cargar la tabla " + tableName, e);
+            }
+        }
+        return new DataSnapshot(tables, sources);
+    }
+
+    /**
+     * @return instantánea sin tablas.
+     */
+    static DataSnapshot empty() {
+        return new DataSnapshot(new HashMap<String, CsvTable>(),
+                new TreeMap<String, String>());
+    }
+
+    /**
+     * Obtiene la huella de los ficheros CSV de un directorio.
+     * 
+     * @param dir
+     *            directorio de datos.
+     * @return fecha de modificación y tamaño de cada fichero, indexado por
+     *         nombre de tabla.
+     */
+    static Map<String, String> scan(File dir) {
+        Map<String, String> sources = new TreeMap<String, String>();
+        File[] files = dir.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(CSV_SUFFIX);
+            }
+        });
+        if (files == null) {
+            return sources;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            sources.put(name.substring(0, name.length() - CSV_SUFFIX.length()),
+                    file.lastModified() + ":" + file.length());
+        }
+        return sources;
+    }
+
+    /**
+     * Comprueba si el directorio ha cambiado desde que se cargó la
+     * instantánea: ficheros nuevos, borrados o modificados.
+     * 
+     * @param dir
+     *            directorio de datos.
+     * @return true si hay que volver a cargar.
+     */
+    boolean isStale(File dir) {
+        return !sources.equals(scan(dir));
+    }
+
+    /**
+     * Obtiene la fecha de modificación más reciente de los ficheros de unas
+     * tablas cuando se cargaron.
+     * 
+     * @param tableNames
+     *            nombres de las tablas; si no se indica ninguna, se tienen en
+     *            cuenta todas las del directorio.
+     * @return fecha de modificación en milisegundos, o 0 si no hay ninguna de
+     *         las tablas.
+     */
+    long getLastModified(String... tableNames) {
+        Iterable<String> names = tableNames.length == 0 ? sources.keySet()
+                : Arrays.asList(tableNames);
+        long newest = 0;
+        for (String name : names) {
+            String source = sources.get(name);
+            if (source != null) {
+                newest = Math.max(newest, Long.parseLong(source.substring(0,
+                        source.indexOf(':'))));
+            }
+        }
+        return newest;
+    }
+
+    /**
+     * Obtiene la huella de los ficheros de unas tablas cuando se cargaron.
+     * 
+     * @param tableNames
+     *            nombres de las tablas.
+     * @return nombre, fecha de modificación y tamaño de cada fichero, o un
+     *         guión para las tablas que no existen.
+     */
+    String getFingerprint(String... tableNames) {
+        StringBuilder fingerprint = new StringBuilder();
+        for (String name : tableNames) {
+            String source = sources.get(name);
+            fingerprint.append(name).append('=')
+                    .append(source == null ? "-" : source).append(';');
+        }
+        return fingerprint.toString();
+    }
+
+    /**
+     * @param tableName
+     *            nombre de la tabla.
+     * @return tabla en memoria.
+     * @throws SQLException
+     *             si la tabla no existe o no se pudo cargar.
+     */
+    CsvTable getTable(String tableName) throws SQLException {
+        CsvTable table = tables.get(tableName);
+        if (table == null) {
+            throw new SQLException("No existe la tabla: " + tableName);
+        }
+        return table;
+    }
+
+    /**
+     * Obtiene el índice por años de una columna de fecha, construyéndolo la
+     * primera vez.
+     * 
+     * @param tableName
+     *            nombre de la tabla.
+     * @param columnName
+     *            nombre de la columna de fecha.
+     * @return índice por años.
+     * @throws SQLException
+     *             si la tabla o la columna no existen.
+     */
+    YearIndex getYearIndex(String tableName, String columnName)
+            throws SQLException {
+        String key = tableName + '.' + columnName.toLowerCase();
+        YearIndex index = yearIndexes.get(key);
+        if (index == null) {
+            CsvTable table = getTable(tableName);
+            index = YearIndex.build(table, table.getColumnIndex(columnName));
+            YearIndex previous = yearIndexes.putIfAbsent(key, index);
+            if (previous != null) {
+                index = previous;
+            }
+        }
+        return index;
+    }
+}
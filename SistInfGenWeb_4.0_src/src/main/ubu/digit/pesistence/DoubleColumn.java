@@ -0,0 +1,215 @@
+package ubu.digit.pesistence;
+
+/**
+ * Columna de números reales almacenada en un array de primitivos que crece
+ * según se añaden valores. Las celdas vacías se guardan como NaN y no
+ * intervienen en ninguna de las medidas estadísticas.
+ * <p>
+ * Evita crear un objeto por cada valor, como ocurre con las listas de Float o
+ * Double, y calcula las medidas recorriendo el array sin copias intermedias.
+ * 
+ * @since 4.1
+ */
+public class DoubleColumn {
+
+    /**
+     * Capacidad inicial por defecto.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Valores de la columna. Solo son válidas las primeras size posiciones.
+     */
+    private double[] values;
+
+    /**
+     * Número de celdas de la columna, vacías incluidas.
+     */
+    private int size;
+
+    /**
+     * Indica si el array es ajeno y hay que copiarlo antes de modificarlo.
+     */
+    private boolean shared;
+
+    /**
+     * Constructor de una columna vacía.
+     */
+    public DoubleColumn() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor de una columna vacía con capacidad inicial.
+     * 
+     * @param capacity
+     *            número de celdas que caben sin ampliar el array.
+     */
+    public DoubleColumn(int capacity) {
+        values = new double[Math.max(capacity, 1)];
+        size = 0;
+    }
+
+    /**
+     * Constructor que envuelve un array ya existente sin copiarlo. El array
+     * no se modifica: al añadir el primer valor la columna pasa a usar una
+     * copia ampliada, aunque el array tenga posiciones libres.
+     * 
+     * @param values
+     *            valores de la columna.
+     * @param size
+     *            número de posiciones válidas del array.
+     */
+    DoubleColumn(double[] values, int size) {
+        this.values = values;
+        this.size = size;
+        this.shared = true;
+    }
+
+    /**
+     * Añade un valor al final de la columna.
+     * 
+     * @param value
+     *            valor a añadir; NaN representa una celda vacía.
+     */
+    public void add(double value) {
+        if (shared || size == values.length) {
+            double[] grown = new double[Math.max(size * 2, 1)];
+            System.arraycopy(values, 0, grown, 0, size);
+            values = grown;
+            shared = false;
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Añade una celda vacía al final de la columna.
+     */
+    public void addEmpty() {
+        add(Double.NaN);
+    }
+
+    /**
+     * @param index
+     *            posición de la celda.
+     * @return valor de la celda, NaN si está vacía.
+     */
+    public double get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+                    + size);
+        }
+        return values[index];
+    }
+
+    /**
+     * @param index
+     *            posición de la celda.
+     * @return true si la celda está vacía.
+     */
+    public boolean isEmpty(int index) {
+        return Double.isNaN(get(index));
+    }
+
+    /**
+     * @return número de celdas, vacías incluidas.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return número de celdas no vacías.
+     */
+    public int count() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (!Double.isNaN(values[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return valor mínimo de las celdas no vacías, NaN si no hay ninguna.
+     */
+    public double min() {
+        double min = Double.NaN;
+        for (int i = 0; i < size; i++) {
+            double value = values[i];
+            if (!Double.isNaN(value) && !(value >= min)) {
+                min = value;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * @return valor máximo de las celdas no vacías, NaN si no hay ninguna.
+     */
+    public double max() {
+        double max = Double.NaN;
+        for (int i = 0; i < size; i++) {
+            double value = values[i];
+            if (!Double.isNaN(value) && !(value <= max)) {
+                max = value;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @return media aritmética de las celdas no vacías, NaN si no hay
+     *         ninguna.
+     */
+    public double mean() {
+        double sum = 0;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            double value = values[i];
+            if (!Double.isNaN(value)) {
+                sum += value;
+                count++;
+            }
+        }
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    /**
+     * Calcula la desviación estándar muestral de las celdas no vacías en una
+     * sola pasada con el algoritmo de Welford, que no pierde precisión al
+     * restar cantidades grandes.
+     * 
+     * @return desviación estándar muestral, NaN si hay menos de dos valores.
+     */
+    public double stdev() {
+        double mean = 0;
+        double m2 = 0;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            double value = values[i];
+            if (!Double.isNaN(value)) {
+                count++;
+                double delta = value - mean;
+                mean += delta / count;
+                m2 += delta * (value - mean);
+            }
+        }
+        return count < 2 ? Double.NaN : Math.sqrt(m2 / (count - 1));
+    }
+
+    /**
+     * @return copia de los valores de las celdas no vacías, en orden.
+     */
+    public double[] toArray() {
+        double[] result = new double[count()];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (!Double.isNaN(values[i])) {
+                result[n++] = values[i];
+            }
+        }
+        return result;
+    }
+}
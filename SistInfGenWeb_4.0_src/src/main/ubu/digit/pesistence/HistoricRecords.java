@@ -0,0 +1,309 @@
+package ubu.digit.pesistence;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TimeZone;
+
+/**
+ * Proyectos del histórico almacenados por columnas en arrays de primitivos.
+ * Cada proyecto se identifica por su posición (la fila de la tabla
+ * Historico) y de él se guardan:
+ * <ul>
+ * <li>las fechas de asignación y presentación como días desde el 1/1/1970
+ * (fecha local),</li>
+ * <li>el total de días y la nota,</li>
+ * <li>los alumnos y tutores como identificadores de un diccionario de
+ * nombres, o {@link #EMPTY} si no hay.</li>
+ * </ul>
+ * Los proyectos se pueden recorrer agrupados por el año de la fecha de
+ * asignación.
+ * 
+ * @since 4.1
+ */
+public class HistoricRecords {
+
+    /**
+     * Identificador de una persona vacía.
+     */
+    public static final int EMPTY = -1;
+
+    /**
+     * Valor de una fecha vacía o no reconocida.
+     */
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    /**
+     * Número máximo de alumnos o de tutores por proyecto.
+     */
+    public static final int MAX_PEOPLE = 3;
+
+    /**
+     * Milisegundos de un día.
+     */
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    /**
+     * Número de proyectos.
+     */
+    private final int size;
+
+    /**
+     * Fecha de asignación de cada proyecto, en días.
+     */
+    private final int[] assigned;
+
+    /**
+     * Fecha de presentación de cada proyecto, en días.
+     */
+    private final int[] presented;
+
+    /**
+     * Total de días de cada proyecto.
+     */
+    private final int[] days;
+
+    /**
+     * Nota de cada proyecto.
+     */
+    private final double[] grades;
+
+    /**
+     * Alumnos de cada proyecto, indexados por [alumno][proyecto].
+     */
+    private final int[][] students;
+
+    /**
+     * Tutores de cada proyecto, indexados por [tutor][proyecto].
+     */
+    private final int[][] tutors;
+
+    /**
+     * Diccionario de nombres de alumnos y tutores.
+     */
+    private final String[] names;
+
+    /**
+     * Proyectos de cada año de asignación, en el orden del fichero.
+     */
+    private final SortedMap<Integer, int[]> byYear;
+
+    /**
+     * Constructor.
+     * 
+     * @param assigned
+     *            fechas de asignación, en días.
+     * @param presented
+     *            fechas de presentación, en días.
+     * @param days
+     *            total de días.
+     * @param grades
+     *            notas.
+     * @param students
+     *            identificadores de los alumnos.
+     * @param tutors
+     *            identificadores de los tutores.
+     * @param names
+     *            diccionario de nombres.
+     * @param byYear
+     *            proyectos de cada año de asignación.
+     */
+    HistoricRecords(int[] assigned, int[] presented, int[] days,
+            double[] grades, int[][] students, int[][] tutors,
+            List<String> names, SortedMap<Integer, int[]> byYear) {
+        this.size = assigned.length;
+        this.assigned = assigned;
+        this.presented = presented;
+        this.days = days;
+        this.grades = grades;
+        this.students = students;
+        this.tutors = tutors;
+        this.names = names.toArray(new String[names.size()]);
+        this.byYear = byYear;
+    }
+
+    /**
+     * Convierte una fecha en el número de días desde el 1/1/1970 de su fecha
+     * local.
+     * 
+     * @param date
+     *            fecha, puede ser nula.
+     * @return días desde el 1/1/1970, o {@link #NO_DATE} si es nula.
+     */
+    public static int toEpochDay(Date date) {
+        if (date == null) {
+            return NO_DATE;
+        }
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        return toEpochDay(calendar);
+    }
+
+    /**
+     * Convierte una fecha local en el número de días desde el 1/1/1970. Los
+     * campos se interpretan como en {@link Calendar#set(int, int, int)}: el
+     * mes empieza en 0 y los valores fuera de rango se normalizan.
+     * 
+     * @param year
+     *            año.
+     * @param month
+     *            mes, empezando en 0.
+     * @param day
+     *            día del mes.
+     * @return días desde el 1/1/1970.
+     */
+    public static int toEpochDay(int year, int month, int day) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month, day);
+        return toEpochDay(calendar);
+    }
+
+    /**
+     * @param calendar
+     *            fecha local.
+     * @return días desde el 1/1/1970 de la fecha local.
+     */
+    private static int toEpochDay(Calendar calendar) {
+        long local = calendar.getTimeInMillis()
+                + calendar.get(Calendar.ZONE_OFFSET)
+                + calendar.get(Calendar.DST_OFFSET);
+        long epochDay = local / MILLIS_PER_DAY;
+        if (local % MILLIS_PER_DAY < 0) {
+            epochDay--;
+        }
+        return (int) epochDay;
+    }
+
+    /**
+     * @param epochDay
+     *            días desde el 1/1/1970.
+     * @return año de la fecha.
+     */
+    public static int yearOf(int epochDay) {
+        Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        calendar.setTimeInMillis(epochDay * MILLIS_PER_DAY);
+        return calendar.get(Calendar.YEAR);
+    }
+
+    /**
+     * @return número de proyectos.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param year
+     *            año de asignación.
+     * @return proyectos asignados ese año, en el orden del fichero.
+     */
+    public int[] getRecordsOfYear(int year) {
+        int[] records = byYear.get(year);
+        return records == null ? new int[0] : records.clone();
+    }
+
+    /**
+     * @param record
+     *            proyecto.
+     * @return fecha de asignación en días, o {@link #NO_DATE}.
+     */
+    public int getAssigned(int record) {
+        return assigned[record];
+    }
+
+    /**
+     * @param record
+     *            proyecto.
+     * @return fecha de presentación en días, o {@link #NO_DATE}.
+     */
+    public int getPresented(int record) {
+        return presented[record];
+    }
+
+    /**
+     * @param record
+     *            proyecto.
+     * @return total de días.
+     */
+    public int getDays(int record) {
+        return days[record];
+    }
+
+    /**
+     * @param record
+     *            proyecto.
+     * @return nota.
+     */
+    public double getGrade(int record) {
+        return grades[record];
+    }
+
+    /**
+     * @param record
+     *            proyecto.
+     * @param position
+     *            posición del alumno, de 0 a {@link #MAX_PEOPLE} - 1.
+     * @return identificador del alumno, o {@link #EMPTY}.
+     */
+    public int getStudent(int record, int position) {
+        return students[position][record];
+    }
+
+    /**
+     * @param record
+     *            proyecto.
+     * @param position
+     *            posición del tutor, de 0 a {@link #MAX_PEOPLE} - 1.
+     * @return identificador del tutor, o {@link #EMPTY}.
+     */
+    public int getTutor(int record, int position) {
+        return tutors[position][record];
+    }
+
+    /**
+     * @param record
+     *            proyecto.
+     * @return número de alumnos del proyecto.
+     */
+    public int getStudentCount(int record) {
+        return count(students, record);
+    }
+
+    /**
+     * @param record
+     *            proyecto.
+     * @return número de tutores del proyecto.
+     */
+    public int getTutorCount(int record) {
+        return count(tutors, record);
+    }
+
+    /**
+     * @param id
+     *            identificador de una persona.
+     * @return nombre de la persona.
+     */
+    public String getName(int id) {
+        return names[id];
+    }
+
+    /**
+     * @param people
+     *            identificadores de alumnos o tutores.
+     * @param record
+     *            proyecto.
+     * @return número de personas no vacías del proyecto.
+     */
+    private static int count(int[][] people, int record) {
+        int total = 0;
+        for (int[] column : people) {
+            if (column[record] != EMPTY) {
+                total++;
+            }
+        }
+        return total;
+    }
+}
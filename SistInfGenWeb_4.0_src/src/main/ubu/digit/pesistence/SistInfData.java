@@ -1,29 +1,50 @@
 package ubu.digit.pesistence;
 
+import java.io.File;
 import java.sql.Connection;
 import java.sql.DriverManager;
-import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.log4j.Logger;
 
+import ubu.digit.stats.Interpolation;
+import ubu.digit.stats.Quantiles;
 import ubu.digit.util.ExternalProperties;
 
 /**
  * Fachada Singleton de acceso a datos a través de un recurso
  * jdbc:relique:csv:dir (directorio donde se encuentra). Se proporciona una hoja
  * de datos con la definición de la estructura para probar sus funciones.
+ * <p>
+ * Cada tabla se lee una única vez a través del recurso jdbc y se guarda en
+ * memoria por columnas. Todas las consultas de la fachada se resuelven sobre
+ * esa copia, que solo se vuelve a cargar cuando cambia la fecha de
+ * modificación o el tamaño del fichero CSV.
+ * <p>
+ * Las tablas se cargan todas juntas en una instantánea inmutable que se
+ * publica de forma atómica. Cualquier número de hilos puede consultar la
+ * fachada sin bloqueos mientras se construye en segundo plano la instantánea
+ * siguiente, que sustituye a la anterior cuando está completa.
  * 
  * @author Carlos López Nozal
  * @author Beatriz Zurera Martínez-Acitores
@@ -36,11 +57,6 @@ public class SistInfData {
      */
     private static final Logger LOGGER = Logger.getLogger(SistInfData.class);
 
-    /**
-     * Conexión que se produce entre la base de datos y la aplicación.
-     */
-    private Connection connection;
-
     /**
      * Instancia con los datos.
      */
@@ -51,6 +67,12 @@ public class SistInfData {
      */
     private static final String URL = "jdbc:relique:csv:";
 
+    /**
+     * Condición de filtrado que se resuelve en memoria: Columna='valor'.
+     */
+    private static final Pattern EQUALS_CONDITION = Pattern
+            .compile("\\s*(\\w+)\\s*=\\s*'([^']*)'\\s*;?\\s*");
+
     /**
      * URL donde encontramos el fichero con las propiedades del proyecto.
      */
@@ -64,17 +86,27 @@ public class SistInfData {
     private static final String DIRCSV = prop.getSetting("dataIn");
 
     /**
-     * Constructor vacío.
+     * Ejecutor de las recargas en segundo plano.
+     */
+    private static ExecutorService reloader;
+
+    /**
+     * Instantánea con las tablas en memoria que se consulta actualmente.
+     */
+    private final AtomicReference<DataSnapshot> snapshot;
+
+    /**
+     * Constructor vacío. Carga la primera instantánea de los datos.
      */
     private SistInfData() {
         super();
-        this.connection = this.getConection(URL);
+        this.snapshot = new AtomicReference<DataSnapshot>(loadSnapshot());
     }
 
     /**
      * Método singleton para obtener la instancia de la clase fachada.
      */
-    public static SistInfData getInstance() {
+    public static synchronized SistInfData getInstance() {
         if (instance == null) {
             instance = new SistInfData();
         }
@@ -86,51 +118,185 @@ public class SistInfData {
      * 
      * @param url
      *            cadena de conexión jdbc.csv.
+     * @return la conexión, que debe cerrar quien la pide.
+     * @throws SQLException
+     *             si no se puede conectar.
      */
-    private Connection getConection(String url) {
-        Connection con = null;
+    private static Connection getConection(String url) throws SQLException {
         try {
             Class.forName("org.relique.jdbc.csv.CsvDriver");
-
-            con = DriverManager.getConnection(url + DIRCSV);
-
         } catch (ClassNotFoundException e) {
-            LOGGER.error(e);
+            throw new SQLException("No se encuentra el driver csv", e);
+        }
+        return DriverManager.getConnection(url + DIRCSV);
+    }
+
+    /**
+     * Carga todas las tablas del directorio de datos en una instantánea nueva.
+     * La conexión se abre sólo durante la carga.
+     * 
+     * @return la instantánea; vacía si no se puede acceder a los datos.
+     */
+    private static DataSnapshot loadSnapshot() {
+        Connection connection = null;
+        try {
+            connection = getConection(URL);
+            return DataSnapshot.load(connection, new File(DIRCSV));
         } catch (SQLException e) {
             LOGGER.error(e);
+            return DataSnapshot.empty();
+        } finally {
+            close(connection);
         }
-        return con;
     }
 
     /**
-     * Ejecuta una sentencia SQL sumando todos los datos Float contenidos en la
-     * primera columna.
+     * Cierra una conexión registrando los errores.
      * 
-     * @param SQL
-     *            sentencia sql a ejecutar
-     * @return suma todas la filas de la primera columna
+     * @param connection
+     *            conexión, puede ser nula.
      */
-    private Number getResultSetNumber(String sql) {
-        Number number = 0;
-        boolean hasResults;
+    private static void close(Connection connection) {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                LOGGER.error(e);
+            }
+        }
+    }
 
-        try {
-            Statement statement = connection.createStatement();
-            hasResults = statement.execute(sql);
+    /**
+     * Vuelve a cargar todas las tablas y publica la nueva instantánea. Las
+     * consultas en curso terminan con la instantánea anterior.
+     */
+    public synchronized void reload() {
+        snapshot.set(loadSnapshot());
+    }
 
-            if (hasResults) {
-                ResultSet result = statement.getResultSet();
+    /**
+     * Vuelve a cargar todas las tablas en un hilo en segundo plano. Mientras
+     * tanto las consultas siguen usando la instantánea actual.
+     * 
+     * @return tarea de la recarga, termina cuando se ha publicado la nueva
+     *         instantánea.
+     */
+    public Future<?> reloadInBackground() {
+        return getReloader().submit(new Runnable() {
+            @Override
+            public void run() {
+                reload();
+            }
+        });
+    }
+
+    /**
+     * Comprueba si algún fichero CSV del directorio de datos se ha creado,
+     * borrado o modificado desde que se cargó la instantánea actual.
+     * 
+     * @return true si los datos en memoria no están al día.
+     */
+    public boolean isStale() {
+        return snapshot.get().isStale(new File(DIRCSV));
+    }
+
+    /**
+     * Obtiene la fecha de modificación más reciente de los ficheros CSV de
+     * unas tablas, tal como estaban cuando se cargó la instantánea actual.
+     * 
+     * @param tableNames
+     *            nombres de las tablas; si no se indica ninguna, se tienen en
+     *            cuenta todas las del directorio de datos.
+     * @return fecha de modificación en milisegundos, o 0 si no existe ninguna
+     *         de las tablas.
+     */
+    public long getLastModified(String... tableNames) {
+        return snapshot.get().getLastModified(tableNames);
+    }
+
+    /**
+     * Obtiene la huella de los ficheros CSV de unas tablas, tal como estaban
+     * cuando se cargó la instantánea actual. Cambia si alguno de los ficheros
+     * se modifica, se crea o se borra.
+     * 
+     * @param tableNames
+     *            nombres de las tablas.
+     * @return huella de los ficheros.
+     */
+    public String getFingerprint(String... tableNames) {
+        return snapshot.get().getFingerprint(tableNames);
+    }
+
+    /**
+     * @return ejecutor de las recargas, con un único hilo que no impide que
+     *         termine la aplicación.
+     */
+    private static synchronized ExecutorService getReloader() {
+        if (reloader == null) {
+            reloader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "SistInfData-reload");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return reloader;
+    }
+
+    /**
+     * Obtiene una tabla en memoria de la instantánea actual.
+     * 
+     * @param tableName
+     *            nombre de la tabla de datos.
+     * @return tabla en memoria.
+     * @throws SQLException
+     *             si la tabla no existe o no se pudo leer.
+     */
+    CsvTable getTable(String tableName) throws SQLException {
+        return snapshot.get().getTable(tableName);
+    }
 
-                if (result != null) {
-                    result.next();
-                    number = result.getFloat(1);
+    /**
+     * Selecciona las filas de una tabla que cumplen una condición sql. Las
+     * condiciones de igualdad simples (Columna='valor') se resuelven en
+     * memoria; el resto se delega en el recurso jdbc.
+     * 
+     * @param tableName
+     *            nombre de la tabla de datos.
+     * @param whereCondition
+     *            condición de la claúsula where.
+     * @return cursor con las filas que cumplen la condición.
+     * @throws SQLException
+     */
+    private TableCursor select(String tableName, String whereCondition)
+            throws SQLException {
+        CsvTable table = getTable(tableName);
+        Matcher matcher = EQUALS_CONDITION.matcher(whereCondition);
+        if (matcher.matches()) {
+            int column = table.getColumnIndex(matcher.group(1));
+            String value = matcher.group(2);
+            int[] rows = new int[table.getRowCount()];
+            int nRows = 0;
+            for (int row = 0; row < table.getRowCount(); row++) {
+                if (value.equals(table.getString(column, row))) {
+                    rows[nRows++] = row;
                 }
-                result.close();
             }
-        } catch (SQLException e) {
-            LOGGER.error(e);
+            return new TableCursor(table, trim(rows, nRows));
         }
-        return number;
+
+        String sql = "Select * from " + tableName + " WHERE " + whereCondition
+                + ";";
+        Connection connection = getConection(URL);
+        CsvTable result;
+        try {
+            result = CsvTable.query(connection, tableName, sql, 0, 0);
+        } finally {
+            close(connection);
+        }
+        return new TableCursor(result, allRows(result));
     }
 
     /**
@@ -147,14 +313,7 @@ public class SistInfData {
     public Number getAvgColumn(String columnName, String tableName)
             throws SQLException {
 
-        List<Float> media = obtenerDatos(columnName, tableName);
-        Float resultadoMedia = new Float(0);
-
-        for (Float numero : media) {
-            resultadoMedia += numero;
-        }
-
-        return resultadoMedia / media.size();
+        return (float) obtenerDatos(columnName, tableName).mean();
     }
 
     /**
@@ -171,7 +330,7 @@ public class SistInfData {
     public Number getMaxColumn(String columnName, String tableName)
             throws SQLException {
 
-        return Collections.max(obtenerDatos(columnName, tableName));
+        return (float) obtenerDatos(columnName, tableName).max();
     }
 
     /**
@@ -188,7 +347,7 @@ public class SistInfData {
     public Number getMinColumn(String columnName, String tableName)
             throws SQLException {
 
-        return Collections.min(obtenerDatos(columnName, tableName));
+        return (float) obtenerDatos(columnName, tableName).min();
     }
 
     /**
@@ -205,82 +364,24 @@ public class SistInfData {
     public Number getStdvColumn(String columnName, String tableName)
             throws SQLException {
 
-        return calculateStdev(obtenerDatos(columnName, tableName));
+        return obtenerDatos(columnName, tableName).stdev();
     }
 
     /**
      * Obtiene los datos de una columna determinada de una tabla determinada.
+     * Las celdas vacías o no numéricas quedan como NaN y no intervienen en
+     * los cálculos.
      * 
      * @param columnName
      *            nombre de la columna
      * @param tableName
      *            nombre de la tabla de datos
-     * @return Listado con los datos de dicha columna.
+     * @return columna numérica con los datos.
      */
-    private List<Float> obtenerDatos(String columnName, String tableName)
+    private DoubleColumn obtenerDatos(String columnName, String tableName)
             throws SQLException {
-        Statement statement = connection.createStatement();
-        String sql = "Select " + columnName + " from " + tableName + ";";
-        ResultSet result = statement.executeQuery(sql);
-
-        // Capturamos los metadatos de la tabla
-        ResultSetMetaData rmeta = result.getMetaData();
-        int numColumns = rmeta.getColumnCount();
-        List<Float> media = new ArrayList<Float>();
-        // Recorremos las filas del cursor
-        while (result.next()) {
-            for (int i = 1; i <= numColumns; ++i) {
-                media.add(result.getFloat(i));
-            }
-        } // while
-        result.close();
-        return media;
-    }
-
-    /**
-     * Calcula la desviación standard.
-     * 
-     * @param list
-     *            Listado de los números de los que calcular la desviación.
-     * @return Desviación standard.
-     */
-    private Double calculateStdev(List<Float> list) {
-        double sum = 0;
-
-        // Taking the average to numbers
-        for (int i = 0; i < list.size(); i++) {
-            sum = sum + list.get(i);
-        }
-
-        double mean = sum / list.size();
-
-        double[] deviations = new double[list.size()];
-
-        // Taking the deviation of mean from each numbers
-        for (int i = 0; i < deviations.length; i++) {
-            deviations[i] = list.get(i) - mean;
-        }
-
-        double[] squares = new double[list.size()];
-
-        // getting the squares of deviations
-        for (int i = 0; i < squares.length; i++) {
-            squares[i] = deviations[i] * deviations[i];
-        }
-
-        sum = 0;
-
-        // adding all the squares
-        for (int i = 0; i < squares.length; i++) {
-            sum = sum + squares[i];
-        }
-
-        // dividing the numbers by one less than total numbers
-        double result = sum / (list.size() - 1);
-
-        // Taking square root of result gives the
-        // standard deviation
-        return Math.sqrt(result);
+        CsvTable table = getTable(tableName);
+        return table.getNumberColumn(table.getColumnIndex(columnName));
     }
 
     /**
@@ -298,43 +399,71 @@ public class SistInfData {
     public Number getQuartilColumn(String columnName, String tableName,
             double percent) throws SQLException {
 
-        Number nTotalValue = getTotalNumber(columnName, tableName);
-
-        String sql = "Select " + columnName + " from " + tableName + " where "
-                + columnName + "!= ''" + " order by " + columnName;
+        double[] values = obtenerDatos(columnName, tableName).toArray();
 
-        List<Double> listValues = getListNumber(columnName, sql);
-
-        int indexMedian = new Double(nTotalValue.intValue() * percent)
-                .intValue();
-
-        return listValues.get(indexMedian);
+        return Quantiles.select(values, values.length, percent,
+                Interpolation.INDEX_FLOOR);
     }
 
     /**
+     * Obtiene en una sola consulta el resumen estadístico (número de valores,
+     * mínimo, máximo, media, desviación estándar y cuartiles) de la columna de
+     * una tabla. Solo se tienen en cuenta las celdas no vacías.
+     * 
      * @param columnName
-     *            Nombre de la columna.
-     * @param SQL
-     *            Sentencia a ejecutar.
-     * @return listado con los números.
+     *            nombre de la columna
+     * @param tableName
+     *            nombre de la tabla de datos
+     * @return resumen estadístico de la columna
      * @throws SQLException
      */
-    private List<Double> getListNumber(String columnName, String sql)
+    public ColumnSummary getSummary(String columnName, String tableName)
             throws SQLException {
-        List<Double> listValues = new ArrayList<Double>(100);
 
-        Statement statement = connection.createStatement();
-        Boolean hasResults = statement.execute(sql);
+        double[] values = obtenerDatos(columnName, tableName).toArray();
+        return ColumnSummary.of(values, values.length);
+    }
 
-        if (hasResults) {
-            ResultSet result = statement.getResultSet();
+    /**
+     * Obtiene en una sola pasada por las filas de una tabla los valores de
+     * varias de sus columnas, como arrays de primitivos. Cada array contiene,
+     * en orden, los valores de las celdas no vacías de su columna, igual que
+     * recorrer getResultSet(tableName, columna) leyendo getDouble: las celdas
+     * no numéricas valen 0.
+     * 
+     * @param tableName
+     *            nombre de la tabla de datos
+     * @param columnsName
+     *            nombres de las columnas
+     * @return valores de cada columna, en el orden de columnsName
+     * @throws SQLException
+     *             si la tabla o alguna de las columnas no existe.
+     */
+    public double[][] getNumberColumns(String tableName, String[] columnsName)
+            throws SQLException {
+        CsvTable table = getTable(tableName);
+        int[] columns = new int[columnsName.length];
+        double[][] values = new double[columnsName.length][];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = table.getColumnIndex(columnsName[i]);
+            values[i] = new double[table.getRowCount()];
+        }
 
-            while (result.next()) {
-                listValues.add(result.getDouble(columnName));
+        int[] counts = new int[columns.length];
+        for (int row = 0; row < table.getRowCount(); row++) {
+            for (int i = 0; i < columns.length; i++) {
+                if (!table.isEmpty(columns[i], row)) {
+                    double value = table.getNumber(columns[i], row);
+                    values[i][counts[i]++] = Double.isNaN(value) ? 0 : value;
+                }
             }
-            result.close();
         }
-        return listValues;
+        for (int i = 0; i < columns.length; i++) {
+            if (counts[i] < values[i].length) {
+                values[i] = Arrays.copyOf(values[i], counts[i]);
+            }
+        }
+        return values;
     }
 
     /**
@@ -351,10 +480,15 @@ public class SistInfData {
     public Number getTotalNumber(String columnName, String tableName)
             throws SQLException {
 
-        String sql = "Select distinct count(" + columnName + ")" + "from "
-                + tableName + " where " + columnName + " != '';";
-
-        return getResultSetNumber(sql);
+        CsvTable table = getTable(tableName);
+        int column = table.getColumnIndex(columnName);
+        int total = 0;
+        for (int row = 0; row < table.getRowCount(); row++) {
+            if (!table.isEmpty(column, row)) {
+                total++;
+            }
+        }
+        return (float) total;
     }
 
     /**
@@ -373,11 +507,14 @@ public class SistInfData {
     public Number getTotalNumber(String columnName, String tableName,
             String whereCondition) throws SQLException {
 
-        String sql = "Select distinct count(" + columnName + ")" + " from "
-                + tableName + " where " + columnName + " != '' AND "
-                + whereCondition + " ;";
-
-        return getResultSetNumber(sql);
+        TableCursor cursor = select(tableName, whereCondition);
+        int total = 0;
+        while (cursor.next()) {
+            if (!CsvTable.isEmptyValue(cursor.getString(columnName))) {
+                total++;
+            }
+        }
+        return (float) total;
     }
 
     /**
@@ -393,24 +530,17 @@ public class SistInfData {
      */
     public Number getTotalNumber(String[] columnsName, String tableName)
             throws SQLException {
-        String sql = null;
         Set<String> noDups = new HashSet<String>();
         if (columnsName != null) {
+            CsvTable table = getTable(tableName);
 
             for (int i = 0; i < columnsName.length; i++) {
-                sql = "Select " + columnsName[i] + " from " + tableName
-                        + " where " + columnsName[i] + " != '';";
-                Statement statement = connection.createStatement();
-                ResultSet results = statement.executeQuery(sql);
-
-                ResultSetMetaData rmeta = results.getMetaData();
-                int numColumns = rmeta.getColumnCount();
-                // Recorremos las filas del cursor
-                while (results.next()) {
-                    for (int j = 1; j <= numColumns; ++j) {
-                        noDups.add(results.getString(j));
+                int column = table.getColumnIndex(columnsName[i]);
+                for (int row = 0; row < table.getRowCount(); row++) {
+                    if (!table.isEmpty(column, row)) {
+                        noDups.add(table.getString(column, row));
                     }
-                } // while
+                }
             }
 
             return (float) noDups.size();
@@ -427,10 +557,16 @@ public class SistInfData {
      * @throws SQLException
      */
     public Number getTotalFreeProject() throws SQLException {
-        String sql = "Select count(*) " + "from Proyecto "
-                + " where Alumno1 like '%Aal%'";
-
-        return getResultSetNumber(sql);
+        CsvTable table = getTable("Proyecto");
+        int column = table.getColumnIndex("Alumno1");
+        int total = 0;
+        for (int row = 0; row < table.getRowCount(); row++) {
+            String alumno = table.getString(column, row);
+            if (alumno != null && alumno.contains("Aal")) {
+                total++;
+            }
+        }
+        return (float) total;
     }
 
     /**
@@ -444,13 +580,9 @@ public class SistInfData {
      * @return conjunto de filas distintas de null.
      * @throws SQLException
      */
-    public ResultSet getResultSet(String tableName, String columnName)
+    public TableCursor getResultSet(String tableName, String columnName)
             throws SQLException {
-        Statement statement = connection.createStatement();
-        String sql = "Select * " + " from " + tableName + " where "
-                + columnName + " != '';";
-
-        return statement.executeQuery(sql);
+        return getResultSet(tableName, columnName, null, null);
     }
 
     /**
@@ -467,13 +599,9 @@ public class SistInfData {
      *         where.
      * @throws SQLException
      */
-    public ResultSet getResultSet(String tableName, String columnName,
+    public TableCursor getResultSet(String tableName, String columnName,
             String whereCondition) throws SQLException {
-        Statement statement = connection.createStatement();
-        String sql = "Select * " + " from " + tableName + " WHERE "
-                + whereCondition + ";";
-        statement.execute(sql);
-        return statement.getResultSet();
+        return select(tableName, whereCondition);
     }
 
     /**
@@ -492,41 +620,27 @@ public class SistInfData {
      * @return conjunto de filas distintas de null.
      * @throws SQLException
      */
-    public ResultSet getResultSet(String tableName, String columnName,
+    public TableCursor getResultSet(String tableName, String columnName,
             String[] filters, String[] columnsName) throws SQLException {
-        Statement statement = connection.createStatement();
-        String sql;
-        if (columnsName == null) {
-            sql = "Select * ";
-        } else {
-            sql = "Select ";
-            int index = 0;
+        CsvTable table = getTable(tableName);
+        int column = table.getColumnIndex(columnName);
+        if (columnsName != null) {
+            // Se valida que existan las columnas seleccionadas
             for (String selectedColumn : columnsName) {
-                if (index == 0) {
-                    sql += " " + selectedColumn;
-                    index++;
-                } else {
-                    sql += ", " + selectedColumn;
-                }
+                table.getColumnIndex(selectedColumn);
             }
         }
-        sql += " \nfrom " + tableName + " \nwhere (" + columnName + " != '') ";
-        if (filters != null) {
-            sql += "AND (";
-            int index = 0;
-            for (String filter : filters) {
-                if (index == 0) {
-                    sql += " \n" + columnName + " = '" + filter + "'";
-                    index++;
-                } else {
-                    sql += " \nOR " + columnName + " = '" + filter + "'";
-                }
+
+        int[] rows = new int[table.getRowCount()];
+        int nRows = 0;
+        for (int row = 0; row < table.getRowCount(); row++) {
+            String value = table.getString(column, row);
+            if (!CsvTable.isEmptyValue(value)
+                    && (filters == null || contains(filters, value))) {
+                rows[nRows++] = row;
             }
-            sql += ");";
         }
-
-        statement.execute(sql);
-        return statement.getResultSet();
+        return new TableCursor(table, trim(rows, nRows));
     }
 
     /**
@@ -546,27 +660,51 @@ public class SistInfData {
     public Date getYear(String columnName, String tableName, Boolean minimo)
             throws SQLException {
 
-        Statement statement = connection.createStatement();
-        String sql = "Select " + columnName + " from " + tableName + ";";
-        ResultSet result = statement.executeQuery(sql);
+        CourseRange range = getCourseRange(columnName, tableName);
+        if (minimo) {
+            return range.getMin();
+        } else {
+            return range.getMax();
+        }
+    }
+
+    /**
+     * Método que obtiene en una sola pasada la fecha mínima y la máxima de una
+     * columna de fechas. Las celdas que no contienen una fecha se ignoran.
+     * 
+     * @param columnName
+     *            Nombre de la columna.
+     * @param tableName
+     *            Nombre de la tabla.
+     * @return Intervalo de fechas de la columna.
+     * @throws SQLException
+     *             si la tabla o la columna no existen o no contienen ninguna
+     *             fecha.
+     */
+    public CourseRange getCourseRange(String columnName, String tableName)
+            throws SQLException {
 
-        // Capturamos los metadatos de la tabla
-        ResultSetMetaData rmeta = result.getMetaData();
-        int numColumns = rmeta.getColumnCount();
-        List<Date> listadoFechas = new ArrayList<Date>();
+        CsvTable table = getTable(tableName);
+        int column = table.getColumnIndex(columnName);
+        Date min = null;
+        Date max = null;
 
-        // Recorremos las filas del cursor
-        while (result.next()) {
-            for (int i = 1; i <= numColumns; ++i) {
-                listadoFechas.add(transform(result.getString(i)));
+        for (int row = 0; row < table.getRowCount(); row++) {
+            Date fecha = transform(table.getString(column, row));
+            if (fecha != null) {
+                if (min == null || fecha.before(min)) {
+                    min = fecha;
+                }
+                if (max == null || fecha.after(max)) {
+                    max = fecha;
+                }
             }
-        } // while
-        result.close();
-        if (minimo) {
-            return Collections.min(listadoFechas);
-        } else {
-            return Collections.max(listadoFechas);
         }
+        if (min == null) {
+            throw new SQLException("No hay fechas en la columna " + columnName
+                    + " de la tabla " + tableName);
+        }
+        return new CourseRange(min, max);
     }
 
     /**
@@ -588,51 +726,199 @@ public class SistInfData {
      * @return Un lista con todos los datos que hemos solicitado.
      * @throws SQLException
      */
-    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @SuppressWarnings("rawtypes")
     public List<List> getProjectsCurso(String columnName, String columnName2,
             String columnName3, String columnName4, String tableName,
             Number curso) throws SQLException {
 
-        Statement statement = connection.createStatement();
-        List lista = new ArrayList();
+        YearIndex index = getYearIndex(tableName, columnName);
+        return crearProyectos(index.getTable(), columnName, columnName2,
+                columnName3, columnName4, index.getRows(curso.intValue()));
+    }
 
-        List<List> resultados = new ArrayList<List>();
+    /**
+     * Método que obtiene en una sola llamada los proyectos de todos los
+     * cursos, agrupados por el año de la fecha de asignación. Cada proyecto
+     * tiene el mismo formato que en getProjectsCurso. Para recorrer el
+     * histórico sin crear listas por proyecto, ver getHistoricRecords.
+     * 
+     * @param columnName
+     *            Nombre de la columna de la fecha de asignación.
+     * @param columnName2
+     *            Nombre de la columna de la fecha de presentación.
+     * @param columnName3
+     *            Nombre de la columna del total de días.
+     * @param columnName4
+     *            Nombre de la columna de la nota del proyecto.
+     * @param tableName
+     *            Nombre de la tabla.
+     * @return Los proyectos de cada curso, ordenados por curso. Solo aparecen
+     *         los cursos que tienen algún proyecto.
+     * @throws SQLException
+     */
+    @SuppressWarnings("rawtypes")
+    public SortedMap<Integer, List<List>> getProjectsCursos(String columnName,
+            String columnName2, String columnName3, String columnName4,
+            String tableName) throws SQLException {
+
+        SortedMap<Integer, List<List>> resultados = new TreeMap<Integer, List<List>>();
+        for (Integer curso : getYearIndex(tableName, columnName)
+                .getRowsByYear().keySet()) {
+            resultados.put(curso, getProjectsCurso(columnName, columnName2,
+                    columnName3, columnName4, tableName, curso));
+        }
+        return resultados;
+    }
 
-        String sql = "Select " + columnName + "," + columnName2 + ","
-                + columnName3 + "," + columnName4
-                + ", Alumno1, Alumno2, Alumno3, Tutor1, Tutor2, Tutor3 from "
-                + tableName + " where " + columnName + " like '%" + curso
-                + "';";
+    /**
+     * Método que carga los proyectos del histórico en un almacén por columnas
+     * con tipos primitivos, agrupados por el año de la fecha de asignación.
+     * La tabla debe tener las columnas FechaAsignacion, FechaPresentacion,
+     * TotalDias, Nota, Alumno1, Alumno2, Alumno3, Tutor1, Tutor2 y Tutor3.
+     * 
+     * @param tableName
+     *            Nombre de la tabla.
+     * @return Los proyectos del histórico.
+     * @throws SQLException
+     */
+    public HistoricRecords getHistoricRecords(String tableName)
+            throws SQLException {
 
-        ResultSet result = statement.executeQuery(sql);
+        YearIndex index = getYearIndex(tableName, "FechaAsignacion");
+        CsvTable table = index.getTable();
+        int asignacion = table.getColumnIndex("FechaAsignacion");
+        int presentacion = table.getColumnIndex("FechaPresentacion");
+        int dias = table.getColumnIndex("TotalDias");
+        int nota = table.getColumnIndex("Nota");
+        int[] alumnos = { table.getColumnIndex("Alumno1"),
+                table.getColumnIndex("Alumno2"),
+                table.getColumnIndex("Alumno3") };
+        int[] tutores = { table.getColumnIndex("Tutor1"),
+                table.getColumnIndex("Tutor2"), table.getColumnIndex("Tutor3") };
+
+        int size = table.getRowCount();
+        int[] assigned = new int[size];
+        int[] presented = new int[size];
+        int[] days = new int[size];
+        double[] grades = new double[size];
+        int[][] students = new int[HistoricRecords.MAX_PEOPLE][size];
+        int[][] tutors = new int[HistoricRecords.MAX_PEOPLE][size];
+        List<String> names = new ArrayList<String>();
+        Map<String, Integer> ids = new HashMap<String, Integer>();
+
+        for (int row = 0; row < size; row++) {
+            assigned[row] = HistoricRecords.toEpochDay(transform(table
+                    .getString(asignacion, row)));
+            presented[row] = HistoricRecords.toEpochDay(transform(table
+                    .getString(presentacion, row)));
+            days[row] = (int) numberOrZero(table.getNumber(dias, row));
+            grades[row] = numberOrZero(table.getNumber(nota, row));
+            for (int i = 0; i < HistoricRecords.MAX_PEOPLE; i++) {
+                students[i][row] = personId(table.getString(alumnos[i], row),
+                        names, ids);
+                tutors[i][row] = personId(table.getString(tutores[i], row),
+                        names, ids);
+            }
+        }
+        return new HistoricRecords(assigned, presented, days, grades,
+                students, tutors, names, index.getRowsByYear());
+    }
 
-        while (result.next()) {
+    /**
+     * Obtiene el identificador de una persona en el diccionario de nombres,
+     * añadiéndola si no estaba.
+     * 
+     * @param name
+     *            Nombre de la persona.
+     * @param names
+     *            Nombres ya registrados.
+     * @param ids
+     *            Identificador de cada nombre registrado.
+     * @return Identificador, o HistoricRecords.EMPTY si el nombre está vacío.
+     */
+    private static int personId(String name, List<String> names,
+            Map<String, Integer> ids) {
+        if (CsvTable.isEmptyValue(name)) {
+            return HistoricRecords.EMPTY;
+        }
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            ids.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * Obtiene el índice por años de una columna de fecha. El índice se
+     * construye la primera vez y se vuelve a construir cuando se recarga la
+     * tabla.
+     * 
+     * @param tableName
+     *            Nombre de la tabla.
+     * @param columnName
+     *            Nombre de la columna de fecha.
+     * @return índice por años.
+     * @throws SQLException
+     */
+    private YearIndex getYearIndex(String tableName, String columnName)
+            throws SQLException {
+        return snapshot.get().getYearIndex(tableName, columnName);
+    }
 
-            lista = new ArrayList();
+    /**
+     * Construye la lista de datos de cada una de las filas indicadas: fecha
+     * de asignación, fecha de presentación, días, nota, Alumno1, Alumno2,
+     * Alumno3, Tutor1, Tutor2 y Tutor3.
+     * 
+     * @param table
+     *            Tabla de datos.
+     * @param columnName
+     *            Nombre de la columna de la fecha de asignación.
+     * @param columnName2
+     *            Nombre de la columna de la fecha de presentación.
+     * @param columnName3
+     *            Nombre de la columna del total de días.
+     * @param columnName4
+     *            Nombre de la columna de la nota del proyecto.
+     * @param rows
+     *            Filas de los proyectos.
+     * @return Un listado con los datos de cada proyecto.
+     * @throws SQLException
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private List<List> crearProyectos(CsvTable table, String columnName,
+            String columnName2, String columnName3, String columnName4,
+            int[] rows) throws SQLException {
+        int asignacion = table.getColumnIndex(columnName);
+        int presentacion = table.getColumnIndex(columnName2);
+        int dias = table.getColumnIndex(columnName3);
+        int nota = table.getColumnIndex(columnName4);
+        int[] personas = { table.getColumnIndex("Alumno1"),
+                table.getColumnIndex("Alumno2"),
+                table.getColumnIndex("Alumno3"),
+                table.getColumnIndex("Tutor1"), table.getColumnIndex("Tutor2"),
+                table.getColumnIndex("Tutor3") };
+
+        List<List> resultados = new ArrayList<List>(rows.length);
+
+        for (int row : rows) {
+            List lista = new ArrayList();
             // Fecha asignación
-            lista.add(transform(result.getString(columnName)));
+            lista.add(transform(table.getString(asignacion, row)));
             // Fecha presentación
-            lista.add(transform(result.getString(columnName2)));
+            lista.add(transform(table.getString(presentacion, row)));
             // Dias
-            lista.add(result.getInt(columnName3));
+            lista.add((int) numberOrZero(table.getNumber(dias, row)));
             // Nota
-            lista.add(result.getDouble(columnName4));
-            // Alumno1
-            lista.add(result.getString("Alumno1"));
-            // Alumno2
-            lista.add(result.getString("Alumno2"));
-            // Alumno3
-            lista.add(result.getString("Alumno3"));
-            // Tutor1
-            lista.add(result.getString("Tutor1"));
-            // Tutor2
-            lista.add(result.getString("Tutor2"));
-            // Tutor3
-            lista.add(result.getString("Tutor3"));
+            lista.add(numberOrZero(table.getNumber(nota, row)));
+            // Alumno1, Alumno2, Alumno3, Tutor1, Tutor2, Tutor3
+            for (int persona : personas) {
+                lista.add(table.getString(persona, row));
+            }
             resultados.add(lista);
-
         }
-        result.close();
 
         return resultados;
     }
@@ -658,17 +944,64 @@ public class SistInfData {
     }
 
     /**
-     * Destructor elimina la conexión al sistema de acceso a datos.
+     * Convierte las celdas vacías o no numéricas en 0, como hace el driver
+     * jdbc.
      * 
-     **/
-    @Override
-    public void finalize() throws Throwable {
-        try {
-            connection.close();
-        } catch (SQLException e) {
-            LOGGER.error(e);
+     * @param value
+     *            valor numérico de la celda.
+     * @return el valor, o 0 si es NaN.
+     */
+    private static double numberOrZero(double value) {
+        return Double.isNaN(value) ? 0 : value;
+    }
+
+    /**
+     * Comprueba si un valor está contenido en un array de cadenas.
+     * 
+     * @param values
+     *            valores admitidos.
+     * @param value
+     *            valor a buscar.
+     * @return true si el valor está contenido.
+     */
+    private static boolean contains(String[] values, String value) {
+        for (String candidate : values) {
+            if (value.equals(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param table
+     *            tabla de datos.
+     * @return los índices de todas las filas de la tabla.
+     */
+    private static int[] allRows(CsvTable table) {
+        int[] rows = new int[table.getRowCount()];
+        for (int row = 0; row < rows.length; row++) {
+            rows[row] = row;
+        }
+        return rows;
+    }
+
+    /**
+     * Recorta un array de índices a su tamaño útil.
+     * 
+     * @param rows
+     *            índices de las filas.
+     * @param nRows
+     *            número de índices válidos.
+     * @return array con los nRows primeros índices.
+     */
+    private static int[] trim(int[] rows, int nRows) {
+        if (nRows == rows.length) {
+            return rows;
         }
-        super.finalize();
+        int[] result = new int[nRows];
+        System.arraycopy(rows, 0, result, 0, nRows);
+        return result;
     }
 
 }
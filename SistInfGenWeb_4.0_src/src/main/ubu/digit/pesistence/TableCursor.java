@@ -0,0 +1,122 @@
+package ubu.digit.pesistence;
+
+import java.sql.SQLException;
+
+/**
+ * Cursor de solo lectura sobre un conjunto de filas de una tabla en memoria.
+ * Ofrece el mismo recorrido que un ResultSet (next, getString, getDouble,
+ * close) sin mantener abierto ningún recurso del sistema de almacenamiento.
+ * 
+ * @since 4.1
+ */
+public class TableCursor {
+
+    /**
+     * Tabla sobre la que se recorren las filas.
+     */
+    private final CsvTable table;
+
+    /**
+     * Índices de las filas seleccionadas, en orden de recorrido.
+     */
+    private final int[] rows;
+
+    /**
+     * Posición actual dentro de las filas seleccionadas.
+     */
+    private int position = -1;
+
+    /**
+     * Constructor.
+     * 
+     * @param table
+     *            tabla de datos.
+     * @param rows
+     *            índices de las filas a recorrer.
+     */
+    TableCursor(CsvTable table, int[] rows) {
+        this.table = table;
+        this.rows = rows;
+    }
+
+    /**
+     * Avanza a la siguiente fila.
+     * 
+     * @return true si existe la fila, false si se ha llegado al final.
+     */
+    public boolean next() {
+        if (position < rows.length) {
+            position++;
+        }
+        return position < rows.length;
+    }
+
+    /**
+     * Obtiene el valor de una columna en la fila actual.
+     * 
+     * @param columnName
+     *            nombre de la columna.
+     * @return valor de la celda tal y como aparece en el fichero.
+     * @throws SQLException
+     *             si la columna no existe o no hay fila actual.
+     */
+    public String getString(String columnName) throws SQLException {
+        return table.getString(table.getColumnIndex(columnName), currentRow());
+    }
+
+    /**
+     * Obtiene el valor numérico de una columna en la fila actual. Las celdas
+     * vacías o no numéricas valen 0, igual que en el driver jdbc.
+     * 
+     * @param columnName
+     *            nombre de la columna.
+     * @return valor numérico de la celda.
+     * @throws SQLException
+     *             si la columna no existe o no hay fila actual.
+     */
+    public double getDouble(String columnName) throws SQLException {
+        double value = table.getNumber(table.getColumnIndex(columnName),
+                currentRow());
+        return Double.isNaN(value) ? 0 : value;
+    }
+
+    /**
+     * Obtiene el valor entero de una columna en la fila actual.
+     * 
+     * @param columnName
+     *            nombre de la columna.
+     * @return valor entero de la celda.
+     * @throws SQLException
+     *             si la columna no existe o no hay fila actual.
+     */
+    public int getInt(String columnName) throws SQLException {
+        return (int) getDouble(columnName);
+    }
+
+    /**
+     * @return número de filas del cursor.
+     */
+    public int size() {
+        return rows.length;
+    }
+
+    /**
+     * Cierra el cursor. Se mantiene por compatibilidad con el recorrido de un
+     * ResultSet; los datos están en memoria y no hay recursos que liberar.
+     */
+    public void close() {
+        position = rows.length;
+    }
+
+    /**
+     * @return índice en la tabla de la fila actual.
+     * @throws SQLException
+     *             si el cursor no está posicionado sobre una fila.
+     */
+    private int currentRow() throws SQLException {
+        if (position < 0 || position >= rows.length) {
+            throw new SQLException("El cursor no está posicionado en una fila");
+        }
+        return rows[position];
+    }
+}
@@ -0,0 +1,127 @@
+package ubu.digit.pesistence;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Índice de las filas de una tabla particionado por el año de una columna de
+ * fecha con formato MM/DD/yyyy. Se construye en una sola pasada y permite
+ * obtener las filas de un año sin recorrer la tabla completa.
+ * <p>
+ * Dentro de cada año las filas conservan el orden del fichero.
+ * 
+ * @since 4.1
+ */
+class YearIndex {
+
+    /**
+     * Tabla indexada.
+     */
+    private final CsvTable table;
+
+    /**
+     * Filas de cada año, ordenado por año.
+     */
+    private final SortedMap<Integer, int[]> rowsByYear;
+
+    /**
+     * Constructor.
+     * 
+     * @param table
+     *            tabla indexada.
+     * @param rowsByYear
+     *            filas de cada año.
+     */
+    private YearIndex(CsvTable table, SortedMap<Integer, int[]> rowsByYear) {
+        this.table = table;
+        this.rowsByYear = rowsByYear;
+    }
+
+    /**
+     * Construye el índice recorriendo una vez la columna de fecha. Las filas
+     * con la fecha vacía o sin año reconocible no se indexan.
+     * 
+     * @param table
+     *            tabla a indexar.
+     * @param column
+     *            índice de la columna de fecha.
+     * @return índice por años.
+     */
+    static YearIndex build(CsvTable table, int column) {
+        int rowCount = table.getRowCount();
+        int[] years = new int[rowCount];
+        Map<Integer, Integer> counts = new TreeMap<Integer, Integer>();
+        for (int row = 0; row < rowCount; row++) {
+            Integer year = parseYear(table.getString(column, row));
+            if (year == null) {
+                years[row] = Integer.MIN_VALUE;
+            } else {
+                years[row] = year;
+                Integer count = counts.get(year);
+                counts.put(year, count == null ? 1 : count + 1);
+            }
+        }
+
+        SortedMap<Integer, int[]> rowsByYear = new TreeMap<Integer, int[]>();
+        Map<Integer, Integer> next = new TreeMap<Integer, Integer>();
+        for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+            rowsByYear.put(entry.getKey(), new int[entry.getValue()]);
+            next.put(entry.getKey(), 0);
+        }
+        for (int row = 0; row < rowCount; row++) {
+            if (years[row] != Integer.MIN_VALUE) {
+                int position = next.get(years[row]);
+                rowsByYear.get(years[row])[position] = row;
+                next.put(years[row], position + 1);
+            }
+        }
+        return new YearIndex(table, rowsByYear);
+    }
+
+    /**
+     * Obtiene el año de una fecha con formato MM/DD/yyyy, es decir, el número
+     * que sigue a la última barra.
+     * 
+     * @param date
+     *            fecha en texto.
+     * @return el año, o null si no se reconoce.
+     */
+    static Integer parseYear(String date) {
+        if (CsvTable.isEmptyValue(date)) {
+            return null;
+        }
+        String year = date.substring(date.lastIndexOf('/') + 1).trim();
+        try {
+            return Integer.valueOf(year);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return tabla indexada.
+     */
+    CsvTable getTable() {
+        return table;
+    }
+
+    /**
+     * @param year
+     *            año buscado.
+     * @return filas de ese año en el orden del fichero; vacío si no hay
+     *         ninguna.
+     */
+    int[] getRows(int year) {
+        int[] rows = rowsByYear.get(year);
+        return rows == null ? new int[0] : rows;
+    }
+
+    /**
+     * @return filas de cada año, ordenado por año.
+     */
+    SortedMap<Integer, int[]> getRowsByYear() {
+        return Collections.unmodifiableSortedMap(rowsByYear);
+    }
+}
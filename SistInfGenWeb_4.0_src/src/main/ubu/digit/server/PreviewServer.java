@@ -0,0 +1,574 @@
+package ubu.digit.server;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.log4j.Logger;
+
+import ubu.digit.htmlgen.DocCurrent;
+import ubu.digit.htmlgen.DocHistoric;
+import ubu.digit.htmlgen.DocIndex;
+import ubu.digit.htmlgen.DocMetric;
+import ubu.digit.htmlgen.DocSistInfHtml;
+import ubu.digit.pesistence.SistInfData;
+import ubu.digit.util.ExternalProperties;
+import ubu.digit.util.FileSink;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Servidor http de vista previa del portal. Genera las páginas y sus gráficos
+ * en memoria, sin escribir el directorio de salida, y sirve además los
+ * recursos estáticos (css, js, imágenes...) del directorio indicado en la
+ * propiedad dirRecursos, que se proyectan en memoria con
+ * {@link FileChannel#map}. Los scripts que se copian dentro de las páginas
+ * también se leen de ese directorio.
+ * <p>
+ * Las páginas se generan al llegar la primera petición y cada una se vuelve a
+ * generar, al pedirla, cuando cambian sus tablas: el servidor comprueba como
+ * mucho cada {@link #CHECK_INTERVAL} milisegundos por página si han cambiado
+ * sus dependencias, y antes si han cambiado los ficheros CSV para recargar
+ * los datos. Entre dos comprobaciones los ficheros generados se sirven sin
+ * bloquear el servidor.
+ * <p>
+ * Todas las respuestas llevan una ETag fuerte y se contesta 304 a las
+ * peticiones con If-None-Match que coincide. Los ficheros de texto se
+ * comprimen con gzip una sola vez, al cargarse, y se sirven comprimidos a los
+ * clientes que lo aceptan.
+ * 
+ * @since 4.1
+ */
+public class PreviewServer {
+
+    /**
+     * Logger de la clase.
+     */
+    private static final Logger LOGGER = Logger.getLogger(PreviewServer.class);
+
+    /**
+     * URL donde encontramos el fichero con las propiedades del proyecto.
+     */
+    private static ExternalProperties prop = ExternalProperties
+            .getInstance("./../src/main/config.properties");
+
+    /**
+     * Directorio de salida de los HTML creados, del que se quita el nombre de
+     * los ficheros generados para obtener su ruta en el servidor.
+     */
+    private static final String DIROUT = prop.getSetting("dirOut");
+
+    /**
+     * Milisegundos entre dos comprobaciones de los ficheros de datos.
+     */
+    public static final long CHECK_INTERVAL = 500;
+
+    /**
+     * Nanosegundos entre dos comprobaciones.
+     */
+    private static final long CHECK_NANOS = TimeUnit.MILLISECONDS
+            .toNanos(CHECK_INTERVAL);
+
+    /**
+     * Página que se sirve al pedir la raíz.
+     */
+    private static final String INDEX = "/index.html";
+
+    /**
+     * Propiedad del servidor http del JDK que desactiva el algoritmo de Nagle.
+     * Sin ella, cada respuesta con cuerpo tarda unos 40 ms más porque la
+     * cabecera y el cuerpo se envían en dos escrituras.
+     */
+    private static final String NODELAY = "sun.net.httpserver.nodelay";
+
+    /**
+     * Nivel de gestión con el que se generan las páginas.
+     */
+    private final int level;
+
+    /**
+     * Directorio de los recursos estáticos.
+     */
+    private final File staticDir;
+
+    /**
+     * Servidor http.
+     */
+    private final HttpServer server;
+
+    /**
+     * Ficheros generados, indexados por ruta.
+     */
+    private final ConcurrentMap<String, Resource> generated = new ConcurrentHashMap<String, Resource>();
+
+    /**
+     * Página que genera cada fichero generado, indexada por ruta.
+     */
+    private final ConcurrentMap<String, Integer> owners = new ConcurrentHashMap<String, Integer>();
+
+    /**
+     * Recursos estáticos proyectados en memoria, indexados por ruta.
+     */
+    private final ConcurrentMap<String, Resource> statics = new ConcurrentHashMap<String, Resource>();
+
+    /**
+     * Huella de las dependencias con la que se generó cada página, o null si
+     * no se ha generado.
+     */
+    private final String[] fingerprints;
+
+    /**
+     * Rutas de los ficheros que generó cada página la última vez.
+     */
+    private final Map<Integer, Set<String>> outputs = new HashMap<Integer, Set<String>>();
+
+    /**
+     * Momento de la última comprobación de las dependencias de cada página,
+     * en nanosegundos.
+     */
+    private final AtomicLongArray checked;
+
+    /**
+     * Momento de la última comprobación de los ficheros de datos, en
+     * nanosegundos.
+     */
+    private long lastCheck;
+
+    /**
+     * Constructor.
+     * 
+     * @param level
+     *            nivel de gestión con el que se generan las páginas.
+     * @param address
+     *            dirección y puerto en los que se atienden las peticiones.
+     * @param staticDir
+     *            directorio de los recursos estáticos.
+     * @throws IOException
+     *             si no se puede abrir el puerto.
+     */
+    public PreviewServer(int level, InetSocketAddress address, File staticDir)
+            throws IOException {
+        this.level = level;
+        this.staticDir = staticDir.getCanonicalFile();
+        this.fingerprints = new String[level];
+        this.lastCheck = System.nanoTime();
+        this.checked = new AtomicLongArray(level);
+        for (int page = 0; page < level; page++) {
+            checked.set(page, lastCheck - CHECK_NANOS);
+        }
+        if (System.getProperty(NODELAY) == null) {
+            System.setProperty(NODELAY, "true");
+        }
+        server = HttpServer.create(address, 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    PreviewServer.this.handle(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Crea un servidor que sólo atiende peticiones del equipo local, con los
+     * recursos estáticos del directorio de la propiedad dirRecursos.
+     * 
+     * @param level
+     *            nivel de gestión con el que se generan las páginas.
+     * @param port
+     *            puerto.
+     * @return el servidor, sin arrancar.
+     * @throws IOException
+     *             si no se puede abrir el puerto.
+     */
+    public static PreviewServer create(int level, int port) throws IOException {
+        return new PreviewServer(level, new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), port), new File(
+                prop.getSetting("dirRecursos", "..\\src\\rsc-main\\web")));
+    }
+
+    /**
+     * Arranca el servidor. Las peticiones se atienden en un ejecutor con un
+     * hilo por procesador.
+     */
+    public void start() {
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime
+                .getRuntime().availableProcessors());
+        server.setExecutor(executor);
+        server.start();
+        LOGGER.info("Servidor de vista previa en http://"
+                + server.getAddress().getHostString() + ":"
+                + server.getAddress().getPort() + "/");
+    }
+
+    /**
+     * Para el servidor.
+     * 
+     * @param delay
+     *            segundos que se espera a que terminen las peticiones en
+     *            curso.
+     */
+    public void stop(int delay) {
+        server.stop(delay);
+        if (server.getExecutor() instanceof ExecutorService) {
+            ((ExecutorService) server.getExecutor()).shutdown();
+        }
+    }
+
+    /**
+     * @return dirección y puerto en los que se atienden las peticiones.
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Atiende una petición.
+     * 
+     * @param exchange
+     *            petición y respuesta.
+     * @throws IOException
+     *             si no se puede enviar la respuesta.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        boolean head = "HEAD".equals(method);
+        if (!head && !"GET".equals(method)) {
+            exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+        String path = exchange.getRequestURI().getPath();
+        if ("/".equals(path)) {
+            path = INDEX;
+        }
+        Resource resource = find(path);
+        if (resource == null) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+
+        Headers request = exchange.getRequestHeaders();
+        boolean gzipped = resource.hasGzip()
+                && acceptsGzip(request.getFirst("Accept-Encoding"));
+        String etag = resource.getEtag(gzipped);
+        Headers response = exchange.getResponseHeaders();
+        response.set("ETag", etag);
+        response.set("Cache-Control", "no-cache");
+        if (resource.hasGzip()) {
+            response.set("Vary", "Accept-Encoding");
+        }
+        if (matches(request.getFirst("If-None-Match"), etag)) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+
+        response.set("Content-Type", resource.getContentType());
+        if (gzipped) {
+            response.set("Content-Encoding", "gzip");
+        }
+        ByteBuffer body = resource.getBody(gzipped);
+        if (head) {
+            response.set("Content-Length", String.valueOf(body.remaining()));
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(200, body.remaining() == 0 ? -1 : body
+                .remaining());
+        OutputStream out = exchange.getResponseBody();
+        WritableByteChannel channel = Channels.newChannel(out);
+        while (body.hasRemaining()) {
+            channel.write(body);
+        }
+        out.close();
+    }
+
+    /**
+     * Busca el recurso de una ruta: primero entre los ficheros generados,
+     * después entre los estáticos y, si no está en ninguno, vuelve a generar
+     * las páginas que hayan cambiado por si fuera un fichero generado nuevo.
+     * La primera petición genera todas las páginas para saber qué ficheros
+     * genera cada una. Como cada página se comprueba como mucho una vez cada
+     * {@link #CHECK_INTERVAL} milisegundos, las rutas que no existen no
+     * obligan a generar de nuevo las páginas en cada petición.
+     * 
+     * @param path
+     *            ruta pedida.
+     * @return el recurso, o null si no existe.
+     * @throws IOException
+     *             si no se puede leer un recurso estático.
+     */
+    private Resource find(String path) throws IOException {
+        if (owners.isEmpty()) {
+            refreshAll();
+        }
+        Integer owner = owners.get(path);
+        if (owner != null) {
+            refresh(owner);
+            Resource resource = generated.get(path);
+            if (resource != null) {
+                return resource;
+            }
+        }
+        Resource resource = findStatic(path);
+        if (resource != null) {
+            return resource;
+        }
+        refreshAll();
+        return generated.get(path);
+    }
+
+    /**
+     * Vuelve a generar todas las páginas que hayan cambiado.
+     */
+    private void refreshAll() {
+        for (int page = 0; page < level; page++) {
+            refresh(page);
+        }
+    }
+
+    /**
+     * Obtiene un recurso estático, proyectando el fichero en memoria la
+     * primera vez que se pide y cada vez que cambia.
+     * 
+     * @param path
+     *            ruta pedida.
+     * @return el recurso, o null si no existe el fichero.
+     * @throws IOException
+     *             si no se puede leer el fichero.
+     */
+    private Resource findStatic(String path) throws IOException {
+        File file = new File(staticDir, path.substring(1)).getCanonicalFile();
+        if (!file.getPath().startsWith(staticDir.getPath() + File.separator)
+                || !file.isFile()) {
+            return null;
+        }
+        String source = file.lastModified() + ":" + file.length();
+        Resource resource = statics.get(path);
+        if (resource != null && source.equals(resource.getSource())) {
+            return resource;
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            resource = new Resource(path, channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, channel.size()), source);
+        } finally {
+            raf.close();
+        }
+        statics.put(path, resource);
+        return resource;
+    }
+
+    /**
+     * Vuelve a generar una página si ha cambiado alguna de sus dependencias
+     * desde la última vez, salvo que se haya comprobado hace menos de
+     * {@link #CHECK_INTERVAL} milisegundos, en cuyo caso no se bloquea el
+     * servidor.
+     * 
+     * @param page
+     *            página: 0 index, 1 actuales, 2 histórico, 3 métricas.
+     */
+    private void refresh(int page) {
+        if (System.nanoTime() - checked.get(page) < CHECK_NANOS) {
+            return;
+        }
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (now - checked.get(page) >= CHECK_NANOS) {
+                regenerate(page, now);
+                checked.set(page, System.nanoTime());
+            }
+        }
+    }
+
+    /**
+     * Vuelve a generar una página si ha cambiado alguna de sus dependencias
+     * desde la última vez. Antes recarga los datos si han cambiado los
+     * ficheros CSV. Se llama con el servidor bloqueado.
+     * 
+     * @param page
+     *            página: 0 index, 1 actuales, 2 histórico, 3 métricas.
+     * @param now
+     *            momento actual, en nanosegundos.
+     */
+    private void regenerate(int page, long now) {
+        SistInfData data = SistInfData.getInstance();
+        if (now - lastCheck >= CHECK_NANOS) {
+            lastCheck = now;
+            if (data.isStale()) {
+                data.reload();
+            }
+        }
+
+        try {
+            DocSistInfHtml doc = createDoc(page);
+            doc.setResourceDir(staticDir);
+            String fingerprint = doc.getFingerprint(level);
+            if (fingerprint.equals(fingerprints[page])) {
+                return;
+            }
+            long start = System.nanoTime();
+            MemorySink sink = new MemorySink();
+            doc.setFileSink(sink);
+            doc.generate(level);
+            if (doc.checkError()) {
+                LOGGER.error("Error al generar la página " + doc.getFileName());
+                return;
+            }
+            Set<String> paths = new HashSet<String>();
+            for (Map.Entry<String, byte[]> file : sink.files.entrySet()) {
+                String path = toPath(file.getKey());
+                generated.put(path, new Resource(path, ByteBuffer.wrap(file
+                        .getValue()), null));
+                owners.put(path, page);
+                paths.add(path);
+            }
+            Set<String> previous = outputs.put(page, paths);
+            if (previous != null) {
+                previous.removeAll(paths);
+                for (String path : previous) {
+                    generated.remove(path);
+                    owners.remove(path);
+                }
+            }
+            fingerprints[page] = fingerprint;
+            LOGGER.info("Generada " + doc.getFileName() + " en "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+                    + " ms");
+        } catch (SQLException e) {
+            LOGGER.error("Error en los datos de la página " + page, e);
+        } catch (FileNotFoundException e) {
+            LOGGER.error("Error al generar la página " + page, e);
+        } catch (IOException e) {
+            LOGGER.error("Error al comprimir la página " + page, e);
+        }
+    }
+
+    /**
+     * Crea el generador de una página.
+     * 
+     * @param page
+     *            página: 0 index, 1 actuales, 2 histórico, 3 métricas.
+     * @return el generador.
+     * @throws SQLException
+     *             si faltan datos de la página.
+     */
+    private static DocSistInfHtml createDoc(int page) throws SQLException {
+        switch (page) {
+        case 0:
+            return new DocIndex();
+        case 1:
+            return new DocCurrent();
+        case 2:
+            return new DocHistoric();
+        default:
+            return new DocMetric();
+        }
+    }
+
+    /**
+     * Obtiene la ruta en el servidor de un fichero generado.
+     * 
+     * @param fileName
+     *            nombre del fichero en el directorio de salida.
+     * @return ruta, empezando por /.
+     */
+    static String toPath(String fileName) {
+        String path = fileName.startsWith(DIROUT) ? fileName.substring(DIROUT
+                .length()) : fileName;
+        path = path.replace('\\', '/');
+        return path.startsWith("/") ? path : "/" + path;
+    }
+
+    /**
+     * Comprueba si el cliente acepta respuestas comprimidas con gzip.
+     * 
+     * @param acceptEncoding
+     *            cabecera Accept-Encoding, o null.
+     * @return true si acepta gzip.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if ("gzip".equalsIgnoreCase(parts[0].trim())) {
+                return parts.length < 2
+                        || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Comprueba si una ETag está en la cabecera If-None-Match.
+     * 
+     * @param ifNoneMatch
+     *            cabecera If-None-Match, o null.
+     * @param etag
+     *            ETag del recurso.
+     * @return true si el cliente ya tiene el recurso.
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String trimmed = tag.trim();
+            if ("*".equals(trimmed) || etag.equals(trimmed)
+                    || ("W/" + etag).equals(trimmed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Destino que guarda en memoria los ficheros de una página.
+     */
+    private static final class MemorySink implements FileSink {
+
+        /**
+         * Contenido de cada fichero, indexado por nombre.
+         */
+        private final Map<String, byte[]> files = new ConcurrentHashMap<String, byte[]>();
+
+        @Override
+        public boolean write(String fileName, byte[] content) {
+            files.put(fileName, content);
+            return true;
+        }
+
+        @Override
+        public boolean delete(String fileName) {
+            return files.remove(fileName) != null;
+        }
+    }
+}
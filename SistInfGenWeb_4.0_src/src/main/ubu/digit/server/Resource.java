@@ -0,0 +1,221 @@
+package ubu.digit.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Recurso que sirve el servidor de vista previa: el contenido tal cual, su
+ * versión comprimida con gzip si es un fichero de texto y una ETag fuerte
+ * calculada a partir del contenido. Se construye completo antes de publicarse
+ * y no cambia después, de modo que se puede servir desde varios hilos sin
+ * sincronización.
+ * 
+ * @since 4.1
+ */
+final class Resource {
+
+    /**
+     * Tipo de contenido por defecto.
+     */
+    private static final String DEFAULT_TYPE = "application/octet-stream";
+
+    /**
+     * Tamaño por debajo del cual no se comprime el contenido.
+     */
+    private static final int MIN_GZIP_SIZE = 256;
+
+    /**
+     * Tipo de contenido de cada extensión.
+     */
+    private static final Map<String, String> TYPES = new HashMap<String, String>();
+
+    static {
+        TYPES.put("html", "text/html; charset=UTF-8");
+        TYPES.put("css", "text/css; charset=UTF-8");
+        TYPES.put("js", "application/javascript; charset=UTF-8");
+        TYPES.put("rss", "application/rss+xml; charset=UTF-8");
+        TYPES.put("xml", "application/xml; charset=UTF-8");
+        TYPES.put("txt", "text/plain; charset=UTF-8");
+        TYPES.put("svg", "image/svg+xml");
+        TYPES.put("png", "image/png");
+        TYPES.put("gif", "image/gif");
+        TYPES.put("jpg", "image/jpeg");
+        TYPES.put("jpeg", "image/jpeg");
+        TYPES.put("ico", "image/x-icon");
+        TYPES.put("woff", "application/font-woff");
+        TYPES.put("woff2", "font/woff2");
+        TYPES.put("ttf", "application/x-font-ttf");
+        TYPES.put("eot", "application/vnd.ms-fontobject");
+    }
+
+    /**
+     * Tipo de contenido.
+     */
+    private final String contentType;
+
+    /**
+     * Contenido tal cual.
+     */
+    private final ByteBuffer body;
+
+    /**
+     * Contenido comprimido con gzip, o null si no se comprime.
+     */
+    private final byte[] gzip;
+
+    /**
+     * ETag del contenido tal cual.
+     */
+    private final String etag;
+
+    /**
+     * Huella del fichero del que se leyó el contenido, para saber si ha
+     * cambiado, o null si no procede de un fichero.
+     */
+    private final String source;
+
+    /**
+     * Constructor.
+     * 
+     * @param name
+     *            nombre del recurso, para deducir el tipo de contenido.
+     * @param body
+     *            contenido. No se debe modificar después.
+     * @param source
+     *            huella del fichero del que se leyó, o null.
+     * @throws IOException
+     *             si no se puede comprimir.
+     */
+    Resource(String name, ByteBuffer body, String source) throws IOException {
+        this.contentType = contentType(name);
+        this.body = body.asReadOnlyBuffer();
+        this.etag = '"' + hash(body.duplicate()) + '"';
+        this.source = source;
+        if (isText(contentType) && body.remaining() >= MIN_GZIP_SIZE) {
+            this.gzip = compress(body.duplicate());
+        } else {
+            this.gzip = null;
+        }
+    }
+
+    /**
+     * @return tipo de contenido.
+     */
+    String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @param gzipped
+     *            true para la versión comprimida.
+     * @return contenido, listo para leerse desde el principio.
+     */
+    ByteBuffer getBody(boolean gzipped) {
+        return gzipped ? ByteBuffer.wrap(gzip) : body.duplicate();
+    }
+
+    /**
+     * @return true si hay versión comprimida con gzip.
+     */
+    boolean hasGzip() {
+        return gzip != null;
+    }
+
+    /**
+     * Obtiene la ETag de una de las versiones. Cada versión tiene la suya
+     * porque su contenido es distinto.
+     * 
+     * @param gzipped
+     *            true para la versión comprimida.
+     * @return ETag fuerte, entre comillas.
+     */
+    String getEtag(boolean gzipped) {
+        return gzipped ? etag.substring(0, etag.length() - 1) + "-gz\"" : etag;
+    }
+
+    /**
+     * @return huella del fichero del que se leyó el contenido, o null.
+     */
+    String getSource() {
+        return source;
+    }
+
+    /**
+     * Obtiene el tipo de contenido a partir de la extensión.
+     * 
+     * @param name
+     *            nombre del recurso.
+     * @return tipo de contenido.
+     */
+    static String contentType(String name) {
+        int dot = name.lastIndexOf('.');
+        String type = dot < 0 ? null : TYPES.get(name.substring(dot + 1)
+                .toLowerCase(Locale.ROOT));
+        return type == null ? DEFAULT_TYPE : type;
+    }
+
+    /**
+     * @param contentType
+     *            tipo de contenido.
+     * @return true si es texto y merece la pena comprimirlo.
+     */
+    private static boolean isText(String contentType) {
+        return contentType.startsWith("text/") || contentType.contains("xml")
+                || contentType.contains("javascript");
+    }
+
+    /**
+     * Comprime un contenido con gzip.
+     * 
+     * @param content
+     *            contenido.
+     * @return contenido comprimido.
+     * @throws IOException
+     *             si no se puede comprimir.
+     */
+    private static byte[] compress(ByteBuffer content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(
+                content.remaining() / 4);
+        GZIPOutputStream gzipOut = new GZIPOutputStream(out);
+        byte[] chunk = new byte[8192];
+        while (content.hasRemaining()) {
+            int length = Math.min(chunk.length, content.remaining());
+            content.get(chunk, 0, length);
+            gzipOut.write(chunk, 0, length);
+        }
+        gzipOut.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * Calcula el resumen SHA-256 de un contenido.
+     * 
+     * @param content
+     *            contenido.
+     * @return resumen en hexadecimal.
+     */
+    private static String hash(ByteBuffer content) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Todas las máquinas virtuales deben soportar SHA-256
+            throw new IllegalStateException(e);
+        }
+        digest.update(content);
+        byte[] bytes = digest.digest();
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
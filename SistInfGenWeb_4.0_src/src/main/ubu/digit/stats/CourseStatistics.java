@@ -0,0 +1,214 @@
+package ubu.digit.stats;
+
+/**
+ * Acumulador de estadísticas por curso académico. Cada medida se guarda en
+ * un array de primitivos indexado por (curso - primer curso), de modo que los
+ * proyectos se recorren una única vez y todas las tablas y gráficas de la
+ * página de histórico se leen después de estos arrays.
+ * <p>
+ * El curso se identifica por el año en que termina: 2003 es el curso
+ * 2002-2003. Los valores de cursos fuera del intervalo se ignoran.
+ * 
+ * @since 4.1
+ */
+public class CourseStatistics {
+
+    /**
+     * Primer curso del intervalo.
+     */
+    private final int minYear;
+
+    /**
+     * Número de cursos del intervalo.
+     */
+    private final int nYears;
+
+    /**
+     * Proyectos de nueva asignación por curso.
+     */
+    private final int[] newProjects;
+
+    /**
+     * Proyectos asignados en cursos anteriores que siguen abiertos.
+     */
+    private final int[] carriedOver;
+
+    /**
+     * Alumnos de los proyectos de nueva asignación.
+     */
+    private final int[] students;
+
+    /**
+     * Tutores de los proyectos de nueva asignación.
+     */
+    private final int[] tutors;
+
+    /**
+     * Proyectos presentados.
+     */
+    private final int[] presented;
+
+    /**
+     * Suma de las notas de los proyectos de nueva asignación.
+     */
+    private final double[] sumGrades;
+
+    /**
+     * Suma de los días de los proyectos de nueva asignación.
+     */
+    private final long[] sumDays;
+
+    /**
+     * Constructor.
+     * 
+     * @param minYear
+     *            primer curso, incluido.
+     * @param maxYear
+     *            último curso, excluido.
+     */
+    public CourseStatistics(int minYear, int maxYear) {
+        this.minYear = minYear;
+        this.nYears = Math.max(maxYear - minYear, 0);
+        newProjects = new int[nYears];
+        carriedOver = new int[nYears];
+        students = new int[nYears];
+        tutors = new int[nYears];
+        presented = new int[nYears];
+        sumGrades = new double[nYears];
+        sumDays = new long[nYears];
+    }
+
+    /**
+     * Registra un proyecto de nueva asignación. Las notas se suman en el
+     * orden en que se registran los proyectos.
+     * 
+     * @param year
+     *            curso.
+     * @param nStudents
+     *            número de alumnos del proyecto.
+     * @param nTutors
+     *            número de tutores del proyecto.
+     * @param grade
+     *            nota del proyecto.
+     * @param days
+     *            días que duró el proyecto.
+     */
+    public void addNew(int year, int nStudents, int nTutors, double grade,
+            int days) {
+        int i = year - minYear;
+        if (i >= 0 && i < nYears) {
+            newProjects[i]++;
+            students[i] += nStudents;
+            tutors[i] += nTutors;
+            sumGrades[i] += grade;
+            sumDays[i] += days;
+        }
+    }
+
+    /**
+     * Registra un proyecto asignado en un curso anterior que sigue abierto.
+     * 
+     * @param year
+     *            curso.
+     */
+    public void addCarriedOver(int year) {
+        int i = year - minYear;
+        if (i >= 0 && i < nYears) {
+            carriedOver[i]++;
+        }
+    }
+
+    /**
+     * Registra un proyecto presentado.
+     * 
+     * @param year
+     *            curso.
+     */
+    public void addPresented(int year) {
+        int i = year - minYear;
+        if (i >= 0 && i < nYears) {
+            presented[i]++;
+        }
+    }
+
+    /**
+     * @return primer curso, incluido.
+     */
+    public int getMinYear() {
+        return minYear;
+    }
+
+    /**
+     * @return último curso, excluido.
+     */
+    public int getMaxYear() {
+        return minYear + nYears;
+    }
+
+    /**
+     * @param year
+     *            curso.
+     * @return proyectos de nueva asignación.
+     */
+    public int getNewProjects(int year) {
+        return newProjects[year - minYear];
+    }
+
+    /**
+     * @param year
+     *            curso.
+     * @return proyectos de cursos anteriores que siguen abiertos.
+     */
+    public int getCarriedOver(int year) {
+        return carriedOver[year - minYear];
+    }
+
+    /**
+     * @param year
+     *            curso.
+     * @return alumnos de los proyectos de nueva asignación.
+     */
+    public int getStudents(int year) {
+        return students[year - minYear];
+    }
+
+    /**
+     * @param year
+     *            curso.
+     * @return tutores de los proyectos de nueva asignación.
+     */
+    public int getTutors(int year) {
+        return tutors[year - minYear];
+    }
+
+    /**
+     * @param year
+     *            curso.
+     * @return proyectos presentados.
+     */
+    public int getPresented(int year) {
+        return presented[year - minYear];
+    }
+
+    /**
+     * @param year
+     *            curso.
+     * @return nota media de los proyectos de nueva asignación, NaN si no hay
+     *         ninguno.
+     */
+    public double getAvgGrade(int year) {
+        int i = year - minYear;
+        return sumGrades[i] / newProjects[i];
+    }
+
+    /**
+     * @param year
+     *            curso.
+     * @return días de media de los proyectos de nueva asignación, NaN si no
+     *         hay ninguno.
+     */
+    public double getAvgDays(int year) {
+        int i = year - minYear;
+        return (double) sumDays[i] / newProjects[i];
+    }
+}
@@ -0,0 +1,23 @@
+package ubu.digit.stats;
+
+/**
+ * Reglas para obtener un cuantil a partir de los n valores ordenados de una
+ * muestra.
+ * 
+ * @since 4.1
+ */
+public enum Interpolation {
+
+    /**
+     * El cuantil p es el valor que ocupa la posición entera floor(n * p). Es
+     * el criterio que se ha usado siempre en las tablas de métricas.
+     */
+    INDEX_FLOOR,
+
+    /**
+     * El cuantil p se interpola linealmente entre los valores que rodean la
+     * posición (n - 1) * p. Con p = 0.5 y n par es la media de los dos valores
+     * centrales.
+     */
+    LINEAR
+}
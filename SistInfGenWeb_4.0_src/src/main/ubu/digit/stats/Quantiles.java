@@ -0,0 +1,277 @@
+package ubu.digit.stats;
+
+import java.util.Arrays;
+
+/**
+ * Cálculo de cuantiles sobre arrays de primitivos.
+ * <p>
+ * Para un único cuantil se usa selección (introselect): coste lineal en el
+ * caso medio, sin ordenar el array completo, y con una ordenación de respaldo
+ * que limita el peor caso a O(n log n). Cuando se necesitan varios cuantiles
+ * de la misma muestra se ordena una sola vez y se leen todos del array
+ * ordenado.
+ * <p>
+ * Los métodos reordenan el array que reciben; si el llamante necesita
+ * conservar el orden original debe pasar una copia. Los arrays no deben
+ * contener NaN.
+ * 
+ * @since 4.1
+ */
+public final class Quantiles {
+
+    /**
+     * Tamaño de rango por debajo del cual se ordena por inserción.
+     */
+    private static final int INSERTION_THRESHOLD = 16;
+
+    /**
+     * Constructor privado, clase de utilidad.
+     */
+    private Quantiles() {
+        super();
+    }
+
+    /**
+     * Obtiene un cuantil por selección, sin ordenar toda la muestra.
+     * 
+     * @param values
+     *            valores de la muestra. Se reordenan parcialmente.
+     * @param size
+     *            número de posiciones válidas del array.
+     * @param p
+     *            proporción del cuantil, entre 0 y 1.
+     * @param rule
+     *            regla de interpolación.
+     * @return valor del cuantil.
+     * @throws IllegalArgumentException
+     *             si la muestra está vacía o p está fuera de [0, 1].
+     */
+    public static double select(double[] values, int size, double p,
+            Interpolation rule) {
+        checkArguments(size, p);
+        if (rule == Interpolation.INDEX_FLOOR) {
+            return selectKth(values, 0, size - 1, floorIndex(size, p));
+        }
+
+        double position = (size - 1) * p;
+        int lower = (int) position;
+        double fraction = position - lower;
+        double low = selectKth(values, 0, size - 1, lower);
+        if (fraction == 0) {
+            return low;
+        }
+        // Tras la selección el siguiente valor es el mínimo del tramo derecho
+        double high = values[lower + 1];
+        for (int i = lower + 2; i < size; i++) {
+            if (values[i] < high) {
+                high = values[i];
+            }
+        }
+        return low + fraction * (high - low);
+    }
+
+    /**
+     * Obtiene varios cuantiles de una misma muestra ordenándola una sola vez.
+     * 
+     * @param values
+     *            valores de la muestra. Se ordenan.
+     * @param size
+     *            número de posiciones válidas del array.
+     * @param ps
+     *            proporciones de los cuantiles, entre 0 y 1.
+     * @param rule
+     *            regla de interpolación.
+     * @return valores de los cuantiles, en el mismo orden que ps.
+     * @throws IllegalArgumentException
+     *             si la muestra está vacía o alguna p está fuera de [0, 1].
+     */
+    public static double[] quantiles(double[] values, int size, double[] ps,
+            Interpolation rule) {
+        Arrays.sort(values, 0, size);
+        double[] result = new double[ps.length];
+        for (int i = 0; i < ps.length; i++) {
+            result[i] = fromSorted(values, size, ps[i], rule);
+        }
+        return result;
+    }
+
+    /**
+     * Obtiene un cuantil de una muestra que ya está ordenada.
+     * 
+     * @param sorted
+     *            valores ordenados de menor a mayor.
+     * @param size
+     *            número de posiciones válidas del array.
+     * @param p
+     *            proporción del cuantil, entre 0 y 1.
+     * @param rule
+     *            regla de interpolación.
+     * @return valor del cuantil.
+     * @throws IllegalArgumentException
+     *             si la muestra está vacía o p está fuera de [0, 1].
+     */
+    public static double fromSorted(double[] sorted, int size, double p,
+            Interpolation rule) {
+        checkArguments(size, p);
+        if (rule == Interpolation.INDEX_FLOOR) {
+            return sorted[floorIndex(size, p)];
+        }
+        double position = (size - 1) * p;
+        int lower = (int) position;
+        double fraction = position - lower;
+        if (fraction == 0) {
+            return sorted[lower];
+        }
+        return sorted[lower] + fraction * (sorted[lower + 1] - sorted[lower]);
+    }
+
+    /**
+     * @param size
+     *            tamaño de la muestra.
+     * @param p
+     *            proporción del cuantil.
+     * @return posición floor(n * p), acotada al último elemento.
+     */
+    private static int floorIndex(int size, double p) {
+        return Math.min((int) (size * p), size - 1);
+    }
+
+    /**
+     * Valida los argumentos comunes.
+     * 
+     * @param size
+     *            tamaño de la muestra.
+     * @param p
+     *            proporción del cuantil.
+     */
+    private static void checkArguments(int size, double p) {
+        if (size <= 0) {
+            throw new IllegalArgumentException(
+                    "No se puede calcular un cuantil de una muestra vacía");
+        }
+        if (!(p >= 0 && p <= 1)) {
+            throw new IllegalArgumentException("Proporción fuera de [0, 1]: "
+                    + p);
+        }
+    }
+
+    /**
+     * Coloca en la posición k el valor que le corresponde en el orden de la
+     * muestra, con los menores a su izquierda y los mayores a su derecha.
+     * Usa quickselect con pivote mediana de tres y, si la recursión supera
+     * 2 log2(n) particiones, ordena el tramo restante.
+     * 
+     * @param values
+     *            valores de la muestra.
+     * @param from
+     *            primera posición del tramo.
+     * @param to
+     *            última posición del tramo, incluida.
+     * @param k
+     *            posición buscada.
+     * @return valor de la posición k.
+     */
+    private static double selectKth(double[] values, int from, int to, int k) {
+        int depth = 2 * (32 - Integer.numberOfLeadingZeros(to - from + 1));
+        int left = from;
+        int right = to;
+        while (right - left >= INSERTION_THRESHOLD) {
+            if (depth-- == 0) {
+                Arrays.sort(values, left, right + 1);
+                return values[k];
+            }
+            int pivot = partition(values, left, right);
+            if (k == pivot) {
+                return values[k];
+            } else if (k < pivot) {
+                right = pivot - 1;
+            } else {
+                left = pivot + 1;
+            }
+        }
+        insertionSort(values, left, right);
+        return values[k];
+    }
+
+    /**
+     * Particiona un tramo alrededor de la mediana de su primer, central y
+     * último valor.
+     * 
+     * @param values
+     *            valores de la muestra.
+     * @param left
+     *            primera posición del tramo.
+     * @param right
+     *            última posición del tramo, incluida.
+     * @return posición final del pivote.
+     */
+    private static int partition(double[] values, int left, int right) {
+        int middle = (left + right) >>> 1;
+        if (values[middle] < values[left]) {
+            swap(values, middle, left);
+        }
+        if (values[right] < values[left]) {
+            swap(values, right, left);
+        }
+        if (values[right] < values[middle]) {
+            swap(values, right, middle);
+        }
+        // La mediana de tres queda en el penúltimo lugar como pivote
+        swap(values, middle, right - 1);
+        double pivot = values[right - 1];
+        int i = left;
+        int j = right - 1;
+        while (true) {
+            while (values[++i] < pivot) {
+                // avanzar
+            }
+            while (pivot < values[--j]) {
+                // retroceder
+            }
+            if (i >= j) {
+                break;
+            }
+            swap(values, i, j);
+        }
+        swap(values, i, right - 1);
+        return i;
+    }
+
+    /**
+     * Ordena por inserción un tramo pequeño.
+     * 
+     * @param values
+     *            valores de la muestra.
+     * @param left
+     *            primera posición del tramo.
+     * @param right
+     *            última posición del tramo, incluida.
+     */
+    private static void insertionSort(double[] values, int left, int right) {
+        for (int i = left + 1; i <= right; i++) {
+            double value = values[i];
+            int j = i - 1;
+            while (j >= left && values[j] > value) {
+                values[j + 1] = values[j];
+                j--;
+            }
+            values[j + 1] = value;
+        }
+    }
+
+    /**
+     * Intercambia dos posiciones de un array.
+     * 
+     * @param values
+     *            array.
+     * @param i
+     *            primera posición.
+     * @param j
+     *            segunda posición.
+     */
+    private static void swap(double[] values, int i, int j) {
+        double aux = values[i];
+        values[i] = values[j];
+        values[j] = aux;
+    }
+}
@@ -0,0 +1,144 @@
+package ubu.digit.stats;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Colección de enteros agrupados por año a la que sólo se pueden añadir
+ * elementos. Cada año guarda sus elementos en un array de primitivos que
+ * crece al doble cuando se llena, de modo que añadir un elemento tiene coste
+ * constante amortizado y los elementos se recorren directamente sobre ese
+ * array, sin copiarlos.
+ * <p>
+ * Dentro de cada año los elementos conservan el orden en que se añadieron.
+ * 
+ * @since 4.1
+ */
+public class YearBuckets {
+
+    /**
+     * Capacidad inicial del array de cada año.
+     */
+    private static final int INITIAL_CAPACITY = 8;
+
+    /**
+     * Grupo vacío, compartido por todos los años sin elementos.
+     */
+    private static final Bucket EMPTY = new Bucket(0);
+
+    /**
+     * Elementos de cada año, ordenado por año.
+     */
+    private final SortedMap<Integer, Bucket> buckets = new TreeMap<Integer, Bucket>();
+
+    /**
+     * Añade un elemento al final del grupo de un año.
+     * 
+     * @param year
+     *            año.
+     * @param value
+     *            elemento.
+     */
+    public void add(int year, int value) {
+        Bucket bucket = buckets.get(year);
+        if (bucket == null) {
+            bucket = new Bucket(INITIAL_CAPACITY);
+            buckets.put(year, bucket);
+        }
+        bucket.add(value);
+    }
+
+    /**
+     * Obtiene el grupo de un año. El grupo es una vista de sólo lectura sobre
+     * los elementos, que refleja los que se añadan después.
+     * 
+     * @param year
+     *            año.
+     * @return elementos del año; vacío si no hay ninguno.
+     */
+    public Bucket get(int year) {
+        Bucket bucket = buckets.get(year);
+        return bucket == null ? EMPTY : bucket;
+    }
+
+    /**
+     * @param year
+     *            año.
+     * @return número de elementos del año.
+     */
+    public int size(int year) {
+        return get(year).size();
+    }
+
+    /**
+     * @return años con algún elemento, ordenados.
+     */
+    public SortedSet<Integer> years() {
+        return Collections.unmodifiableSortedSet(new TreeSet<Integer>(buckets
+                .keySet()));
+    }
+
+    /**
+     * Elementos de un año guardados en un array que crece al doble.
+     */
+    public static final class Bucket {
+
+        /**
+         * Elementos; sólo son válidas las primeras {@link #size} posiciones.
+         */
+        private int[] values;
+
+        /**
+         * Número de elementos.
+         */
+        private int size;
+
+        /**
+         * Constructor.
+         * 
+         * @param capacity
+         *            capacidad inicial.
+         */
+        private Bucket(int capacity) {
+            values = new int[capacity];
+        }
+
+        /**
+         * @param value
+         *            elemento a añadir al final.
+         */
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.max(INITIAL_CAPACITY,
+                        size * 2));
+            }
+            values[size++] = value;
+        }
+
+        /**
+         * @return número de elementos.
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @param index
+         *            posición del elemento.
+         * @return elemento en esa posición.
+         * @throws IndexOutOfBoundsException
+         *             si la posición no es válida.
+         */
+        public int get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index
+                        + ", Size: " + size);
+            }
+            return values[index];
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ubu.digit.util;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.apache.log4j.Logger;
+
+import ubu.digit.pesistence.SistInfData;
+
+/**
+ * Fecha de actualización que aparece en el pie de las páginas y en el
+ * lastBuildDate del canal RSS. Se configura con la propiedad
+ * fechaActualizacion:
+ * <ul>
+ * <li>en blanco: la fecha y hora de la generación. Con la generación
+ * incremental (ver {@link GenerationState}) la fecha no forma parte de la
+ * huella de las páginas, de modo que las que no se vuelven a generar
+ * conservan la fecha de la generación en la que cambiaron por última vez;</li>
+ * <li>datos: la fecha de modificación más reciente de los ficheros CSV de los
+ * que se generan los datos, de modo que con los mismos datos se generan
+ * exactamente los mismos ficheros;</li>
+ * <li>una fecha fija con el formato {@value #FORMAT}.</li>
+ * </ul>
+ * 
+ * @since 4.1
+ */
+public final class BuildDate {
+
+    /**
+     * Logger de la clase.
+     */
+    private static final Logger LOGGER = Logger.getLogger(BuildDate.class);
+
+    /**
+     * URL donde encontramos el fichero con las propiedades del proyecto.
+     */
+    private static ExternalProperties prop = ExternalProperties
+            .getInstance("./../src/main/config.properties");
+
+    /**
+     * Valor de la propiedad para tomar la fecha de los datos.
+     */
+    public static final String MODE_DATA = "datos";
+
+    /**
+     * Formato de una fecha fija.
+     */
+    public static final String FORMAT = "yyyy-MM-dd HH:mm:ss";
+
+    /**
+     * Constructor privado, clase de utilidades.
+     */
+    private BuildDate() {
+    }
+
+    /**
+     * Obtiene la fecha de actualización de una página o del canal RSS.
+     * 
+     * @param tableNames
+     *            tablas de las que depende; si no se indica ninguna, se tienen
+     *            en cuenta todas las del directorio de datos.
+     * @return fecha de actualización.
+     */
+    public static Date get(String... tableNames) {
+        String mode = prop.getSetting("fechaActualizacion", "");
+        if ("".equals(mode)) {
+            return new Date();
+        }
+        if (MODE_DATA.equals(mode)) {
+            long lastModified = SistInfData.getInstance().getLastModified(
+                    tableNames);
+            if (lastModified == 0) {
+                LOGGER.error("No hay ficheros de datos de los que tomar la "
+                        + "fecha de actualización, se usa la fecha actual");
+                return new Date();
+            }
+            return new Date(lastModified);
+        }
+        try {
+            return new SimpleDateFormat(FORMAT).parse(mode);
+        } catch (ParseException e) {
+            LOGGER.error("La propiedad fechaActualizacion debe estar en "
+                    + "blanco, ser " + MODE_DATA + " o una fecha con formato "
+                    + FORMAT + ": " + mode + ". Se usa la fecha actual", e);
+            return new Date();
+        }
+    }
+}
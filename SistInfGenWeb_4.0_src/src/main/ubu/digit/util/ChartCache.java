@@ -0,0 +1,208 @@
+package ubu.digit.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Huella de los datos con los que se dibujó cada gráfico del directorio de
+ * salida: título, rótulos, valores y tamaño. Un gráfico cuya huella no ha
+ * cambiado y cuyo fichero sigue en disco no se vuelve a dibujar.
+ * <p>
+ * Las huellas se guardan junto a los gráficos, en images/metrics. Con la
+ * propiedad incremental=no se dibujan siempre todos los gráficos.
+ * 
+ * @since 4.1
+ */
+public class ChartCache {
+
+    /**
+     * Logger de la clase.
+     */
+    private static final Logger LOGGER = Logger.getLogger(ChartCache.class);
+
+    /**
+     * URL donde encontramos el fichero con las propiedades del proyecto.
+     */
+    private static ExternalProperties prop = ExternalProperties
+            .getInstance("./../src/main/config.properties");
+
+    /**
+     * Nombre del fichero de huellas dentro del directorio de salida.
+     */
+    private static final String STATE = "\\images\\metrics\\charts.state";
+
+    /**
+     * Instancia única.
+     */
+    private static ChartCache instance;
+
+    /**
+     * Fichero de huellas.
+     */
+    private final File file;
+
+    /**
+     * Huella de cada gráfico, indexada por nombre de fichero.
+     */
+    private final Properties fingerprints = new Properties();
+
+    /**
+     * Indica si se pueden dejar sin dibujar los gráficos sin cambios.
+     */
+    private final boolean incremental;
+
+    /**
+     * Gráficos sin cambios que no se han dibujado.
+     */
+    private final AtomicInteger reused = new AtomicInteger();
+
+    /**
+     * Indica si las huellas han cambiado desde que se leyeron.
+     */
+    private boolean changed;
+
+    /**
+     * Constructor. Lee las huellas de la ejecución anterior si existen.
+     * 
+     * @param file
+     *            fichero de huellas.
+     */
+    private ChartCache(File file) {
+        this(file, !"no".equals(prop.getSetting("incremental", "")));
+    }
+
+    /**
+     * Constructor. Lee las huellas de la ejecución anterior si existen.
+     * 
+     * @param file
+     *            fichero de huellas.
+     * @param incremental
+     *            true si se pueden dejar sin dibujar los gráficos sin
+     *            cambios.
+     */
+    ChartCache(File file, boolean incremental) {
+        this.file = file;
+        this.incremental = incremental;
+        if (file.isFile()) {
+            try {
+                read();
+            } catch (IOException e) {
+                LOGGER.error("No se pueden leer las huellas de los gráficos: "
+                        + file + ", se dibujarán todos", e);
+                fingerprints.clear();
+            }
+        }
+    }
+
+    /**
+     * Método singleton para obtener las huellas de los gráficos del
+     * directorio de salida.
+     * 
+     * @return las huellas.
+     */
+    public static synchronized ChartCache getInstance() {
+        if (instance == null) {
+            instance = new ChartCache(new File(prop.getSetting("dirOut")
+                    + STATE));
+        }
+        return instance;
+    }
+
+    /**
+     * Calcula la huella de un gráfico.
+     * 
+     * @param description
+     *            descripción completa del gráfico: todo aquello de lo que
+     *            depende la imagen.
+     * @return huella.
+     */
+    public static String fingerprint(String description) {
+        return OutputManifest.hash(description
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Comprueba si un gráfico está al día: se dibujó con la misma huella y su
+     * fichero sigue en disco. Si lo está, lo cuenta como reutilizado.
+     * 
+     * @param fileName
+     *            nombre del fichero del gráfico.
+     * @param fingerprint
+     *            huella actual del gráfico.
+     * @return true si no hace falta volver a dibujarlo.
+     */
+    public synchronized boolean isUpToDate(String fileName, String fingerprint) {
+        if (incremental
+                && fingerprint.equals(fingerprints.getProperty(fileName))
+                && new File(fileName).isFile()) {
+            reused.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Anota la huella con la que se ha dibujado un gráfico.
+     * 
+     * @param fileName
+     *            nombre del fichero del gráfico.
+     * @param fingerprint
+     *            huella del gráfico.
+     */
+    public synchronized void update(String fileName, String fingerprint) {
+        if (!fingerprint.equals(fingerprints.setProperty(fileName,
+                fingerprint))) {
+            changed = true;
+        }
+    }
+
+    /**
+     * @return número de gráficos sin cambios que no se han dibujado.
+     */
+    public int getReused() {
+        return reused.get();
+    }
+
+    /**
+     * Guarda las huellas si han cambiado.
+     * 
+     * @throws IOException
+     *             si no se puede escribir.
+     */
+    public synchronized void save() throws IOException {
+        if (!changed) {
+            return;
+        }
+        OutputStream out = new FileOutputStream(file);
+        try {
+            fingerprints.store(out, "Huella de los datos de cada gráfico");
+        } finally {
+            out.close();
+        }
+        changed = false;
+    }
+
+    /**
+     * Lee las huellas.
+     * 
+     * @throws IOException
+     *             si no se puede leer.
+     */
+    private void read() throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            fingerprints.load(in);
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
+import java.util.TreeMap;
 
 import org.apache.log4j.Logger;
 
@@ -52,7 +53,8 @@ public class ExternalProperties {
     /**
      * Método singleton para obtener la instancia de la clase fachada.
      */
-    public static ExternalProperties getInstance(String propFileName) {
+    public static synchronized ExternalProperties getInstance(
+            String propFileName) {
         if (instance == null) {
             FILE = propFileName;
             instance = new ExternalProperties();
@@ -71,4 +73,52 @@ public class ExternalProperties {
         return PROPERTIES.getProperty(key).trim();
     }
 
+    /**
+     * Método que obtiene el valor de la propiedad que se pasa, o un valor por
+     * defecto si no está en el fichero o está en blanco.
+     * 
+     * @param key
+     *            Propiedad de la cual queremos conocer el valor.
+     * @param defaultValue
+     *            Valor por defecto.
+     * @return El valor de la propiedad.
+     */
+    public String getSetting(String key, String defaultValue) {
+        String value = PROPERTIES.getProperty(key);
+        if (value == null || "".equals(value.trim())) {
+            return defaultValue;
+        }
+        return value.trim();
+    }
+
+    /**
+     * Obtiene el valor entero de una propiedad.
+     * 
+     * @param key
+     *            Propiedad de la cual queremos conocer el valor.
+     * @param defaultValue
+     *            Valor si la propiedad está en blanco o no es un número.
+     * @return El valor de la propiedad.
+     */
+    public int getSetting(String key, int defaultValue) {
+        String value = getSetting(key, String.valueOf(defaultValue));
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            LOGGER.error("La propiedad " + key + " debe ser un número entero: "
+                    + value + ". Se usa el valor " + defaultValue, e);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Obtiene todas las propiedades ordenadas por nombre, para poder saber si
+     * ha cambiado la configuración entre dos ejecuciones.
+     * 
+     * @return texto con el nombre y el valor de todas las propiedades.
+     */
+    public String getAllSettings() {
+        return new TreeMap<Object, Object>(PROPERTIES).toString();
+    }
+
 }
\ No newline at end of file
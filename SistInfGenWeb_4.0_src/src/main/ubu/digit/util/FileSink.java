@@ -0,0 +1,38 @@
+package ubu.digit.util;
+
+import java.io.IOException;
+
+/**
+ * Destino de los ficheros que se generan: páginas, gráficos y canal RSS. Los
+ * generadores preparan el contenido completo de cada fichero y lo entregan al
+ * destino, que puede escribirlo en el directorio de salida (ver
+ * {@link OutputManifest}) o guardarlo en memoria.
+ * 
+ * @since 4.1
+ */
+public interface FileSink {
+
+    /**
+     * Entrega el contenido completo de un fichero.
+     * 
+     * @param fileName
+     *            nombre del fichero.
+     * @param content
+     *            contenido completo.
+     * @return true si se ha escrito, false si no había cambios.
+     * @throws IOException
+     *             si no se puede escribir.
+     */
+    boolean write(String fileName, byte[] content) throws IOException;
+
+    /**
+     * Retira un fichero que ya no se genera.
+     * 
+     * @param fileName
+     *            nombre del fichero.
+     * @return true si el fichero existía.
+     * @throws IOException
+     *             si no se puede borrar.
+     */
+    boolean delete(String fileName) throws IOException;
+}
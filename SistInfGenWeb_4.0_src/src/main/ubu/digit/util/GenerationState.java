@@ -0,0 +1,271 @@
+package ubu.digit.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.security.CodeSource;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Estado de la última generación del portal: la huella de las dependencias
+ * (tablas, ficheros incluidos y nivel de gestión) con la que se generó cada
+ * página. Una página cuya huella no ha cambiado no se vuelve a generar, y con
+ * ella tampoco sus gráficos, de modo que una ejecución sobre los mismos datos
+ * apenas hace trabajo.
+ * <p>
+ * El estado se guarda en el directorio de salida y se descarta completo si
+ * cambia la configuración, si cambia la versión del generador (su número de
+ * versión o el jar desde el que se ejecuta, de modo que al instalar una
+ * versión nueva se vuelven a generar todas las páginas aunque los datos no
+ * hayan cambiado) o si falta alguno de los ficheros generados en ejecuciones
+ * anteriores. Con la propiedad incremental=no se generan siempre todas las
+ * páginas.
+ * 
+ * @since 4.1
+ */
+public class GenerationState {
+
+    /**
+     * Logger de la clase.
+     */
+    private static final Logger LOGGER = Logger
+            .getLogger(GenerationState.class);
+
+    /**
+     * URL donde encontramos el fichero con las propiedades del proyecto.
+     */
+    private static ExternalProperties prop = ExternalProperties
+            .getInstance("./../src/main/config.properties");
+
+    /**
+     * Nombre del fichero de estado dentro del directorio de salida.
+     */
+    private static final String STATE = "\\generation.state";
+
+    /**
+     * Clave con el resumen de la configuración.
+     */
+    private static final String CONFIG_KEY = "configuracion";
+
+    /**
+     * Clave con la versión del generador.
+     */
+    private static final String VERSION_KEY = "version";
+
+    /**
+     * Versión de las plantillas de las páginas. Se incluye en el estado, de
+     * modo que al cambiarla se vuelven a generar todas.
+     */
+    private static final int GENERATOR_VERSION = 1;
+
+    /**
+     * Instancia única.
+     */
+    private static GenerationState instance;
+
+    /**
+     * Fichero de estado.
+     */
+    private final File file;
+
+    /**
+     * Huella de cada página, indexada por nombre de fichero.
+     */
+    private final Properties fingerprints = new Properties();
+
+    /**
+     * Indica si se pueden dejar sin generar las páginas sin cambios.
+     */
+    private final boolean incremental;
+
+    /**
+     * Indica si el estado ha cambiado desde que se leyó.
+     */
+    private boolean changed;
+
+    /**
+     * Constructor. Lee el estado de la ejecución anterior si existe y sigue
+     * siendo válido.
+     * 
+     * @param file
+     *            fichero de estado.
+     */
+    private GenerationState(File file) {
+        this(file, OutputManifest.hash(prop.getAllSettings().getBytes(
+                StandardCharsets.UTF_8)), getGeneratorVersion(), !"no"
+                .equals(prop.getSetting("incremental", "")), OutputManifest
+                .getInstance().isComplete());
+    }
+
+    /**
+     * Constructor. Lee el estado de la ejecución anterior si existe y se
+     * generó con la misma configuración y la misma versión del generador.
+     * 
+     * @param file
+     *            fichero de estado.
+     * @param config
+     *            resumen de la configuración actual.
+     * @param version
+     *            versión actual del generador.
+     * @param incremental
+     *            true si se pueden dejar sin generar las páginas sin cambios.
+     * @param complete
+     *            true si siguen en disco todos los ficheros generados en
+     *            ejecuciones anteriores.
+     */
+    GenerationState(File file, String config, String version,
+            boolean incremental, boolean complete) {
+        this.file = file;
+        this.incremental = incremental;
+        if (file.isFile()) {
+            try {
+                read();
+            } catch (IOException e) {
+                LOGGER.error("No se puede leer el estado de la generación: "
+                        + file + ", se generarán todas las páginas", e);
+                fingerprints.clear();
+            }
+        }
+        if (!config.equals(fingerprints.getProperty(CONFIG_KEY))) {
+            LOGGER.info("Configuración nueva o modificada, se generarán "
+                    + "todas las páginas");
+            fingerprints.clear();
+        } else if (!version.equals(fingerprints.getProperty(VERSION_KEY))) {
+            LOGGER.info("Versión nueva del generador, se generarán todas las "
+                    + "páginas");
+            fingerprints.clear();
+        } else if (!complete) {
+            LOGGER.info("Faltan ficheros generados, se generarán todas las "
+                    + "páginas");
+            fingerprints.clear();
+        }
+        changed = fingerprints.isEmpty();
+        fingerprints.setProperty(CONFIG_KEY, config);
+        fingerprints.setProperty(VERSION_KEY, version);
+    }
+
+    /**
+     * Obtiene la versión del generador: el número de versión de las
+     * plantillas y, si se ejecuta desde un jar, su fecha de modificación y su
+     * tamaño, que cambian al instalar una versión nueva.
+     * 
+     * @return versión del generador.
+     */
+    private static String getGeneratorVersion() {
+        String version = Integer.toString(GENERATOR_VERSION);
+        CodeSource source = GenerationState.class.getProtectionDomain()
+                .getCodeSource();
+        if (source != null && source.getLocation() != null) {
+            try {
+                File code = new File(source.getLocation().toURI());
+                if (code.isFile()) {
+                    version += ":" + code.lastModified() + ":"
+                            + code.length();
+                }
+            } catch (URISyntaxException e) {
+                LOGGER.warn("No se puede obtener el jar del generador", e);
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("No se puede obtener el jar del generador", e);
+            }
+        }
+        return version;
+    }
+
+    /**
+     * Método singleton para obtener el estado del directorio de salida.
+     * 
+     * @return el estado.
+     */
+    public static synchronized GenerationState getInstance() {
+        if (instance == null) {
+            instance = new GenerationState(new File(prop.getSetting("dirOut")
+                    + STATE));
+        }
+        return instance;
+    }
+
+    /**
+     * Comprueba si una página está al día: se generó con la misma huella y su
+     * fichero sigue en disco.
+     * 
+     * @param fileName
+     *            nombre del fichero de la página.
+     * @param fingerprint
+     *            huella actual de sus dependencias.
+     * @return true si no hace falta volver a generarla.
+     */
+    public synchronized boolean isUpToDate(String fileName, String fingerprint) {
+        return incremental
+                && fingerprint.equals(fingerprints.getProperty(fileName))
+                && new File(fileName).isFile();
+    }
+
+    /**
+     * Anota la huella con la que se ha generado una página.
+     * 
+     * @param fileName
+     *            nombre del fichero de la página.
+     * @param fingerprint
+     *            huella de sus dependencias.
+     */
+    public synchronized void update(String fileName, String fingerprint) {
+        if (!fingerprint.equals(fingerprints.setProperty(fileName,
+                fingerprint))) {
+            changed = true;
+        }
+    }
+
+    /**
+     * Olvida la huella de una página, de modo que se vuelva a generar en la
+     * siguiente ejecución.
+     * 
+     * @param fileName
+     *            nombre del fichero de la página.
+     */
+    public synchronized void remove(String fileName) {
+        if (fingerprints.remove(fileName) != null) {
+            changed = true;
+        }
+    }
+
+    /**
+     * Guarda el estado en el directorio de salida si ha cambiado.
+     * 
+     * @throws IOException
+     *             si no se puede escribir.
+     */
+    public synchronized void save() throws IOException {
+        if (!changed) {
+            return;
+        }
+        OutputStream out = new FileOutputStream(file);
+        try {
+            fingerprints.store(out, "Huella de las dependencias de cada página");
+        } finally {
+            out.close();
+        }
+        changed = false;
+    }
+
+    /**
+     * Lee el estado.
+     * 
+     * @throws IOException
+     *             si no se puede leer.
+     */
+    private void read() throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            fingerprints.load(in);
+        } finally {
+            in.close();
+        }
+    }
+}
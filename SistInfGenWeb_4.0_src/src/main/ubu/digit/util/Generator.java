@@ -4,6 +4,20 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.sql.SQLException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
 
@@ -12,6 +26,8 @@ import ubu.digit.htmlgen.DocHistoric;
 import ubu.digit.htmlgen.DocIndex;
 import ubu.digit.htmlgen.DocMetric;
 import ubu.digit.htmlgen.DocSistInfHtml;
+import ubu.digit.pesistence.SistInfData;
+import ubu.digit.server.PreviewServer;
 
 /**
  * Generación del portal de la asignatura de Sistemas Informáticos. Se puede
@@ -20,6 +36,11 @@ import ubu.digit.htmlgen.DocSistInfHtml;
  * <p>
  * Ejecutar la aplicación: "java -jar SistInfGenWeb.jar"
  * <p>
+ * Con "java -jar SistInfGenWeb.jar --watch" la aplicación sigue en marcha y
+ * vuelve a generar el portal cada vez que cambian los datos, y con
+ * "java -jar SistInfGenWeb.jar --serve" sirve el portal en memoria para
+ * verlo en el navegador sin escribir el directorio de salida.
+ * <p>
  * - nivel 1: Genera Tribunal, Calendario, Normas, Documentos utilizados
  * (index.html)
  * <p>
@@ -32,6 +53,14 @@ import ubu.digit.htmlgen.DocSistInfHtml;
  * - nivel 4: Genera nivel 3 + métricas de productos (MetricSist.html);
  * <p>
  * - Por defecto se ejecuta nivel 4:");
+ * <p>
+ * Las páginas se pueden generar a la vez en varios hilos indicando su número
+ * en la propiedad hilos del fichero de configuración. Los ítems del canal RSS
+ * se escriben siempre en el orden de las páginas.
+ * <p>
+ * Sólo se generan las páginas cuyas tablas, ficheros incluidos o configuración
+ * han cambiado desde la ejecución anterior, y de ellas sólo los gráficos cuyos
+ * datos han cambiado, salvo que la propiedad incremental valga no.
  * 
  * @author Carlos López Nozal
  * @author Beatriz Zurera Martínez-Acitores
@@ -47,6 +76,47 @@ public class Generator {
 
     private static GeneratorRSS generatorRSS;
 
+    /**
+     * Página index.html, la primera en el canal RSS.
+     */
+    private static final int PAGE_INDEX = 0;
+
+    /**
+     * Página ActualesSist.html.
+     */
+    private static final int PAGE_ACTUALES = 1;
+
+    /**
+     * Página HistoricoSist.html.
+     */
+    private static final int PAGE_HISTORIC = 2;
+
+    /**
+     * Página MetricSist.html.
+     */
+    private static final int PAGE_METRIC = 3;
+
+    /**
+     * Argumento para vigilar el directorio de datos.
+     */
+    private static final String WATCH = "--watch";
+
+    /**
+     * Argumento para arrancar el servidor de vista previa.
+     */
+    private static final String SERVE = "--serve";
+
+    /**
+     * Puerto por defecto del servidor de vista previa.
+     */
+    private static final int DEFAULT_PORT = 8080;
+
+    /**
+     * Milisegundos sin cambios en el directorio de datos que se esperan por
+     * defecto antes de volver a generar el portal.
+     */
+    private static final int DEFAULT_DELAY = 500;
+
     /**
      * URL donde encontramos el fichero con las propiedades del proyecto.
      */
@@ -79,12 +149,42 @@ public class Generator {
      * - nivel 4: Genera nivel 3 + métricas de productos (MetricSist.html);
      * <p>
      * - Por defecto se ejecuta nivel 4:");
+     * <p>
+     * Con el argumento {@value #WATCH} la aplicación no termina tras generar
+     * el portal: vigila el directorio de datos y lo vuelve a generar cada vez
+     * que cambian los ficheros CSV.
+     * <p>
+     * Con el argumento {@value #SERVE} no se escribe el directorio de salida:
+     * se arranca un servidor de vista previa, ver {@link PreviewServer}.
      * 
      * @param arg
      *            Nivel de generación.
      * @throws IOException
      */
     public static void main(String[] arg) throws IOException {
+        if (Arrays.asList(arg).contains(SERVE)) {
+            serve();
+            return;
+        }
+        generatePortal();
+        if (Arrays.asList(arg).contains(WATCH)) {
+            watch();
+        }
+        LOGGER.info("FIN.");
+    }
+
+    /**
+     * Genera el portal completo, el canal RSS, el manifiesto de ficheros
+     * generados y el estado de la generación.
+     */
+    private static void generatePortal() {
+        OutputManifest manifest = OutputManifest.getInstance();
+        int written = manifest.getWritten();
+        int skipped = manifest.getSkipped();
+        int deleted = manifest.getDeleted();
+        int compressed = manifest.getCompressed();
+        ChartCache charts = ChartCache.getInstance();
+        int reused = charts.getReused();
 
         try {
 
@@ -101,28 +201,19 @@ public class Generator {
         }
         String value = prop.getSetting("nivel");
         if (String.valueOf(4).equals(value) || "".equals(value)) {
-            createIndex(4);
-            createActuales(4);
-            createHistoric(4);
-            createMetric(4);
+            createPages(4);
         } else {
             if (String.valueOf(1).equals(value)) {
-                createIndex(1);
+                createPages(1);
             }
             if (String.valueOf(2).equals(value)) {
-                createIndex(2);
-                createActuales(2);
+                createPages(2);
             }
             if (String.valueOf(3).equals(value)) {
-                createIndex(3);
-                createActuales(3);
-                createHistoric(3);
+                createPages(3);
             }
             if (String.valueOf(4).equals(value)) {
-                createIndex(4);
-                createActuales(4);
-                createHistoric(4);
-                createMetric(4);
+                createPages(4);
             }
 
             if (("help").equals(value) || ("?").equals(value)) {
@@ -131,7 +222,242 @@ public class Generator {
         }
 
         generatorRSS.generateFootRSSChannel();
-        LOGGER.info("FIN.");
+        try {
+            generatorRSS.close();
+        } catch (IOException e) {
+            LOGGER.error("Fatal Error: No puede generar el fichero RSS", e);
+        }
+
+        try {
+            manifest.save();
+        } catch (IOException e) {
+            LOGGER.error("Error: No se puede guardar el manifiesto de ficheros"
+                    + " generados, se volverán a escribir todos", e);
+        }
+        try {
+            GenerationState.getInstance().save();
+        } catch (IOException e) {
+            LOGGER.error("Error: No se puede guardar el estado de la "
+                    + "generación, se volverán a generar todas las páginas", e);
+        }
+        try {
+            charts.save();
+        } catch (IOException e) {
+            LOGGER.error("Error: No se pueden guardar las huellas de los "
+                    + "gráficos, se volverán a dibujar todos", e);
+        }
+        LOGGER.info("Ficheros escritos: " + (manifest.getWritten() - written)
+                + ", sin cambios: " + (manifest.getSkipped() - skipped)
+                + ", borrados: " + (manifest.getDeleted() - deleted)
+                + ", comprimidos: " + (manifest.getCompressed() - compressed)
+                + ", gráficos sin cambios: " + (charts.getReused() - reused));
+    }
+
+    /**
+     * Arranca el servidor de vista previa con el nivel de gestión de la
+     * propiedad nivel y el puerto de la propiedad puertoServidor. La
+     * aplicación sigue en marcha hasta que se detiene.
+     */
+    private static void serve() {
+        int level = prop.getSetting("nivel", 4);
+        if (level < 1 || level > 4) {
+            LOGGER.error("El nivel de gestión debe estar entre 1 y 4: " + level
+                    + ". Se usa el nivel 4");
+            level = 4;
+        }
+        try {
+            PreviewServer.create(level, prop.getSetting("puertoServidor",
+                    DEFAULT_PORT)).start();
+        } catch (IOException e) {
+            LOGGER.error("Fatal Error: No se puede arrancar el servidor de "
+                    + "vista previa", e);
+        }
+    }
+
+    /**
+     * Vigila el directorio de datos y vuelve a generar el portal cuando
+     * cambian los ficheros CSV, sin volver a arrancar la aplicación: los
+     * datos se recargan en memoria y sólo se generan las páginas cuyas tablas
+     * han cambiado. Los cambios seguidos se agrupan: se espera a que pasen
+     * los milisegundos de la propiedad esperaCambios sin ninguno nuevo.
+     * Termina si se interrumpe el hilo o desaparece el directorio.
+     */
+    private static void watch() {
+        Path dir = Paths.get(prop.getSetting("dataIn"));
+        long delay = prop.getSetting("esperaCambios", DEFAULT_DELAY);
+        WatchService watcher;
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            LOGGER.error("Fatal Error: No se puede vigilar el directorio de "
+                    + "datos: " + dir, e);
+            return;
+        }
+        LOGGER.info("Esperando cambios en " + dir);
+        try {
+            while (true) {
+                boolean valid = drain(watcher.take());
+                WatchKey key;
+                while ((key = watcher.poll(delay, TimeUnit.MILLISECONDS))
+                        != null) {
+                    valid = drain(key) && valid;
+                }
+                if (!valid) {
+                    LOGGER.error("Fatal Error: Ya no se puede vigilar el "
+                            + "directorio de datos: " + dir);
+                    return;
+                }
+                SistInfData data = SistInfData.getInstance();
+                if (data.isStale()) {
+                    long start = System.nanoTime();
+                    data.reload();
+                    generatePortal();
+                    LOGGER.info("Portal actualizado en "
+                            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime()
+                                    - start) + " ms");
+                }
+            }
+        } catch (InterruptedException e) {
+            LOGGER.info("Fin de la vigilancia del directorio de datos");
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                LOGGER.error("No se puede cerrar la vigilancia del directorio "
+                        + "de datos", e);
+            }
+        }
+    }
+
+    /**
+     * Descarta los eventos de un directorio vigilado, ya que lo que ha
+     * cambiado se averigua comparando los ficheros con los datos en memoria, y
+     * lo prepara para recibir nuevos eventos.
+     * 
+     * @param key
+     *            clave del directorio vigilado.
+     * @return false si el directorio ya no se puede vigilar.
+     */
+    private static boolean drain(WatchKey key) {
+        key.pollEvents();
+        return key.reset();
+    }
+
+    /**
+     * Genera las páginas de un nivel de gestión: el nivel n genera las n
+     * primeras páginas (index, actuales, histórico y métricas). Si la
+     * propiedad hilos es mayor que 1 las páginas se generan a la vez en un
+     * ejecutor con ese número de hilos como máximo; si no, una detrás de
+     * otra.
+     * 
+     * @param level
+     *            Información de nivel de gestión.
+     */
+    private static void createPages(final int level) {
+        int hilos = getHilos();
+        if (hilos <= 1 || level == 1) {
+            for (int page = 0; page < level; page++) {
+                createPage(page, level);
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(
+                hilos, level));
+        List<Future<?>> futures = new ArrayList<Future<?>>(level);
+        for (int page = 0; page < level; page++) {
+            final int current = page;
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    createPage(current, level);
+                }
+            }));
+        }
+        executor.shutdown();
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                LOGGER.error("Generación de páginas interrumpida", e);
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+                return;
+            } catch (ExecutionException e) {
+                LOGGER.error("Fatal Error: No se ha podido generar la página",
+                        e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Genera una de las páginas del portal.
+     * 
+     * @param page
+     *            Página a generar.
+     * @param level
+     *            Información de nivel de gestión.
+     */
+    private static void createPage(int page, int level) {
+        switch (page) {
+        case PAGE_INDEX:
+            createIndex(level);
+            break;
+        case PAGE_ACTUALES:
+            createActuales(level);
+            break;
+        case PAGE_HISTORIC:
+            createHistoric(level);
+            break;
+        case PAGE_METRIC:
+            createMetric(level);
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Genera una página si ha cambiado alguna de sus dependencias desde la
+     * última ejecución (ver {@link GenerationState}) y anota su nueva huella.
+     * 
+     * @param doc
+     *            Página a generar.
+     * @param level
+     *            Información de nivel de gestión.
+     * @throws FileNotFoundException
+     * @throws SQLException
+     */
+    private static void generate(DocSistInfHtml doc, int level)
+            throws FileNotFoundException, SQLException {
+        GenerationState state = GenerationState.getInstance();
+        String fileName = doc.getFileName();
+        String fingerprint = doc.getFingerprint(level);
+        if (state.isUpToDate(fileName, fingerprint)) {
+            LOGGER.info("Sin cambios en los datos de " + fileName
+                    + ", no se genera");
+            return;
+        }
+        state.remove(fileName);
+        doc.generate(level);
+        if (!doc.checkError()) {
+            state.update(fileName, fingerprint);
+        }
+    }
+
+    /**
+     * Obtiene el número de hilos con el que se generan las páginas de la
+     * propiedad hilos. Por defecto es 1.
+     * 
+     * @return número de hilos.
+     */
+    private static int getHilos() {
+        return prop.getSetting("hilos", 1);
     }
 
     /**
@@ -147,7 +473,11 @@ public class Generator {
                 + "\n\t  - nivel 2: Genera index.html,ActualesSist.html"
                 + "\n\t  - nivel 3: Genera index.html,ActualesSist.html,HistoricoSist.html"
                 + "\n\t  - nivel 4: Genera index.html,ActualesSist.html,HistoricoSist.html, MetricSist.html"
-                + "\nPor defecto se ejecuta nivel 4.");
+                + "\nPor defecto se ejecuta nivel 4."
+                + "\nCon el argumento " + WATCH
+                + " se vuelve a generar el portal cada vez que cambian los datos."
+                + "\nCon el argumento " + SERVE
+                + " se sirve el portal en http://localhost:puertoServidor/.");
     }
 
     /**
@@ -167,8 +497,9 @@ public class Generator {
         try {
             docMetric = new DocMetric();
 
-            docMetric.generate(level);
-            generatorRSS.generateItem("\t", title, link, description);
+            generate(docMetric, level);
+            generatorRSS.generateItem(PAGE_METRIC, "\t", title, link,
+                    description);
             LOGGER.info("* - Metric generado correctamente        *");
         } catch (SQLException e) {
 
@@ -207,8 +538,9 @@ public class Generator {
         DocSistInfHtml docHistoric = new DocHistoric();
 
         try {
-            docHistoric.generate(level);
-            generatorRSS.generateItem("\t", title, link, description);
+            generate(docHistoric, level);
+            generatorRSS.generateItem(PAGE_HISTORIC, "\t", title, link,
+                    description);
             LOGGER.info("* - Historico generado correctamente        *");
         } catch (FileNotFoundException e) {
             LOGGER.error(
@@ -243,8 +575,9 @@ public class Generator {
         DocSistInfHtml docCurrent = new DocCurrent();
 
         try {
-            docCurrent.generate(level);
-            generatorRSS.generateItem("\t", title, link, description);
+            generate(docCurrent, level);
+            generatorRSS.generateItem(PAGE_ACTUALES, "\t", title, link,
+                    description);
             LOGGER.info("* - Actuales generado correctamente        *");
         } catch (FileNotFoundException e) {
             LOGGER.error(
@@ -281,8 +614,9 @@ public class Generator {
         DocSistInfHtml docIndex = new DocIndex();
 
         try {
-            docIndex.generate(level);
-            generatorRSS.generateItem("\t", title, link, description);
+            generate(docIndex, level);
+            generatorRSS.generateItem(PAGE_INDEX, "\t", title, link,
+                    description);
             LOGGER.info("* - Index generado correctamente        *");
         } catch (FileNotFoundException e) {
             LOGGER.error(
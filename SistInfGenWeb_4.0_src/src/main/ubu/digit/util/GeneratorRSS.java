@@ -1,12 +1,25 @@
 package ubu.digit.util;
 
+import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
 import java.util.Date;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
+ * Generador del canal RSS del portal.
+ * <p>
+ * Los ítems se pueden generar desde varios hilos a la vez. Cada ítem tiene una
+ * posición y se escriben todos ordenados por ella al cerrar el canal, de modo
+ * que el fichero es el mismo sea cual sea el orden en que terminan las
+ * páginas.
+ * <p>
+ * El canal se genera en memoria y se escribe al cerrarlo a través de
+ * {@link OutputManifest}, sólo si ha cambiado.
+ * 
  * @author Carlos López Nozal
  * @author Beatriz Zurera Martínez-Acitores
  *
@@ -23,6 +36,21 @@ public class GeneratorRSS {
      */
     private PrintStream outRss;
 
+    /**
+     * Contenido del canal en memoria.
+     */
+    private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+    /**
+     * Ruta del fichero del canal.
+     */
+    private final String path;
+
+    /**
+     * Ítems pendientes de escribir, ordenados por su posición en el canal.
+     */
+    private final SortedMap<Integer, String[]> items = new TreeMap<Integer, String[]>();
+
     /**
      * Constructor de la clase.
      * 
@@ -35,22 +63,39 @@ public class GeneratorRSS {
      */
     public GeneratorRSS(String path, String charset)
             throws UnsupportedEncodingException, FileNotFoundException {
-        outRss = new PrintStream(new FileOutputStream(path), true, charset);
+        this.path = path;
+        outRss = new PrintStream(content, false, charset);
     }
 
     /**
-     * Generador del canal.
+     * Cierra el canal y escribe el fichero si su contenido ha cambiado.
+     * 
+     * @throws IOException
+     *             si no se puede escribir el fichero.
      */
-    public void generateFootRSSChannel() {
+    public synchronized void close() throws IOException {
+        outRss.close();
+        OutputManifest.getInstance().write(path, content.toByteArray());
+    }
+
+    /**
+     * Generador del canal. Escribe los ítems pendientes en orden.
+     */
+    public synchronized void generateFootRSSChannel() {
+        for (String[] item : items.values()) {
+            writeItem(item[0], item[1], item[2], item[3]);
+        }
+        items.clear();
         outRss.println("<channel>");
     }
 
     /**
-     * Características del canal.
+     * Características del canal. La fecha de lastBuildDate depende de la
+     * propiedad fechaActualizacion, ver {@link BuildDate}.
      */
-    public void generateChannelProperties() {
+    public synchronized void generateChannelProperties() {
         String tab = "\t";
-        Date date = new Date(System.currentTimeMillis());
+        Date date = BuildDate.get();
 
         outRss.println("<?xml version=\"1.0\" encoding=\"" + CHARSET + "\" ?>");
         outRss.println("<rss version=\"2.0\">");
@@ -78,8 +123,29 @@ public class GeneratorRSS {
     }
 
     /**
-     * Generador del ítem.
+     * Generador del ítem. El ítem se coloca detrás de los ya generados.
+     * 
+     * @param tab
+     *            Tabulador.
+     * @param title
+     *            Título del ítem.
+     * @param link
+     *            URL del ítem.
+     * @param description
+     *            Descripción del ítem que hemos añadido.
+     */
+    public synchronized void generateItem(String tab, String title,
+            String link, String description) {
+        int position = items.isEmpty() ? 0 : items.lastKey() + 1;
+        generateItem(position, tab, title, link, description);
+    }
+
+    /**
+     * Generador del ítem en una posición del canal. El ítem se escribe al
+     * cerrar el canal, ordenado por su posición.
      * 
+     * @param position
+     *            Posición del ítem en el canal.
      * @param tab
      *            Tabulador.
      * @param title
@@ -89,7 +155,24 @@ public class GeneratorRSS {
      * @param description
      *            Descripción del ítem que hemos añadido.
      */
-    public void generateItem(String tab, String title, String link,
+    public synchronized void generateItem(int position, String tab,
+            String title, String link, String description) {
+        items.put(position, new String[] { tab, title, link, description });
+    }
+
+    /**
+     * Escribe un ítem en el fichero.
+     * 
+     * @param tab
+     *            Tabulador.
+     * @param title
+     *            Título del ítem.
+     * @param link
+     *            URL del ítem.
+     * @param description
+     *            Descripción del ítem que hemos añadido.
+     */
+    private void writeItem(String tab, String title, String link,
             String description) {
 
         outRss.println(tab + "<item>");
@@ -103,14 +186,13 @@ public class GeneratorRSS {
      * Main de la clase.
      * 
      * @param args
-     * @throws UnsupportedEncodingException
-     * @throws FileNotFoundException
+     * @throws IOException
      */
-    public static void main(String[] args) throws UnsupportedEncodingException,
-            FileNotFoundException {
+    public static void main(String[] args) throws IOException {
 
         GeneratorRSS g = new GeneratorRSS(".\\ejemplo.rss", "UTF-8");
         g.generateFootRSSChannel();
+        g.close();
 
     }
 
@@ -0,0 +1,361 @@
+package ubu.digit.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Manifiesto con el resumen SHA-256 de cada fichero generado en el directorio
+ * de salida. Los generadores preparan el contenido completo en memoria y lo
+ * entregan al manifiesto, que sólo escribe el fichero si el resumen ha
+ * cambiado respecto a la ejecución anterior o si el fichero ya no está en
+ * disco. Así los ficheros que no cambian conservan su fecha de modificación y
+ * no se vuelven a transferir al servidor web.
+ * <p>
+ * El manifiesto se guarda en el directorio de salida con el formato de
+ * sha256sum y cuenta los ficheros escritos y los que no ha hecho falta
+ * escribir. Se puede usar desde varios hilos a la vez.
+ * <p>
+ * Salvo que la propiedad comprimir valga no, los ficheros de texto escritos
+ * se comprimen también con gzip, ver {@link Precompressor}.
+ * 
+ * @since 4.1
+ */
+public class OutputManifest implements FileSink {
+
+    /**
+     * Logger de la clase.
+     */
+    private static final Logger LOGGER = Logger.getLogger(OutputManifest.class);
+
+    /**
+     * URL donde encontramos el fichero con las propiedades del proyecto.
+     */
+    private static ExternalProperties prop = ExternalProperties
+            .getInstance("./../src/main/config.properties");
+
+    /**
+     * Nombre del fichero del manifiesto dentro del directorio de salida.
+     */
+    private static final String MANIFEST = "\\manifest.sha256";
+
+    /**
+     * Sufijo de los ficheros temporales.
+     */
+    private static final String TMP_SUFFIX = ".tmp";
+
+    /**
+     * Separador entre el resumen y el nombre del fichero.
+     */
+    private static final String SEPARATOR = "  ";
+
+    /**
+     * Instancia única.
+     */
+    private static OutputManifest instance;
+
+    /**
+     * Fichero del manifiesto.
+     */
+    private final File file;
+
+    /**
+     * Resumen de cada fichero generado, indexado por nombre.
+     */
+    private final ConcurrentMap<String, String> hashes = new ConcurrentHashMap<String, String>();
+
+    /**
+     * Ficheros escritos.
+     */
+    private final AtomicInteger written = new AtomicInteger();
+
+    /**
+     * Ficheros sin cambios que no se han escrito.
+     */
+    private final AtomicInteger skipped = new AtomicInteger();
+
+    /**
+     * Ficheros borrados porque ya no se generan.
+     */
+    private final AtomicInteger deleted = new AtomicInteger();
+
+    /**
+     * Compresión de los ficheros escritos, o null si no se comprimen.
+     */
+    private final Precompressor precompressor;
+
+    /**
+     * Constructor. Lee el manifiesto de la ejecución anterior si existe.
+     * 
+     * @param file
+     *            fichero del manifiesto.
+     */
+    private OutputManifest(File file) {
+        this(file, "no".equals(prop.getSetting("comprimir", "")) ? null
+                : new Precompressor(Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Constructor. Lee el manifiesto de la ejecución anterior si existe.
+     * 
+     * @param file
+     *            fichero del manifiesto.
+     * @param precompressor
+     *            compresión de los ficheros escritos, o null si no se
+     *            comprimen.
+     */
+    OutputManifest(File file, Precompressor precompressor) {
+        this.file = file;
+        this.precompressor = precompressor;
+        if (file.isFile()) {
+            try {
+                read();
+            } catch (IOException e) {
+                LOGGER.error("No se puede leer el manifiesto: " + file
+                        + ", se escribirán todos los ficheros", e);
+                hashes.clear();
+            }
+        }
+    }
+
+    /**
+     * Método singleton para obtener el manifiesto del directorio de salida.
+     * 
+     * @return el manifiesto.
+     */
+    public static synchronized OutputManifest getInstance() {
+        if (instance == null) {
+            instance = new OutputManifest(new File(prop.getSetting("dirOut")
+                    + MANIFEST));
+        }
+        return instance;
+    }
+
+    /**
+     * Escribe un fichero si su contenido ha cambiado. El fichero se escribe
+     * primero en un temporal que luego se renombra, de modo que nunca queda a
+     * medio escribir.
+     * 
+     * @param fileName
+     *            nombre del fichero.
+     * @param content
+     *            contenido completo.
+     * @return true si se ha escrito, false si no había cambios.
+     * @throws IOException
+     *             si no se puede escribir.
+     */
+    @Override
+    public boolean write(String fileName, byte[] content) throws IOException {
+        String hash = hash(content);
+        File target = new File(fileName);
+        if (hash.equals(hashes.get(fileName)) && target.isFile()
+                && target.length() == content.length) {
+            skipped.incrementAndGet();
+            return false;
+        }
+        writeFile(target, content);
+        hashes.put(fileName, hash);
+        written.incrementAndGet();
+        if (precompressor != null && Precompressor.isCompressible(fileName)) {
+            precompressor.submit(fileName, content);
+        }
+        return true;
+    }
+
+    /**
+     * Borra un fichero que ya no se genera, junto con su versión comprimida,
+     * y lo quita del manifiesto.
+     * 
+     * @param fileName
+     *            nombre del fichero.
+     * @return true si el fichero existía o estaba en el manifiesto.
+     * @throws IOException
+     *             si no se puede borrar.
+     */
+    @Override
+    public boolean delete(String fileName) throws IOException {
+        boolean known = hashes.remove(fileName) != null;
+        File target = new File(fileName);
+        boolean existed = target.isFile();
+        if (existed && !target.delete()) {
+            throw new IOException("No se puede borrar el fichero: " + target);
+        }
+        File gzip = new File(fileName + Precompressor.SUFFIX);
+        if (gzip.isFile() && !gzip.delete()) {
+            throw new IOException("No se puede borrar el fichero: " + gzip);
+        }
+        if (known || existed) {
+            deleted.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Termina de comprimir los ficheros escritos, comprime los demás ficheros
+     * de texto del directorio de salida que hayan cambiado y guarda el
+     * manifiesto si se ha escrito o borrado algún fichero.
+     * 
+     * @throws IOException
+     *             si no se puede escribir.
+     */
+    public void save() throws IOException {
+        if (precompressor != null) {
+            precompressor.await();
+            precompressor.compressStale(new File(prop.getSetting("dirOut")));
+            precompressor.await();
+        }
+        if (written.get() == 0 && deleted.get() == 0 && file.isFile()) {
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, String> entry : new TreeMap<String, String>(
+                hashes).entrySet()) {
+            text.append(entry.getValue()).append(SEPARATOR)
+                    .append(entry.getKey()).append('\n');
+        }
+        writeFile(file, text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Comprueba que siguen en disco todos los ficheros del manifiesto.
+     * 
+     * @return true si no falta ninguno.
+     */
+    public boolean isComplete() {
+        for (String fileName : hashes.keySet()) {
+            if (!new File(fileName).isFile()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return número de ficheros escritos.
+     */
+    public int getWritten() {
+        return written.get();
+    }
+
+    /**
+     * @return número de ficheros borrados porque ya no se generan.
+     */
+    public int getDeleted() {
+        return deleted.get();
+    }
+
+    /**
+     * @return número de ficheros sin cambios que no se han escrito.
+     */
+    public int getSkipped() {
+        return skipped.get();
+    }
+
+    /**
+     * @return número de ficheros comprimidos.
+     */
+    public int getCompressed() {
+        return precompressor == null ? 0 : precompressor.getCompressed();
+    }
+
+    /**
+     * Lee el manifiesto.
+     * 
+     * @throws IOException
+     *             si no se puede leer.
+     */
+    private void read() throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf(SEPARATOR);
+                if (separator > 0) {
+                    hashes.put(line.substring(separator + SEPARATOR.length()),
+                            line.substring(0, separator));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Escribe un fichero a través de un temporal que se renombra al final, de
+     * forma atómica si el sistema de ficheros lo permite.
+     * 
+     * @param target
+     *            fichero a escribir.
+     * @param content
+     *            contenido completo.
+     * @throws IOException
+     *             si no se puede escribir.
+     */
+    static void writeFile(File target, byte[] content)
+            throws IOException {
+        File temp = new File(target.getPath() + TMP_SUFFIX);
+        OutputStream out = new FileOutputStream(temp);
+        try {
+            out.write(content);
+        } catch (IOException e) {
+            out.close();
+            if (!temp.delete()) {
+                LOGGER.error("No se puede borrar el fichero: " + temp);
+            }
+            throw e;
+        }
+        out.close();
+        try {
+            Files.move(temp.toPath(), target.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            LOGGER.debug("Renombrado atómico no soportado: " + target, e);
+            Files.move(temp.toPath(), target.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Calcula el resumen SHA-256 de un contenido.
+     * 
+     * @param content
+     *            contenido.
+     * @return resumen en hexadecimal.
+     */
+    static String hash(byte[] content) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Todas las máquinas virtuales deben soportar SHA-256
+            throw new IllegalStateException(e);
+        }
+        byte[] bytes = digest.digest(content);
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,238 @@
+package ubu.digit.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Escribe junto a cada fichero html, rss, css, js y svg del directorio de
+ * salida su versión comprimida con gzip (fichero.html.gz), para que el servidor
+ * web la sirva directamente sin comprimir en cada petición.
+ * <p>
+ * Los ficheros se comprimen en varios hilos a la vez, con el nivel máximo de
+ * compresión, y sólo cuando su contenido ha cambiado: los generados se
+ * comprimen en cuanto {@link OutputManifest} los escribe, y el resto (los
+ * recursos estáticos, o los que no tienen versión comprimida) cuando la
+ * versión comprimida no existe o es más antigua que el fichero.
+ * 
+ * @since 4.1
+ */
+public class Precompressor {
+
+    /**
+     * Logger de la clase.
+     */
+    private static final Logger LOGGER = Logger.getLogger(Precompressor.class);
+
+    /**
+     * Sufijo de las versiones comprimidas.
+     */
+    public static final String SUFFIX = ".gz";
+
+    /**
+     * Extensiones de los ficheros que se comprimen.
+     */
+    private static final String[] EXTENSIONS = { ".html", ".rss", ".css",
+            ".js", ".svg" };
+
+    /**
+     * Ejecutor en el que se comprimen los ficheros.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Compresiones pendientes.
+     */
+    private final List<Future<?>> pending = new ArrayList<Future<?>>();
+
+    /**
+     * Ficheros comprimidos.
+     */
+    private final AtomicInteger compressed = new AtomicInteger();
+
+    /**
+     * Constructor.
+     * 
+     * @param threads
+     *            número de hilos en los que se comprime.
+     */
+    public Precompressor(int threads) {
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Precompressor-"
+                        + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @param fileName
+     *            nombre del fichero.
+     * @return true si es un fichero de texto que se comprime.
+     */
+    public static boolean isCompressible(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        for (String extension : EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Comprime un fichero que se acaba de escribir.
+     * 
+     * @param fileName
+     *            nombre del fichero.
+     * @param content
+     *            contenido completo.
+     */
+    public void submit(final String fileName, final byte[] content) {
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                compress(fileName, content);
+            }
+        });
+    }
+
+    /**
+     * Comprime los ficheros de un directorio y sus subdirectorios cuya
+     * versión comprimida no existe o es más antigua que el fichero.
+     * 
+     * @param dir
+     *            directorio.
+     */
+    public void compressStale(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (final File file : files) {
+            if (file.isDirectory()) {
+                compressStale(file);
+            } else if (isCompressible(file.getName())) {
+                File gzip = new File(file.getPath() + SUFFIX);
+                if (!gzip.isFile()
+                        || gzip.lastModified() < file.lastModified()) {
+                    submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                compress(file.getPath(),
+                                        Files.readAllBytes(file.toPath()));
+                            } catch (IOException e) {
+                                LOGGER.error("No se puede leer el fichero: "
+                                        + file, e);
+                            }
+                        }
+                    });
+                }
+            }
+        }
+    }
+
+    /**
+     * Espera a que terminen todas las compresiones pendientes.
+     */
+    public void await() {
+        List<Future<?>> futures;
+        synchronized (pending) {
+            futures = new ArrayList<Future<?>>(pending);
+            pending.clear();
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                LOGGER.error("Compresión interrumpida", e);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                LOGGER.error("Error al comprimir", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * @return número de ficheros comprimidos.
+     */
+    public int getCompressed() {
+        return compressed.get();
+    }
+
+    /**
+     * Comprime un contenido con gzip con el nivel máximo de compresión. La
+     * cabecera no incluye la fecha, de modo que el mismo contenido da siempre
+     * el mismo resultado.
+     * 
+     * @param content
+     *            contenido.
+     * @return contenido comprimido.
+     * @throws IOException
+     *             si no se puede comprimir.
+     */
+    public static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(
+                content.length / 4 + 64);
+        GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        };
+        gzip.write(content);
+        gzip.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * Añade una compresión a las pendientes.
+     * 
+     * @param task
+     *            compresión.
+     */
+    private void submit(Runnable task) {
+        synchronized (pending) {
+            pending.add(executor.submit(task));
+        }
+    }
+
+    /**
+     * Comprime un fichero y escribe su versión comprimida.
+     * 
+     * @param fileName
+     *            nombre del fichero.
+     * @param content
+     *            contenido completo.
+     */
+    private void compress(String fileName, byte[] content) {
+        try {
+            OutputManifest.writeFile(new File(fileName + SUFFIX),
+                    gzip(content));
+            compressed.incrementAndGet();
+        } catch (IOException e) {
+            LOGGER.error("No se puede escribir la versión comprimida de: "
+                    + fileName, e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ubu.digit.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.jfree.data.statistics.BoxAndWhiskerItem;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+/**
+ * Conjunto de métodos que verifican el dibujo en SVG de los gráficos de caja
+ * y bigotes de la clase SvgBoxPlot.
+ * 
+ * @since 4.1
+ */
+public class SvgBoxPlotTest {
+
+    /**
+     * Test que comprueba que los pasos del eje son 1, 2 o 5 por una potencia
+     * de 10.
+     */
+    @Test
+    public void testNiceStep() {
+        assertEquals(1, SvgBoxPlot.niceStep(0.8), 1e-9);
+        assertEquals(2, SvgBoxPlot.niceStep(1.5), 1e-9);
+        assertEquals(5, SvgBoxPlot.niceStep(2.5), 1e-9);
+        assertEquals(10, SvgBoxPlot.niceStep(7), 1e-9);
+        assertEquals(50000, SvgBoxPlot.niceStep(41000), 1e-9);
+        assertEquals(0.02, SvgBoxPlot.niceStep(0.013), 1e-9);
+    }
+
+    /**
+     * Test que comprueba que el gráfico es XML bien formado, con el título
+     * escapado y una caja por serie.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testDraw() throws Exception {
+        List<Double> values = Arrays.asList(1.0, 2.0, 3.0, 4.0, 40.0);
+        List<BoxAndWhiskerItem> items = Arrays.asList(new BoxAndWhiskerItem(
+                10.0, 3.0, 2.0, 4.0, -1.0, 7.0, -10000, 10000, values),
+                new BoxAndWhiskerItem(5.0, 5.0, 4.0, 6.0, 1.0, 9.0, -10000,
+                        10000, values));
+        String svg = SvgBoxPlot.draw("J1_<Líneas & \"código\">", items, 250,
+                60);
+
+        Document document = DocumentBuilderFactory
+                .newInstance()
+                .newDocumentBuilder()
+                .parse(new ByteArrayInputStream(svg
+                        .getBytes(StandardCharsets.UTF_8)));
+        assertEquals("svg", document.getDocumentElement().getTagName());
+        assertEquals("J1_<Líneas & \"código\">", document
+                .getElementsByTagName("title").item(0).getTextContent());
+        // Una caja por serie y un cuadrado por media
+        assertEquals(4, document.getElementsByTagName("rect").getLength());
+        assertEquals(1, document.getElementsByTagName("polyline").getLength());
+        assertTrue(svg.contains("<text x='"));
+    }
+}
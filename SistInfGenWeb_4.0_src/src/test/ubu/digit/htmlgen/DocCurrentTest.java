@@ -0,0 +1,163 @@
+package ubu.digit.htmlgen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import ubu.digit.pesistence.SistInfData;
+import ubu.digit.util.ExternalProperties;
+import ubu.digit.util.FileSink;
+
+/**
+ * Conjunto de métodos que verifican el reparto en páginas de la tabla de
+ * proyectos de la clase DocCurrent. El fichero de configuración del test
+ * indica 3 filas por página y la tabla Proyecto tiene 7 filas, una de ellas
+ * sin título, que no aparece en la tabla.
+ * 
+ * @since 4.1
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({ ExternalProperties.class, SistInfData.class })
+public class DocCurrentTest {
+
+    /**
+     * Página completa.
+     */
+    private static final String PAGE = ".\\web\\ActualesSist.html";
+
+    /**
+     * URL del fichero donde se encuentra el fichero de configuración del test.
+     */
+    ExternalProperties test = ExternalProperties
+            .getInstance("./../src/test/testConfig.properties");
+
+    /**
+     * Ficheros generados, indexados por nombre.
+     */
+    private final Map<String, String> files = new TreeMap<String, String>();
+
+    /**
+     * Método que se ejecuta antes de cualquier test. Modifica el fichero de
+     * configuración, por el propio del test.
+     */
+    @Before
+    public void setUp() {
+        mockStatic(ExternalProperties.class);
+
+        when(ExternalProperties.getInstance("./../src/main/config.properties"))
+                .thenReturn(test);
+    }
+
+    /**
+     * Test que comprueba que cada fila de la tabla aparece en una sola
+     * página, también las que siguen a la fila sin título, que el número de
+     * páginas corresponde a las filas que se muestran y que las páginas se
+     * enlazan entre sí.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testPages() throws Exception {
+        generate();
+
+        assertEquals(3, files.size());
+        StringBuilder pages = new StringBuilder();
+        for (int page = 1; page <= 2; page++) {
+            String html = files.get(DocSistInfHtml.getPageFileName(PAGE, page));
+            assertEquals(3, count(html, "<!-- Begin Proyecto-->"));
+            for (int row = (page - 1) * 3; row < page * 3; row++) {
+                assertTrue(html.contains("<tr id=\"P" + row + "\">"));
+            }
+            pages.append(html);
+        }
+        for (String title : new String[] { "A", "B", "D", "E", "F", "G" }) {
+            assertEquals(1, count(pages.toString(), "<th> Proyecto " + title
+                    + "</th>"));
+        }
+        assertFalse(pages.toString().contains("Proyecto sin titulo"));
+
+        String first = files.get(PAGE);
+        assertEquals(3, count(first, "<!-- Begin Proyecto-->"));
+        assertTrue(first.contains("<a href='ActualesSist-p2.html'>Siguiente"));
+        assertFalse(first.contains("Anterior"));
+        String last = files.get(DocSistInfHtml.getPageFileName(PAGE, 2));
+        assertTrue(last
+                .contains("<a href='ActualesSist-p1.html'>&laquo; Anterior"));
+        assertFalse(last.contains("Siguiente"));
+    }
+
+    /**
+     * Test que comprueba que se retiran las páginas de una generación
+     * anterior con más páginas, y sólo esas.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testRemoveExtraPages() throws Exception {
+        files.put(DocSistInfHtml.getPageFileName(PAGE, 3), "");
+        files.put(DocSistInfHtml.getPageFileName(PAGE, 4), "");
+        files.put(DocSistInfHtml.getPageFileName(PAGE, 6), "");
+        generate();
+
+        assertTrue(files.containsKey(DocSistInfHtml.getPageFileName(PAGE, 2)));
+        assertNull(files.get(DocSistInfHtml.getPageFileName(PAGE, 3)));
+        assertNull(files.get(DocSistInfHtml.getPageFileName(PAGE, 4)));
+        // Las páginas se retiran hasta el primer hueco
+        assertTrue(files.containsKey(DocSistInfHtml.getPageFileName(PAGE, 6)));
+    }
+
+    /**
+     * Genera la página de proyectos actuales en memoria.
+     * 
+     * @throws Exception
+     */
+    private void generate() throws Exception {
+        DocCurrent doc = new DocCurrent();
+        doc.setFileSink(new FileSink() {
+            @Override
+            public boolean write(String fileName, byte[] content) {
+                files.put(fileName,
+                        new String(content, StandardCharsets.UTF_8));
+                return true;
+            }
+
+            @Override
+            public boolean delete(String fileName) {
+                return files.remove(fileName) != null;
+            }
+        });
+        doc.generate(4);
+        assertFalse(doc.checkError());
+    }
+
+    /**
+     * Cuenta las apariciones de un texto.
+     * 
+     * @param text
+     *            texto en el que se busca.
+     * @param pattern
+     *            texto buscado.
+     * @return número de apariciones.
+     */
+    private static int count(String text, String pattern) {
+        int total = 0;
+        for (int i = text.indexOf(pattern); i >= 0; i = text.indexOf(pattern,
+                i + 1)) {
+            total++;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,123 @@
+package ubu.digit.htmlgen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.text.NumberFormat;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import ubu.digit.pesistence.SistInfData;
+import ubu.digit.util.ExternalProperties;
+import ubu.digit.util.FileSink;
+
+/**
+ * Conjunto de métodos que verifican las estadísticas por curso de la clase
+ * DocHistoric sobre la tabla Historico del test.
+ * <p>
+ * Los valores esperados de los cursos 2002/2003, 2003/2004 y 2005/2006 son
+ * los que calculaba la versión anterior, que consultaba y recorría los
+ * proyectos una vez por curso. El curso 2004/2005 no tiene proyectos nuevos,
+ * sólo uno de un curso anterior: la versión anterior fallaba con una
+ * NullPointerException y ahora sus medias son NaN.
+ * 
+ * @since 4.1
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({ ExternalProperties.class, SistInfData.class })
+public class DocHistoricTest {
+
+    /**
+     * URL del fichero donde se encuentra el fichero de configuración del test.
+     */
+    ExternalProperties test = ExternalProperties
+            .getInstance("./../src/test/testConfig.properties");
+
+    /**
+     * Ficheros generados, indexados por nombre.
+     */
+    private final Map<String, String> files = new TreeMap<String, String>();
+
+    /**
+     * Método que se ejecuta antes de cualquier test. Modifica el fichero de
+     * configuración, por el propio del test.
+     */
+    @Before
+    public void setUp() {
+        mockStatic(ExternalProperties.class);
+
+        when(ExternalProperties.getInstance("./../src/main/config.properties"))
+                .thenReturn(test);
+    }
+
+    /**
+     * Test que comprueba los proyectos nuevos, los ya asignados, los
+     * alumnos, los tutores, los proyectos presentados y las medias de notas y
+     * meses de cada curso, y el mínimo y el máximo de notas y días.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testCourseStatistics() throws Exception {
+        String html = generate();
+
+        assertTrue(html.contains("['2002/2003', 3, 0, 4, 4], "
+                + "['2003/2004', 2, 1, 4, 2], ['2004/2005', 0, 1, 0, 0], "
+                + "['2005/2006', 2, 0, 2, 3]]"));
+        assertTrue(html.contains("['2002/2003', 8.333333333333334, "
+                + "9.1505375], ['2003/2004', 8.0, 11.306452], "
+                + "['2004/2005', NaN, NaN], ['2005/2006', 6.75, 7.822581]]"));
+        assertTrue(html.contains("Asignados por Curso:<br/> [3, 2, 0, 2]"));
+        assertTrue(html.contains("Presentados por Curso: <br/>[1, 3, 0, 2]"));
+        assertTrue(html.contains("Alumnos Asignados por Curso: <br/>"
+                + "[4, 4, 0, 2]"));
+        assertTrue(html.contains("nuevas asignaciones por Curso: <br/>"
+                + "[4, 2, 0, 3]"));
+
+        NumberFormat format = NumberFormat.getInstance();
+        format.setMaximumFractionDigits(2);
+        assertTrue(html.contains("(" + format.format(7.94) + ", "
+                + format.format(5.5) + ", " + format.format(10) + ", "
+                + format.format(1.64) + ")"));
+        assertTrue(html.contains("(" + format.format(254.62) + ", "
+                + format.format(0) + ", " + format.format(488) + ", "
+                + format.format(140.18) + ")"));
+    }
+
+    /**
+     * Genera la página del histórico en memoria.
+     * 
+     * @return página completa.
+     * @throws Exception
+     */
+    private String generate() throws Exception {
+        DocHistoric doc = new DocHistoric();
+        doc.setFileSink(new FileSink() {
+            @Override
+            public boolean write(String fileName, byte[] content) {
+                files.put(fileName,
+                        new String(content, StandardCharsets.UTF_8));
+                return true;
+            }
+
+            @Override
+            public boolean delete(String fileName) {
+                return files.remove(fileName) != null;
+            }
+        });
+        doc.generate(4);
+        assertFalse(doc.checkError());
+        assertEquals(4, files.size());
+        return files.get(doc.getFileName());
+    }
+}
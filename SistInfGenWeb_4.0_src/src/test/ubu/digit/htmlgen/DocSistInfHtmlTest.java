@@ -0,0 +1,196 @@
+package ubu.digit.htmlgen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Conjunto de métodos que verifican que los fragmentos comunes de la clase
+ * DocSistInfHtml dan el mismo resultado guardados en memoria que generados
+ * en cada página.
+ * 
+ * @since 4.1
+ */
+public class DocSistInfHtmlTest {
+
+    /**
+     * Directorio de los scripts que se copian en las páginas.
+     */
+    private File dir;
+
+    /**
+     * Método que se ejecuta antes de cada test. Crea los scripts.
+     * 
+     * @throws IOException
+     */
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("fragments").toFile();
+        assertTrue(new File(dir, "js").mkdir());
+        write("js/addThis.js", "<script>addThis('ñ');</script>");
+        write("js/google_translate.js", "<script>translate();</script>");
+        write("js/googleanalitics.js", "<script>analytics();</script>");
+    }
+
+    /**
+     * Método que se ejecuta después de cada test. Vuelve a activar la caché y
+     * borra los scripts.
+     */
+    @After
+    public void tearDown() {
+        DocSistInfHtml.setFragmentCache(true);
+        for (File file : new File(dir, "js").listFiles()) {
+            assertTrue(file.delete());
+        }
+        assertTrue(new File(dir, "js").delete());
+        assertTrue(dir.delete());
+    }
+
+    /**
+     * Test que comprueba que las páginas generadas con los fragmentos en
+     * memoria son idénticas a las generadas sin caché, también la segunda vez,
+     * cuando se copian, y después de cambiar uno de los scripts.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testFragmentCache() throws Exception {
+        DocSistInfHtml.setFragmentCache(false);
+        String uncached = render();
+        assertTrue(uncached.contains("addThis('ñ')"));
+        DocSistInfHtml.setFragmentCache(true);
+        assertEquals(uncached, render());
+        assertEquals(uncached, render());
+
+        write("js/addThis.js", "<script>addThis('otro');</script>");
+        DocSistInfHtml.setFragmentCache(false);
+        uncached = render();
+        assertTrue(uncached.contains("addThis('otro')"));
+        DocSistInfHtml.setFragmentCache(true);
+        assertEquals(uncached, render());
+    }
+
+    /**
+     * Test que comprueba que si falta un script el menú que lo incluye no se
+     * guarda en memoria, de modo que se avisa del error en cada página y en
+     * cuanto aparece el script se copia en las páginas.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testMissingScript() throws Exception {
+        DocSistInfHtml.setFragmentCache(true);
+        File script = new File(dir, "js/google_translate.js");
+        assertTrue(script.delete());
+        final AtomicInteger errors = new AtomicInteger();
+        AppenderSkeleton appender = new AppenderSkeleton() {
+            @Override
+            protected void append(LoggingEvent event) {
+                if (event.getLevel().isGreaterOrEqual(Level.ERROR)) {
+                    errors.incrementAndGet();
+                }
+            }
+
+            @Override
+            public boolean requiresLayout() {
+                return false;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Logger logger = Logger.getLogger(DocHistoric.class);
+        logger.addAppender(appender);
+        try {
+            String missing = render();
+            assertFalse(missing.contains("translate()"));
+            assertTrue(missing.contains("addThis('ñ')"));
+            int perPage = errors.get();
+            assertTrue(perPage > 0);
+            assertEquals(missing, render());
+            assertEquals(2 * perPage, errors.get());
+        } finally {
+            logger.removeAppender(appender);
+        }
+
+        write("js/google_translate.js", "<script>translate();</script>");
+        assertTrue(render().contains("translate()"));
+    }
+
+    /**
+     * Genera una página con todos los fragmentos comunes.
+     * 
+     * @return página, sin la fecha de actualización, que cambia en cada
+     *         generación.
+     * @throws SQLException
+     */
+    private String render() throws SQLException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Page page = new Page();
+        page.setResourceDir(dir);
+        page.setOutputStream(out);
+        page.generate(4);
+        assertFalse(page.checkError());
+        return new String(out.toByteArray(), StandardCharsets.UTF_8)
+                .replaceAll("Fecha de actualizaci&oacute;n [^<]*", "");
+    }
+
+    /**
+     * Escribe uno de los scripts.
+     * 
+     * @param name
+     *            ruta del script en el directorio.
+     * @param text
+     *            contenido.
+     * @throws IOException
+     */
+    private void write(String name, String text) throws IOException {
+        Files.write(new File(dir, name).toPath(),
+                text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Página con la estructura común a todas las del portal.
+     */
+    private static final class Page extends DocSistInfHtml {
+
+        @Override
+        public void generate(int level) throws SQLException {
+            openHtml(getFileName());
+            outHtml.println("<html>");
+            createHeaderHtml("Prueba");
+            createMenuHtml(level);
+            createFootHtml();
+            createScript(WEB_JS_GOOGLEANALITICS_JS, "\t\t");
+            outHtml.println("</html>");
+            outHtml.close();
+        }
+
+        @Override
+        public String getFileName() {
+            return "Prueba.html";
+        }
+
+        @Override
+        public String[] getTables() {
+            return new String[0];
+        }
+    }
+}
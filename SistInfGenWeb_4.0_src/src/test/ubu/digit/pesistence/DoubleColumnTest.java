@@ -0,0 +1,36 @@
+package ubu.digit.pesistence;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Conjunto de métodos que verifican que la clase DoubleColumn no modifica el
+ * array que envuelve.
+ * 
+ * @since 4.1
+ */
+public class DoubleColumnTest {
+
+    /**
+     * Test que comprueba que al añadir valores a una columna que envuelve un
+     * array con posiciones libres el array no cambia, y que las medidas se
+     * calculan sobre los valores de la columna.
+     */
+    @Test
+    public void testWrappedArray() {
+        double[] values = { 3, Double.NaN, 1, 0, 0 };
+        DoubleColumn column = new DoubleColumn(values, 3);
+        column.add(2);
+        column.add(5);
+        column.add(4);
+
+        assertArrayEquals(new double[] { 3, Double.NaN, 1, 0, 0 }, values, 0);
+        assertEquals(6, column.size());
+        assertArrayEquals(new double[] { 3, 1, 2, 5, 4 }, column.toArray(), 0);
+        assertEquals(1, column.min(), 0);
+        assertEquals(5, column.max(), 0);
+        assertEquals(3, column.mean(), 0);
+    }
+}
@@ -0,0 +1,117 @@
+package ubu.digit.pesistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import ubu.digit.util.ExternalProperties;
+
+/**
+ * Conjunto de métodos que verifican que la clase HistoricRecords agrupa los
+ * proyectos por año igual que la consulta por año sobre el fichero CSV a la
+ * que sustituye. La tabla Historico del test tiene proyectos asignados en
+ * 2003, 2004, 2006 y 2007, y ninguno en 2005.
+ * 
+ * @since 4.1
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({ ExternalProperties.class, SistInfData.class })
+public class HistoricRecordsTest {
+
+    /**
+     * URL del fichero donde se encuentra el fichero de configuración del test.
+     */
+    ExternalProperties test = ExternalProperties
+            .getInstance("./../src/test/testConfig.properties");
+
+    /**
+     * Método que se ejecuta antes de cualquier test. Modifica el fichero de
+     * configuración, por el propio del test.
+     */
+    @Before
+    public void setUp() {
+        mockStatic(ExternalProperties.class);
+
+        when(ExternalProperties.getInstance("./../src/main/config.properties"))
+                .thenReturn(test);
+    }
+
+    /**
+     * Test que comprueba que los proyectos de cada año son los que devuelve
+     * la consulta con like '%año' sobre la fecha de asignación, en el mismo
+     * orden, también en los años sin proyectos.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testRecordsOfYear() throws Exception {
+        HistoricRecords records = SistInfData.getInstance()
+                .getHistoricRecords("Historico");
+        assertEquals(8, records.size());
+
+        Connection connection = DriverManager.getConnection("jdbc:relique:csv:"
+                + test.getSetting("dataIn"));
+        try {
+            int total = 0;
+            for (int year = 2002; year <= 2008; year++) {
+                List<String> expected = query(connection, year);
+                List<String> actual = new ArrayList<String>();
+                for (int record : records.getRecordsOfYear(year)) {
+                    actual.add(records.getName(records.getStudent(record, 0))
+                            + ";" + records.getDays(record));
+                }
+                assertEquals("Año " + year, expected, actual);
+                total += actual.size();
+            }
+            assertEquals(0, records.getRecordsOfYear(2005).length);
+            assertEquals(3, records.getRecordsOfYear(2003).length);
+            assertEquals(records.size(), total);
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Consulta los proyectos de un año como se hacía antes de agruparlos en
+     * memoria.
+     * 
+     * @param connection
+     *            conexión con los ficheros CSV.
+     * @param year
+     *            año de asignación.
+     * @return primer alumno y total de días de cada proyecto, en el orden
+     *         del fichero.
+     * @throws SQLException
+     */
+    private static List<String> query(Connection connection, int year)
+            throws SQLException {
+        List<String> rows = new ArrayList<String>();
+        Statement statement = connection.createStatement();
+        try {
+            ResultSet result = statement
+                    .executeQuery("Select Alumno1,TotalDias from Historico "
+                            + "where FechaAsignacion like '%" + year + "';");
+            while (result.next()) {
+                rows.add(result.getString("Alumno1") + ";"
+                        + result.getInt("TotalDias"));
+            }
+        } finally {
+            statement.close();
+        }
+        return rows;
+    }
+}
@@ -11,8 +11,12 @@ import static org.powermock.api.mockito.PowerMockito.when;
 import java.sql.SQLException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
+import java.util.SortedMap;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -189,6 +193,55 @@ public class SistInfDataTest {
                 0.25)), notNullValue());
     }
 
+    /**
+     * Test que comprueba que el resumen estadístico de una columna coincide
+     * con los valores que devuelven los métodos individuales. La columna
+     * "nota" contiene los números del 1 al 10.
+     * 
+     * @throws SQLException
+     */
+    @Test
+    public void testSummary() throws SQLException {
+        ColumnSummary summary = sistInfData.getSummary("Nota", "Prueba");
+        assertThat(summary.getCount(), is(10));
+        assertThat(summary.getMin(), is(1.0));
+        assertThat(summary.getMax(), is(10.0));
+        assertThat(summary.getMean(), is(5.5));
+        assertEquals(3.0276503540974917, summary.getStdev(), 1e-12);
+        assertThat(summary.getQ1(), is(sistInfData.getQuartilColumn("Nota",
+                "Prueba", 0.25).doubleValue()));
+        assertThat(summary.getMedian(), is(sistInfData.getQuartilColumn(
+                "Nota", "Prueba", 0.5).doubleValue()));
+        assertThat(summary.getQ3(), is(sistInfData.getQuartilColumn("Nota",
+                "Prueba", 0.75).doubleValue()));
+    }
+
+    /**
+     * Test que comprueba que leer varias columnas en una sola pasada da los
+     * mismos valores que recorrer cada columna con getResultSet y getDouble,
+     * también para una columna no numérica, cuyas celdas valen 0.
+     * 
+     * @throws SQLException
+     */
+    @Test
+    public void testNumberColumns() throws SQLException {
+        String[] columns = { "Nota", "Numero", "Descripcion" };
+        double[][] values = sistInfData.getNumberColumns("Prueba", columns);
+        assertThat(values.length, is(3));
+        for (int i = 0; i < columns.length; i++) {
+            TableCursor result = sistInfData.getResultSet("Prueba",
+                    columns[i]);
+            int n = 0;
+            while (result.next()) {
+                assertEquals(result.getDouble(columns[i]), values[i][n++], 0);
+            }
+            result.close();
+            assertThat(values[i].length, is(n));
+        }
+        assertThat(values[0][9], is(10.0));
+        assertThat(values[2][0], is(0.0));
+    }
+
     /**
      * En este test comprobamos que la obtención de la fecha máxima y la fecha
      * mínima funcione correctamente. La fecha mínima que esperamos es
@@ -249,6 +302,45 @@ public class SistInfDataTest {
         sistInfData.getAvgColumn("Nada", "Vacia");
     }
 
+    /**
+     * Test que comprueba que la recarga en segundo plano publica una
+     * instantánea nueva con los mismos datos y que, si no cambian los
+     * ficheros, los datos en memoria siguen al día.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testReload() throws Exception {
+        assertThat(sistInfData.isStale(), is(false));
+        sistInfData.reloadInBackground().get();
+        assertThat(sistInfData.isStale(), is(false));
+        Number esperado = sistInfData.getAvgColumn("Nota", "Prueba");
+        assertThat(esperado, is((Number) 5.5F));
+    }
+
+    /**
+     * Test que comprueba que los proyectos de todos los cursos son los de
+     * cada curso por separado. La tabla Historico tiene proyectos asignados
+     * en 2003, 2004, 2006 y 2007.
+     * 
+     * @throws SQLException
+     */
+    @SuppressWarnings("rawtypes")
+    @Test
+    public void testProjectsCursos() throws SQLException {
+        SortedMap<Integer, List<List>> cursos = sistInfData.getProjectsCursos(
+                "FechaAsignacion", "FechaPresentacion", "TotalDias", "Nota",
+                "Historico");
+        assertEquals(Arrays.asList(2003, 2004, 2006, 2007),
+                new ArrayList<Integer>(cursos.keySet()));
+        for (Integer curso : cursos.keySet()) {
+            assertEquals(sistInfData.getProjectsCurso("FechaAsignacion",
+                    "FechaPresentacion", "TotalDias", "Nota", "Historico",
+                    curso), cursos.get(curso));
+        }
+        assertEquals(3, cursos.get(2003).size());
+    }
+
     /**
      * Método main.
      * 
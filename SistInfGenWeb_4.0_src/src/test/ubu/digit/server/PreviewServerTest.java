@@ -0,0 +1,245 @@
+package ubu.digit.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Conjunto de métodos que verifican las respuestas de la clase PreviewServer:
+ * ETag y 304, compresión con gzip y métodos admitidos. El servidor se crea
+ * sin páginas generadas, de modo que sólo sirve los recursos estáticos de un
+ * directorio temporal.
+ * 
+ * @since 4.1
+ */
+public class PreviewServerTest {
+
+    /**
+     * Directorio de los recursos estáticos.
+     */
+    private File dir;
+
+    /**
+     * Servidor a testear.
+     */
+    private PreviewServer server;
+
+    /**
+     * Contenido de la hoja de estilos, suficientemente grande para que se
+     * comprima.
+     */
+    private byte[] css;
+
+    /**
+     * Método que se ejecuta antes de cada test. Crea los recursos estáticos y
+     * arranca el servidor en un puerto libre.
+     * 
+     * @throws IOException
+     */
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("preview").toFile();
+        StringBuilder style = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            style.append(".c").append(i).append(" { color: red; }\n");
+        }
+        css = style.toString().getBytes(StandardCharsets.UTF_8);
+        Files.write(new File(dir, "style.css").toPath(), css);
+        Files.write(new File(dir, "logo.png").toPath(), new byte[] { 1, 2, 3 });
+        server = new PreviewServer(0, new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), 0), dir);
+        server.start();
+    }
+
+    /**
+     * Método que se ejecuta después de cada test. Para el servidor y borra
+     * los recursos.
+     */
+    @After
+    public void tearDown() {
+        server.stop(0);
+        for (File file : dir.listFiles()) {
+            assertTrue(file.delete());
+        }
+        assertTrue(dir.delete());
+    }
+
+    /**
+     * Test que comprueba qué clientes aceptan gzip según la cabecera
+     * Accept-Encoding.
+     */
+    @Test
+    public void testAcceptsGzip() {
+        assertFalse(PreviewServer.acceptsGzip(null));
+        assertFalse(PreviewServer.acceptsGzip(""));
+        assertFalse(PreviewServer.acceptsGzip("deflate, br"));
+        assertFalse(PreviewServer.acceptsGzip("gzip;q=0"));
+        assertFalse(PreviewServer.acceptsGzip("deflate, gzip; q=0.000"));
+        assertTrue(PreviewServer.acceptsGzip("gzip"));
+        assertTrue(PreviewServer.acceptsGzip("deflate, GZIP"));
+        assertTrue(PreviewServer.acceptsGzip("gzip;q=0.5, br"));
+    }
+
+    /**
+     * Test que comprueba cuándo una ETag está en la cabecera If-None-Match.
+     */
+    @Test
+    public void testMatches() {
+        String etag = "\"abc\"";
+        assertFalse(PreviewServer.matches(null, etag));
+        assertFalse(PreviewServer.matches("\"abd\"", etag));
+        assertFalse(PreviewServer.matches("abc", etag));
+        assertTrue(PreviewServer.matches("\"abc\"", etag));
+        assertTrue(PreviewServer.matches("\"x\", W/\"abc\"", etag));
+        assertTrue(PreviewServer.matches("*", etag));
+    }
+
+    /**
+     * Test que comprueba que la respuesta lleva una ETag y que se contesta
+     * 304, sin cuerpo, si el cliente ya tiene esa versión.
+     * 
+     * @throws IOException
+     */
+    @Test
+    public void testNotModified() throws IOException {
+        HttpURLConnection get = open("GET", "/style.css");
+        assertEquals(200, get.getResponseCode());
+        String etag = get.getHeaderField("ETag");
+        assertArrayEquals(css, read(get));
+
+        HttpURLConnection cached = open("GET", "/style.css");
+        cached.setRequestProperty("If-None-Match", etag);
+        assertEquals(304, cached.getResponseCode());
+        assertEquals(etag, cached.getHeaderField("ETag"));
+
+        HttpURLConnection other = open("GET", "/style.css");
+        other.setRequestProperty("If-None-Match", "\"otra\"");
+        assertEquals(200, other.getResponseCode());
+        assertArrayEquals(css, read(other));
+    }
+
+    /**
+     * Test que comprueba que los ficheros de texto se sirven comprimidos, con
+     * su propia ETag, sólo a los clientes que aceptan gzip, y que las
+     * imágenes se sirven siempre tal cual.
+     * 
+     * @throws IOException
+     */
+    @Test
+    public void testGzip() throws IOException {
+        HttpURLConnection plain = open("GET", "/style.css");
+        assertNull(plain.getHeaderField("Content-Encoding"));
+        assertEquals("Accept-Encoding", plain.getHeaderField("Vary"));
+        assertArrayEquals(css, read(plain));
+
+        HttpURLConnection gzip = open("GET", "/style.css");
+        gzip.setRequestProperty("Accept-Encoding", "gzip, deflate");
+        assertEquals("gzip", gzip.getHeaderField("Content-Encoding"));
+        assertNotEquals(plain.getHeaderField("ETag"), gzip
+                .getHeaderField("ETag"));
+        assertArrayEquals(css, read(new GZIPInputStream(gzip
+                .getInputStream())));
+
+        HttpURLConnection image = open("GET", "/logo.png");
+        image.setRequestProperty("Accept-Encoding", "gzip");
+        assertEquals("image/png", image.getHeaderField("Content-Type"));
+        assertNull(image.getHeaderField("Content-Encoding"));
+        assertNull(image.getHeaderField("Vary"));
+        assertArrayEquals(new byte[] { 1, 2, 3 }, read(image));
+    }
+
+    /**
+     * Test que comprueba que HEAD devuelve las cabeceras de GET sin cuerpo,
+     * que el resto de métodos se rechazan con 405 y que las rutas que no
+     * existen devuelven 404.
+     * 
+     * @throws IOException
+     */
+    @Test
+    public void testMethods() throws IOException {
+        HttpURLConnection head = open("HEAD", "/style.css");
+        assertEquals(200, head.getResponseCode());
+        assertEquals(String.valueOf(css.length), head
+                .getHeaderField("Content-Length"));
+        assertEquals(0, read(head).length);
+
+        HttpURLConnection post = open("POST", "/style.css");
+        assertEquals(405, post.getResponseCode());
+        assertEquals("GET, HEAD", post.getHeaderField("Allow"));
+
+        assertEquals(404, open("GET", "/nada.css").getResponseCode());
+        assertEquals(404, open("HEAD", "/nada.css").getResponseCode());
+    }
+
+    /**
+     * Abre una conexión con el servidor.
+     * 
+     * @param method
+     *            método http.
+     * @param path
+     *            ruta pedida.
+     * @return conexión, sin enviar.
+     * @throws IOException
+     */
+    private HttpURLConnection open(String method, String path)
+            throws IOException {
+        InetSocketAddress address = server.getAddress();
+        HttpURLConnection connection = (HttpURLConnection) new URL("http",
+                address.getHostString(), address.getPort(), path)
+                .openConnection();
+        connection.setRequestMethod(method);
+        connection.setUseCaches(false);
+        return connection;
+    }
+
+    /**
+     * Lee el cuerpo de una respuesta.
+     * 
+     * @param connection
+     *            conexión.
+     * @return cuerpo.
+     * @throws IOException
+     */
+    private static byte[] read(HttpURLConnection connection)
+            throws IOException {
+        return read(connection.getInputStream());
+    }
+
+    /**
+     * Lee un flujo hasta el final y lo cierra.
+     * 
+     * @param in
+     *            flujo.
+     * @return contenido.
+     * @throws IOException
+     */
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+}
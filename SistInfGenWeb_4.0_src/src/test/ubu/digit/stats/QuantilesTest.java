@@ -0,0 +1,86 @@
+package ubu.digit.stats;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+
+/**
+ * Conjunto de métodos que verifican el cálculo de cuantiles de la clase
+ * Quantiles.
+ * 
+ * @since 4.1
+ */
+public class QuantilesTest {
+
+    /**
+     * Test que comprueba las dos reglas de interpolación sobre los números
+     * del 1 al 10.
+     * <p>
+     * Con INDEX_FLOOR los cuartiles son las posiciones 2, 5 y 7 (valores 3, 6
+     * y 8). Con LINEAR la mediana es la media de los valores centrales, 5.5.
+     */
+    @Test
+    public void testInterpolation() {
+        double[] values = { 10, 9, 8, 7, 6, 5, 4, 3, 2, 1 };
+        double[] ps = { 0.25, 0.5, 0.75 };
+
+        double[] floor = Quantiles.quantiles(values.clone(), values.length,
+                ps, Interpolation.INDEX_FLOOR);
+        assertEquals(3.0, floor[0], 0);
+        assertEquals(6.0, floor[1], 0);
+        assertEquals(8.0, floor[2], 0);
+
+        assertEquals(5.5, Quantiles.select(values.clone(), values.length,
+                0.5, Interpolation.LINEAR), 0);
+        assertEquals(3.25, Quantiles.select(values.clone(), values.length,
+                0.25, Interpolation.LINEAR), 0);
+        assertEquals(10.0, Quantiles.select(values.clone(), values.length, 1,
+                Interpolation.INDEX_FLOOR), 0);
+    }
+
+    /**
+     * Test que comprueba que la selección devuelve lo mismo que leer el
+     * cuantil del array ordenado, con muestras aleatorias de distintos
+     * tamaños y con muchos valores repetidos.
+     */
+    @Test
+    public void testSelectMatchesSort() {
+        Random random = new Random(1);
+        for (int t = 0; t < 500; t++) {
+            int n = 1 + random.nextInt(300);
+            double[] values = new double[n];
+            for (int i = 0; i < n; i++) {
+                values[i] = t % 2 == 0 ? random.nextInt(5) : random
+                        .nextGaussian();
+            }
+            double p = random.nextDouble();
+            double[] sorted = values.clone();
+            Arrays.sort(sorted);
+            for (Interpolation rule : Interpolation.values()) {
+                assertEquals(Quantiles.fromSorted(sorted, n, p, rule),
+                        Quantiles.select(values.clone(), n, p, rule), 1e-12);
+            }
+        }
+    }
+
+    /**
+     * Test que comprueba que no se admite una muestra vacía.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmpty() {
+        Quantiles.select(new double[0], 0, 0.5, Interpolation.INDEX_FLOOR);
+    }
+
+    /**
+     * Método main.
+     * 
+     * @param args
+     */
+    public static void main(String[] args) {
+        JUnitCore.main("ubu.digit.stats.QuantilesTest");
+    }
+}
@@ -0,0 +1,185 @@
+package ubu.digit.stats;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Prueba de rendimiento del agrupamiento de proyectos por curso de la página
+ * de histórico. Compara YearBuckets con el agrupamiento anterior, que copiaba
+ * la lista completa del curso cada vez que se añadía un proyecto, y muestra
+ * el tiempo por proyecto para tamaños de 1.000 a 100.000 proyectos: con
+ * YearBuckets se mantiene constante (coste lineal) y con la copia crece con
+ * el número de proyectos (coste cuadrático).
+ * <p>
+ * No es un test de JUnit; se ejecuta con el método main.
+ * 
+ * @since 4.1
+ */
+public class YearBucketsBenchmark {
+
+    /**
+     * Número de cursos entre los que se reparten los proyectos.
+     */
+    private static final int YEARS = 15;
+
+    /**
+     * Primer curso.
+     */
+    private static final int FIRST_YEAR = 2000;
+
+    /**
+     * Tamaño máximo con el que se mide el agrupamiento con copia, que a
+     * partir de ahí tarda demasiado.
+     */
+    private static final int MAX_COPY_SIZE = 20000;
+
+    /**
+     * Repeticiones de cada medida; se toma la mejor.
+     */
+    private static final int RUNS = 5;
+
+    /**
+     * Genera los cursos de n proyectos repartidos al azar.
+     * 
+     * @param n
+     *            número de proyectos.
+     * @return curso de cada proyecto.
+     */
+    private static int[] years(int n) {
+        Random random = new Random(n);
+        int[] years = new int[n];
+        for (int i = 0; i < n; i++) {
+            years[i] = FIRST_YEAR + random.nextInt(YEARS);
+        }
+        return years;
+    }
+
+    /**
+     * Agrupa los proyectos con YearBuckets.
+     * 
+     * @param years
+     *            curso de cada proyecto.
+     * @return proyectos agrupados.
+     */
+    private static YearBuckets groupBuckets(int[] years) {
+        YearBuckets buckets = new YearBuckets();
+        for (int i = 0; i < years.length; i++) {
+            buckets.add(years[i], i);
+        }
+        return buckets;
+    }
+
+    /**
+     * Agrupa los proyectos copiando la lista del curso en cada inserción,
+     * como se hacía antes en DocHistoric.
+     * 
+     * @param years
+     *            curso de cada proyecto.
+     * @return proyectos agrupados.
+     */
+    private static Map<Integer, List<Integer>> groupCopy(int[] years) {
+        Map<Integer, List<Integer>> buckets = new HashMap<Integer, List<Integer>>();
+        for (int i = 0; i < years.length; i++) {
+            List<Integer> aux = new ArrayList<Integer>();
+            List<Integer> old = buckets.get(years[i]);
+            if (old != null) {
+                for (int index = 0; index < old.size(); index++) {
+                    aux.add(old.get(index));
+                }
+            }
+            aux.add(i);
+            buckets.put(years[i], aux);
+        }
+        return buckets;
+    }
+
+    /**
+     * Recorre todos los grupos sumando sus elementos, para que el recorrido
+     * forme parte de la medida y no se pueda eliminar.
+     * 
+     * @param buckets
+     *            proyectos agrupados.
+     * @return suma de los elementos.
+     */
+    private static long sum(YearBuckets buckets) {
+        long sum = 0;
+        for (int year = FIRST_YEAR; year < FIRST_YEAR + YEARS; year++) {
+            YearBuckets.Bucket bucket = buckets.get(year);
+            for (int i = 0; i < bucket.size(); i++) {
+                sum += bucket.get(i);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * @param buckets
+     *            proyectos agrupados.
+     * @return suma de los elementos.
+     */
+    private static long sum(Map<Integer, List<Integer>> buckets) {
+        long sum = 0;
+        for (List<Integer> bucket : buckets.values()) {
+            for (int value : bucket) {
+                sum += value;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Mide el agrupamiento de n proyectos.
+     * 
+     * @param n
+     *            número de proyectos.
+     * @param copy
+     *            true para medir el agrupamiento con copia.
+     * @return mejor tiempo en nanosegundos.
+     */
+    private static long measure(int n, boolean copy) {
+        int[] years = years(n);
+        long expected = (long) n * (n - 1) / 2;
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            long sum = copy ? sum(groupCopy(years)) : sum(groupBuckets(years));
+            long time = System.nanoTime() - start;
+            if (sum != expected) {
+                throw new IllegalStateException("Suma incorrecta: " + sum);
+            }
+            best = Math.min(best, time);
+        }
+        return best;
+    }
+
+    /**
+     * Método main.
+     * 
+     * @param args
+     */
+    public static void main(String[] args) {
+        int[] sizes = { 1000, 2000, 5000, 10000, 20000, 50000, 100000 };
+
+        // Calentamiento del compilador.
+        measure(MAX_COPY_SIZE, false);
+        measure(MAX_COPY_SIZE / 4, true);
+
+        System.out.printf("%10s %14s %10s %14s %10s%n", "proyectos",
+                "buckets (ms)", "ns/proy", "copia (ms)", "ns/proy");
+        for (int n : sizes) {
+            long buckets = measure(n, false);
+            String copyMs = "-";
+            String copyPer = "-";
+            if (n <= MAX_COPY_SIZE) {
+                long copy = measure(n, true);
+                copyMs = String.format("%.2f", copy / 1e6);
+                copyPer = String.valueOf(copy / n);
+            }
+            System.out.printf("%10d %14.2f %10d %14s %10s%n", n,
+                    buckets / 1e6, buckets / n, copyMs, copyPer);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package ubu.digit.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Conjunto de métodos que verifican cuándo la clase ChartCache da por
+ * dibujado un gráfico y cuándo obliga a volver a dibujarlo.
+ * 
+ * @since 4.1
+ */
+public class ChartCacheTest {
+
+    /**
+     * Directorio de los gráficos.
+     */
+    private File dir;
+
+    /**
+     * Fichero de huellas.
+     */
+    private File stateFile;
+
+    /**
+     * Gráfico.
+     */
+    private File chart;
+
+    /**
+     * Huella del gráfico con los datos iniciales.
+     */
+    private final String fingerprint = ChartCache
+            .fingerprint("Nota\nProyectos\n[2003, 2004]\n[[7.5, 8.0]]");
+
+    /**
+     * Método que se ejecuta antes de cada test. Crea el gráfico.
+     * 
+     * @throws IOException
+     */
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("charts").toFile();
+        stateFile = new File(dir, "charts.state");
+        chart = new File(dir, "Nota.png");
+        Files.write(chart.toPath(), "png".getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Método que se ejecuta después de cada test. Borra el directorio.
+     */
+    @After
+    public void tearDown() {
+        for (File file : dir.listFiles()) {
+            assertTrue(file.delete());
+        }
+        assertTrue(dir.delete());
+    }
+
+    /**
+     * Test que comprueba que un gráfico se reutiliza si se dibujó con la
+     * misma huella, también en la ejecución siguiente, y que sólo entonces
+     * se cuenta como reutilizado.
+     * 
+     * @throws IOException
+     */
+    @Test
+    public void testHit() throws IOException {
+        ChartCache cache = new ChartCache(stateFile, true);
+        assertFalse(cache.isUpToDate(chart.getPath(), fingerprint));
+        cache.update(chart.getPath(), fingerprint);
+        assertTrue(cache.isUpToDate(chart.getPath(), fingerprint));
+        assertEquals(1, cache.getReused());
+        cache.save();
+
+        cache = new ChartCache(stateFile, true);
+        assertTrue(cache.isUpToDate(chart.getPath(), fingerprint));
+        assertEquals(1, cache.getReused());
+    }
+
+    /**
+     * Test que comprueba que un gráfico se vuelve a dibujar si cambia alguno
+     * de sus datos, si falta su fichero o sin generación incremental.
+     * 
+     * @throws IOException
+     */
+    @Test
+    public void testMiss() throws IOException {
+        ChartCache cache = new ChartCache(stateFile, true);
+        cache.update(chart.getPath(), fingerprint);
+        cache.save();
+
+        String changed = ChartCache
+                .fingerprint("Nota\nProyectos\n[2003, 2004]\n[[7.5, 8.5]]");
+        assertNotEquals(fingerprint, changed);
+        cache = new ChartCache(stateFile, true);
+        assertFalse(cache.isUpToDate(chart.getPath(), changed));
+        cache.update(chart.getPath(), changed);
+        assertFalse(cache.isUpToDate(chart.getPath(), fingerprint));
+        assertTrue(cache.isUpToDate(chart.getPath(), changed));
+        assertEquals(1, cache.getReused());
+
+        assertFalse(new ChartCache(stateFile, false).isUpToDate(chart
+                .getPath(), fingerprint));
+
+        assertTrue(chart.delete());
+        assertFalse(new ChartCache(stateFile, true).isUpToDate(chart
+                .getPath(), fingerprint));
+    }
+}
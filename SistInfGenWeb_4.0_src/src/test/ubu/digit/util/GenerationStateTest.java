@@ -0,0 +1,82 @@
+package ubu.digit.util;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+/**
+ * Conjunto de métodos que verifican cuándo la clase GenerationState da por
+ * generada una página y cuándo obliga a volver a generarla.
+ * 
+ * @since 4.1
+ */
+public class GenerationStateTest {
+
+    /**
+     * Test que comprueba que una página generada con la misma huella, la
+     * misma configuración y la misma versión del generador está al día, y
+     * que deja de estarlo si cambia la versión, la configuración, si falta
+     * algún fichero generado o sin generación incremental.
+     * 
+     * @throws IOException
+     */
+    @Test
+    public void testRegeneration() throws IOException {
+        File dir = Files.createTempDirectory("generation").toFile();
+        File stateFile = new File(dir, "generation.state");
+        File page = new File(dir, "index.html");
+        try {
+            Files.write(page.toPath(), "<html></html>"
+                    .getBytes(StandardCharsets.UTF_8));
+            GenerationState state = new GenerationState(stateFile, "c1", "v1",
+                    true, true);
+            assertFalse(state.isUpToDate(page.getPath(), "huella"));
+            state.update(page.getPath(), "huella");
+            state.save();
+
+            assertTrue(load(stateFile, "c1", "v1", true, true).isUpToDate(
+                    page.getPath(), "huella"));
+            assertFalse(load(stateFile, "c1", "v1", true, true).isUpToDate(
+                    page.getPath(), "otra"));
+            assertFalse(load(stateFile, "c1", "v2", true, true).isUpToDate(
+                    page.getPath(), "huella"));
+            assertFalse(load(stateFile, "c2", "v1", true, true).isUpToDate(
+                    page.getPath(), "huella"));
+            assertFalse(load(stateFile, "c1", "v1", true, false).isUpToDate(
+                    page.getPath(), "huella"));
+            assertFalse(load(stateFile, "c1", "v1", false, true).isUpToDate(
+                    page.getPath(), "huella"));
+        } finally {
+            assertTrue(page.delete());
+            stateFile.delete();
+            assertTrue(dir.delete());
+        }
+    }
+
+    /**
+     * Lee el estado guardado.
+     * 
+     * @param file
+     *            fichero de estado.
+     * @param config
+     *            resumen de la configuración.
+     * @param version
+     *            versión del generador.
+     * @param incremental
+     *            generación incremental.
+     * @param complete
+     *            siguen en disco los ficheros generados.
+     * @return estado.
+     */
+    private static GenerationState load(File file, String config,
+            String version, boolean incremental, boolean complete) {
+        return new GenerationState(file, config, version, incremental,
+                complete);
+    }
+}
@@ -0,0 +1,191 @@
+package ubu.digit.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Conjunto de métodos que verifican cuándo la clase OutputManifest escribe
+ * los ficheros generados, cómo los sustituye y cómo los borra.
+ * 
+ * @since 4.1
+ */
+public class OutputManifestTest {
+
+    /**
+     * Directorio de salida.
+     */
+    private File dir;
+
+    /**
+     * Fichero del manifiesto.
+     */
+    private File manifestFile;
+
+    /**
+     * Fichero generado.
+     */
+    private File page;
+
+    /**
+     * Método que se ejecuta antes de cada test. Crea el directorio de salida.
+     * 
+     * @throws IOException
+     */
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("manifest").toFile();
+        manifestFile = new File(dir, "manifest.sha256");
+        page = new File(dir, "index.html");
+    }
+
+    /**
+     * Método que se ejecuta después de cada test. Borra el directorio de
+     * salida.
+     */
+    @After
+    public void tearDown() {
+        for (File file : dir.listFiles()) {
+            assertTrue(file.delete());
+        }
+        assertTrue(dir.delete());
+    }
+
+    /**
+     * Test que comprueba que un fichero con el mismo contenido no se vuelve a
+     * escribir, tampoco en la ejecución siguiente, y que sí se escribe si ha
+     * cambiado o si ya no está en disco.
+     * 
+     * @throws IOException
+     */
+    @Test
+    public void testSkipUnchanged() throws IOException {
+        OutputManifest manifest = new OutputManifest(manifestFile, null);
+        assertTrue(manifest.write(page.getPath(), bytes("uno")));
+        assertTrue(page.setLastModified(1000000000000L));
+        assertFalse(manifest.write(page.getPath(), bytes("uno")));
+        assertEquals(1, manifest.getWritten());
+        assertEquals(1, manifest.getSkipped());
+        manifest.save();
+
+        manifest = new OutputManifest(manifestFile, null);
+        assertTrue(manifest.isComplete());
+        assertFalse(manifest.write(page.getPath(), bytes("uno")));
+        assertEquals(1000000000000L, page.lastModified());
+        assertTrue(manifest.write(page.getPath(), bytes("dos")));
+        assertArrayEquals(bytes("dos"), Files.readAllBytes(page.toPath()));
+
+        assertTrue(page.delete());
+        assertFalse(manifest.isComplete());
+        assertTrue(manifest.write(page.getPath(), bytes("dos")));
+        assertArrayEquals(bytes("dos"), Files.readAllBytes(page.toPath()));
+    }
+
+    /**
+     * Test que comprueba que un fichero que cambia se sustituye por otro en
+     * lugar de sobrescribirse: quien lo tenía abierto sigue leyendo el
+     * contenido anterior completo y no queda ningún temporal.
+     * 
+     * @throws IOException
+     */
+    @Test
+    public void testReplace() throws IOException {
+        OutputManifest manifest = new OutputManifest(manifestFile, null);
+        byte[] old = bytes("contenido anterior, más largo que el nuevo");
+        assertTrue(manifest.write(page.getPath(), old));
+        InputStream reader = new FileInputStream(page);
+        try {
+            assertTrue(manifest.write(page.getPath(), bytes("nuevo")));
+            assertArrayEquals(old, read(reader));
+        } finally {
+            reader.close();
+        }
+        assertArrayEquals(bytes("nuevo"), Files.readAllBytes(page.toPath()));
+        assertArrayEquals(new String[] { page.getName() }, dir.list());
+    }
+
+    /**
+     * Test que comprueba que al borrar un fichero se borra también su
+     * versión comprimida y desaparece del manifiesto guardado.
+     * 
+     * @throws IOException
+     */
+    @Test
+    public void testDelete() throws IOException {
+        File other = new File(dir, "otra.html");
+        File gzip = new File(page.getPath() + Precompressor.SUFFIX);
+        OutputManifest manifest = new OutputManifest(manifestFile, null);
+        assertTrue(manifest.write(page.getPath(), bytes("uno")));
+        assertTrue(manifest.write(other.getPath(), bytes("otra")));
+        Files.write(gzip.toPath(), bytes("comprimido"));
+        manifest.save();
+        assertTrue(manifestText().contains(page.getPath()));
+
+        manifest = new OutputManifest(manifestFile, null);
+        assertTrue(manifest.delete(page.getPath()));
+        assertFalse(page.exists());
+        assertFalse(gzip.exists());
+        assertFalse(manifest.delete(page.getPath()));
+        assertEquals(1, manifest.getDeleted());
+        manifest.save();
+        assertFalse(manifestText().contains(page.getPath()));
+        assertTrue(manifestText().contains(other.getPath()));
+
+        // Sin la entrada en el manifiesto, el mismo contenido se vuelve a
+        // escribir
+        manifest = new OutputManifest(manifestFile, null);
+        assertTrue(manifest.isComplete());
+        assertTrue(manifest.write(page.getPath(), bytes("uno")));
+    }
+
+    /**
+     * @return texto del manifiesto guardado.
+     * @throws IOException
+     */
+    private String manifestText() throws IOException {
+        return new String(Files.readAllBytes(manifestFile.toPath()),
+                StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Codifica un texto en UTF-8.
+     * 
+     * @param text
+     *            texto.
+     * @return bytes del texto.
+     */
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Lee un flujo hasta el final.
+     * 
+     * @param in
+     *            flujo.
+     * @return contenido.
+     * @throws IOException
+     */
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
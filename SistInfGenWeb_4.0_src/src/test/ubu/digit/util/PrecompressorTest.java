@@ -0,0 +1,150 @@
+package ubu.digit.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+/**
+ * Conjunto de métodos que verifican la compresión de los ficheros del
+ * directorio de salida de la clase Precompressor.
+ * 
+ * @since 4.1
+ */
+public class PrecompressorTest {
+
+    /**
+     * Test que comprueba que la compresión se puede descomprimir y que el
+     * mismo contenido da siempre el mismo resultado.
+     * 
+     * @throws IOException
+     */
+    @Test
+    public void testGzip() throws IOException {
+        StringBuilder html = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            html.append("<td style='text-align:center'>").append(i)
+                    .append("</td>\n");
+        }
+        byte[] content = html.toString().getBytes(StandardCharsets.UTF_8);
+
+        byte[] gzip = Precompressor.gzip(content);
+        assertTrue(gzip.length < content.length / 4);
+        assertArrayEquals(content, gunzip(gzip));
+        assertArrayEquals(gzip, Precompressor.gzip(content));
+    }
+
+    /**
+     * Test que comprueba que sólo se comprimen los ficheros de texto, también
+     * en los subdirectorios, y que una segunda pasada no vuelve a comprimir
+     * los que no han cambiado.
+     * 
+     * @throws IOException
+     */
+    @Test
+    public void testCompressStale() throws IOException {
+        File dir = Files.createTempDirectory("precompressor").toFile();
+        try {
+            compressStale(dir);
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /**
+     * Comprime los ficheros de un directorio en tres pasadas.
+     * 
+     * @param dir
+     *            directorio vacío.
+     * @throws IOException
+     */
+    private static void compressStale(File dir) throws IOException {
+        File css = new File(dir, "css");
+        assertTrue(css.mkdir());
+        File style = write(new File(css, "style.css"), "body { color: red; }");
+        File page = write(new File(dir, "index.html"), "<html></html>");
+        File image = write(new File(dir, "logo.png"), "PNG");
+
+        Precompressor precompressor = new Precompressor(2);
+        precompressor.compressStale(dir);
+        precompressor.await();
+        assertEquals(2, precompressor.getCompressed());
+        assertArrayEquals(Files.readAllBytes(style.toPath()), gunzip(Files
+                .readAllBytes(new File(style.getPath()
+                        + Precompressor.SUFFIX).toPath())));
+        assertTrue(new File(page.getPath() + Precompressor.SUFFIX).isFile());
+        assertFalse(new File(image.getPath() + Precompressor.SUFFIX).exists());
+
+        precompressor.compressStale(dir);
+        precompressor.await();
+        assertEquals(2, precompressor.getCompressed());
+
+        File gzip = new File(page.getPath() + Precompressor.SUFFIX);
+        assertTrue(page.setLastModified(gzip.lastModified() + 2000));
+        precompressor.compressStale(dir);
+        precompressor.await();
+        assertEquals(3, precompressor.getCompressed());
+    }
+
+    /**
+     * Escribe un fichero de texto.
+     * 
+     * @param file
+     *            fichero.
+     * @param text
+     *            contenido.
+     * @return el fichero.
+     * @throws IOException
+     */
+    private static File write(File file, String text) throws IOException {
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    /**
+     * Borra un fichero o un directorio con todo su contenido.
+     * 
+     * @param file
+     *            fichero o directorio.
+     */
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        assertTrue(file.delete());
+    }
+
+    /**
+     * Descomprime un contenido comprimido con gzip.
+     * 
+     * @param gzip
+     *            contenido comprimido.
+     * @return contenido.
+     * @throws IOException
+     */
+    private static byte[] gunzip(byte[] gzip) throws IOException {
+        InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+}